@@ -0,0 +1,26 @@
+import java.util.List;
+
+/**
+ * The dictionary words by their phone digits, walked a digit at a time from the {@link #ROOT}: a {@link DigitTrie}
+ * built from the words, or a {@link MappedDigitIndex} compiled from it once. Implementations are safe to share
+ * between threads.
+ */
+public interface DigitIndex {
+
+    int ROOT = 0;
+    int NONE = -1;
+
+    /**
+     * The node after the digit, {@link #NONE} if no word goes on with it or it is not a digit.
+     */
+    int child(int node, char digit);
+
+    /**
+     * The words spelled by the digits leading to the node, none if they are only a prefix of words.
+     */
+    List<String> words(int node);
+
+    int nodeCount();
+
+    int wordCount();
+}
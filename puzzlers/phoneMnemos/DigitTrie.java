@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Digit sequences of the dictionary words as a 10-way trie flattened into an int array: walking the digits of a
+ * number from a start position meets every word ending further on, no substring, no hashing.
+ * Immutable once built, safe to share between threads.
+ */
+public final class DigitTrie implements DigitIndex {
+
+    private static final String[] LETTERS_FOR_DIGITS = {"", "", "ABC", "DEF", "GHI", "JKL", "MNO", "PQRS", "TUV",
+        "WXYZ"};
+    private static final char[] DIGIT_FOR_LETTER = new char[26];
+    static {
+        for(int digit = 0; digit < LETTERS_FOR_DIGITS.length; digit++) {
+            final String letters = LETTERS_FOR_DIGITS[digit];
+            for(int i = 0; i < letters.length(); i++) DIGIT_FOR_LETTER[letters.charAt(i) - 'A'] = (char) (digit + '0');
+        }
+    }
+
+    /**
+     * The phone digits of an upper case word.
+     * @throws IllegalArgumentException if the word is not all letters A to Z.
+     */
+    public static String toDigits(final String word) {
+        final char[] digits = new char[word.length()];
+        for(int i = 0; i < digits.length; i++) {
+            final char c = word.charAt(i);
+            if(c < 'A' || c > 'Z') throw new IllegalArgumentException("Invalid dictionary entry:" + word);
+            digits[i] = DIGIT_FOR_LETTER[c - 'A'];
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Collects the words, then freezes them into the trie. Not thread-safe.
+     */
+    public static final class Builder {
+        private int[] children = new int[10 * 64];
+        private final List<List<String>> words = new ArrayList<>();
+
+        public Builder() {
+            Arrays.fill(children, NONE);
+            words.add(null);
+        }
+
+        /**
+         * @param word the upper case word, its digits computed.
+         */
+        public Builder add(final String word) {
+            return add(toDigits(word), word);
+        }
+
+        public Builder add(final CharSequence digits, final String word) {
+            int node = ROOT;
+            for(int i = 0; i < digits.length(); i++) {
+                final int at = node * 10 + digits.charAt(i) - '0';
+                if(children[at] == NONE) {
+                    children[at] = words.size();
+                    words.add(null);
+                    if(children.length < words.size() * 10) {
+                        final int used = children.length;
+                        children = Arrays.copyOf(children, used * 2);
+                        Arrays.fill(children, used, children.length, NONE);
+                    }
+                }
+                node = children[at];
+            }
+            List<String> own = words.get(node);
+            if(own == null) words.set(node, own = new ArrayList<>(1));
+            own.add(word);
+            return this;
+        }
+
+        public DigitTrie build() {
+            final int nodes = words.size();
+            final List<List<String>> frozen = new ArrayList<>(nodes);
+            int count = 0;
+            for(final List<String> own: words) {
+                frozen.add(own == null ? Collections.<String>emptyList() : Collections.unmodifiableList(
+                    Arrays.asList(own.toArray(new String[own.size()]))));
+                if(own != null) count += own.size();
+            }
+            return new DigitTrie(Arrays.copyOf(children, nodes * 10), frozen, count);
+        }
+    }
+
+    /** The 10 children of each node, by the digit, {@link #NONE} if none. */
+    private final int[] children;
+    /** The words of each node, built once: the lookups allocate nothing. */
+    private final List<List<String>> words;
+    private final int wordCount;
+
+    private DigitTrie(final int[] children, final List<List<String>> words, final int wordCount) {
+        this.children = children;
+        this.words = words;
+        this.wordCount = wordCount;
+    }
+
+    @Override public int child(final int node, final char digit) {
+        return digit < '0' || digit > '9' ? NONE : children[node * 10 + digit - '0'];
+    }
+
+    @Override public List<String> words(final int node) {
+        return words.get(node);
+    }
+
+    @Override public int nodeCount() {
+        return words.size();
+    }
+
+    @Override public int wordCount() {
+        return wordCount;
+    }
+}
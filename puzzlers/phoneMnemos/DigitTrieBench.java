@@ -0,0 +1,84 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The word lookups of every split of a number: the substring and {@code HashMap} way against the {@link DigitTrie}.
+ * Run on a full word list, say {@code java DigitTrieBench /usr/share/dict/words [numbers] [digits]}: the entries with
+ * anything but the letters are skipped. The numbers are random, the same ones for both.
+ */
+public class DigitTrieBench {
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        final int count = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        final int length = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+
+        final Map<String, List<String>> map = new HashMap<>();
+        final DigitTrie.Builder builder = new DigitTrie.Builder();
+        int skipped = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(args[0]))) {
+            String word;
+            while ((word = br.readLine()) != null) {
+                word = word.toUpperCase();
+                final String digits;
+                try {
+                    digits = DigitTrie.toDigits(word);
+                }
+                catch (IllegalArgumentException x) {
+                    skipped++;
+                    continue;
+                }
+                List<String> words = map.get(digits);
+                if(words == null) map.put(digits, words = new ArrayList<>());
+                words.add(word);
+                builder.add(digits, word);
+            }
+        }
+        final DigitTrie trie = builder.build();
+        System.out.printf("%d words, %d skipped, %d digit keys, %d trie nodes%n", trie.wordCount(), skipped,
+            map.size(), trie.nodeCount());
+
+        final Random random = new Random(42);
+        final char[][] numbers = new char[count][length];
+        for(final char[] number: numbers) {
+            for(int i = 0; i < length; i++) number[i] = (char) ('2' + random.nextInt(8));
+        }
+
+        for(int round = 0; round <= ROUNDS; round++) { // the first one warms up
+            long start = System.nanoTime();
+            long mapFound = 0;
+            for(final char[] digits: numbers) {
+                for(int from = 0; from < digits.length; from++) {
+                    for(int to = from + 1; to <= digits.length; to++) {
+                        final List<String> words = map.get(new String(digits, from, to - from));
+                        if(words != null) mapFound += words.size();
+                    }
+                }
+            }
+            final long mapNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long trieFound = 0;
+            for(final char[] digits: numbers) {
+                for(int from = 0; from < digits.length; from++) {
+                    for(int at = from, node = DigitTrie.ROOT; at < digits.length; at++) {
+                        if((node = trie.child(node, digits[at])) == DigitTrie.NONE) break;
+                        trieFound += trie.words(node).size();
+                    }
+                }
+            }
+            final long trieNanos = System.nanoTime() - start;
+            if(mapFound != trieFound) throw new IllegalStateException(mapFound + " words by the map, " + trieFound);
+            System.out.printf("%s: map %.0f ns/number, trie %.0f ns/number, %d words found%n",
+                round == 0 ? "warm-up" : "round " + round, (double) mapNanos / count, (double) trieNanos / count,
+                trieFound);
+        }
+    }
+}
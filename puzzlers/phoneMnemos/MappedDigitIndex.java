@@ -0,0 +1,187 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link DigitIndex} compiled once to a binary file and memory mapped: the startup reads no dictionary, builds no
+ * map, and the words are made into strings only as the phrases take them. Compile with
+ * {@code java MappedDigitIndex <dictionary> <index>}, the front ends take the index in the place of the dictionary.
+ * <p>
+ * The file is the header, {@code "\0PMX"}, the version and the counts of the nodes, the words and the word bytes, then
+ * the {@link DigitTrie}'s node table as is: the 10 children of each node, the start of each node's words in the word
+ * table, with one more for the end; the start of each word in the packed bytes, with one more for the end; the word
+ * bytes, Latin-1. All the ints big-endian.
+ * </p>
+ * Immutable, safe to share between threads.
+ */
+public final class MappedDigitIndex implements DigitIndex {
+
+    private static final int MAGIC = 0x00504D58; // "\0PMX": no text dictionary starts with a NUL
+    private static final int VERSION = 1;
+    private static final int HEADER = 5 * 4;
+
+    /** The words of a node, decoded on the access. */
+    private final class Words extends AbstractList<String> {
+        private final int first;
+        private final int size;
+
+        Words(final int first, final int size) {
+            this.first = first;
+            this.size = size;
+        }
+
+        @Override public String get(final int i) {
+            if(i < 0 || i >= size) throw new IndexOutOfBoundsException(i + " of " + size);
+            final int from = wordStart.get(first + i), to = wordStart.get(first + i + 1);
+            final byte[] bytes = new byte[to - from];
+            for(int at = 0; at < bytes.length; at++) bytes[at] = map.get(wordBytes + from + at);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override public int size() {
+            return size;
+        }
+    }
+
+    private final MappedByteBuffer map;
+    private final IntBuffer children;
+    private final IntBuffer nodeWords;
+    private final IntBuffer wordStart;
+    /** The offset of the packed word bytes in the map. */
+    private final int wordBytes;
+    private final int nodes;
+    private final int words;
+
+    private MappedDigitIndex(final MappedByteBuffer map, final int nodes, final int words) {
+        this.map = map;
+        this.nodes = nodes;
+        this.words = words;
+        int at = HEADER;
+        children = ints(at, nodes * 10);
+        nodeWords = ints(at += nodes * 10 * 4, nodes + 1);
+        wordStart = ints(at += (nodes + 1) * 4, words + 1);
+        wordBytes = at + (words + 1) * 4;
+    }
+
+    private IntBuffer ints(final int at, final int count) {
+        final ByteBuffer view = map.duplicate();
+        view.position(at);
+        view.limit(at + count * 4);
+        return view.slice().asIntBuffer();
+    }
+
+    /**
+     * True if the file is a compiled index rather than a dictionary.
+     */
+    public static boolean isIndex(final File file) throws IOException {
+        if(file.length() < HEADER) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    public static MappedDigitIndex open(final File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            final FileChannel channel = raf.getChannel();
+            if(channel.size() > Integer.MAX_VALUE) throw new IOException("Index over 2 GB: " + file);
+            final MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(map.limit() < HEADER || map.getInt(0) != MAGIC) throw new IOException("Not a digit index: " + file);
+            if(map.getInt(4) != VERSION) throw new IOException("Unsupported index version " + map.getInt(4));
+            final int nodes = map.getInt(8), words = map.getInt(12), bytes = map.getInt(16);
+            final long expected = HEADER + 4L * (nodes * 10L + nodes + 1 + words + 1) + bytes;
+            if(nodes < 1 || words < 0 || bytes < 0 || expected != map.limit()) {
+                throw new IOException("Truncated or corrupt digit index: " + file);
+            }
+            return new MappedDigitIndex(map, nodes, words);
+        }
+    }
+
+    /**
+     * Writes the index in the binary form.
+     */
+    public static void compile(final DigitIndex index, final File file) throws IOException {
+        final int nodes = index.nodeCount();
+        int bytes = 0;
+        for(int node = 0; node < nodes; node++) {
+            for(final String word: index.words(node)) bytes += word.length();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+            64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nodes);
+            out.writeInt(index.wordCount());
+            out.writeInt(bytes);
+            for(int node = 0; node < nodes; node++) {
+                for(char digit = '0'; digit <= '9'; digit++) out.writeInt(index.child(node, digit));
+            }
+            int word = 0;
+            for(int node = 0; node < nodes; node++) {
+                out.writeInt(word);
+                word += index.words(node).size();
+            }
+            out.writeInt(word);
+            int offset = 0;
+            for(int node = 0; node < nodes; node++) {
+                for(final String w: index.words(node)) {
+                    out.writeInt(offset);
+                    offset += w.length();
+                }
+            }
+            out.writeInt(offset);
+            for(int node = 0; node < nodes; node++) {
+                for(final String w: index.words(node)) {
+                    for(int i = 0; i < w.length(); i++) {
+                        if(w.charAt(i) > 0xFF) throw new IllegalArgumentException("Not a Latin-1 word: " + w);
+                        out.write(w.charAt(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override public int child(final int node, final char digit) {
+        return digit < '0' || digit > '9' ? NONE : children.get(node * 10 + digit - '0');
+    }
+
+    @Override public List<String> words(final int node) {
+        final int first = nodeWords.get(node), size = nodeWords.get(node + 1) - first;
+        return size == 0 ? Collections.<String>emptyList() : new Words(first, size);
+    }
+
+    @Override public int nodeCount() {
+        return nodes;
+    }
+
+    @Override public int wordCount() {
+        return words;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final long start = System.nanoTime();
+        final DigitTrie.Builder builder = new DigitTrie.Builder();
+        try (BufferedReader br = new BufferedReader(new FileReader(args[0]))) {
+            String word;
+            while ((word = br.readLine()) != null) builder.add(word.toUpperCase());
+        }
+        final DigitTrie trie = builder.build();
+        compile(trie, new File(args[1]));
+        System.out.printf("%d words, %d nodes compiled to %s, %d bytes, in %d ms%n", trie.wordCount(),
+            trie.nodeCount(), args[1], new File(args[1]).length(), (System.nanoTime() - start) / 1000000);
+    }
+}
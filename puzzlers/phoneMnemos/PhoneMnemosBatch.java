@@ -0,0 +1,166 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Batch translation of a numbers file over all the cores: {@code java PhoneMnemosBatch <dictionary> <numbers>
+ * [<output>]}, the output as the one of {@link PhoneMnemosJdk}, in the order of the numbers.
+ * <p>
+ * The numbers file is memory mapped and cut into chunks of whole lines, each translated by a task of a
+ * {@link ForkJoinPool} against the one {@link PhoneMnemosJdk} shared, its index immutable. The chunks' output is
+ * written in their order as they complete, through a buffered writer; only a window of chunks is in flight at a time.
+ * A chunk buffers up to about {@value #CHUNK_CHARS} characters of output, told by the phrase counts upfront: a number
+ * that would take it past is left to the writer, which streams its phrases in their turn, none kept. So the output
+ * held in memory is bounded however long the file and however dense the numbers. The threads are the cores unless
+ * {@value #THREADS_PROP} says otherwise, {@value PhoneMnemosJdk#LIMIT_PROP} caps the phrases per number.
+ * </p>
+ */
+public class PhoneMnemosBatch {
+
+    static final String THREADS_PROP = "phone.gen.threads";
+    private static final int CHUNK_BYTES = 16 * 1024;
+    /** The output a chunk buffers, about. */
+    private static final long CHUNK_CHARS = 256 * 1024;
+    /** The chunks in flight per thread. */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    /**
+     * The output of a chunk: the text printed, cut where a number is left to the writer.
+     */
+    private static final class Output {
+        /** One more than the deferred. */
+        final List<String> texts = new ArrayList<>();
+        final List<String> deferred = new ArrayList<>();
+    }
+
+    /**
+     * Translates the lines of a slice of the file.
+     */
+    private static final class Chunk extends RecursiveTask<Output> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient PhoneMnemosJdk runner;
+        private final transient ByteBuffer lines;
+        private final long limit;
+
+        Chunk(final PhoneMnemosJdk runner, final ByteBuffer lines, final long limit) {
+            this.runner = runner;
+            this.lines = lines;
+            this.limit = limit;
+        }
+
+        @Override protected Output compute() {
+            final Output result = new Output();
+            StringWriter text = new StringWriter(lines.remaining() * 4);
+            PrintWriter out = new PrintWriter(text);
+            long budget = CHUNK_CHARS;
+            final StringBuilder number = new StringBuilder();
+            while(lines.hasRemaining()) {
+                number.setLength(0);
+                for(byte b; lines.hasRemaining() && (b = lines.get()) != '\n';) number.append((char) (b & 0xFF));
+                if(number.length() > 0 && number.charAt(number.length() - 1) == '\r') {
+                    number.setLength(number.length() - 1);
+                }
+                final String digits = number.toString();
+                final PhraseGraph graph = runner.graph(digits);
+                // a phrase and its separator take twice the digits at the most, a word and a space per digit:
+                final long phrases = Math.min(graph.count(), limit), perPhrase = 2L * digits.length() + 2;
+                if(phrases > (budget - digits.length() - 8) / perPhrase) {
+                    out.flush();
+                    result.texts.add(text.toString());
+                    result.deferred.add(digits);
+                    out = new PrintWriter(text = new StringWriter());
+                    continue;
+                }
+                budget -= phrases * perPhrase + digits.length() + 8;
+                PhoneMnemosJdk.printPhrases(digits, graph, limit, out);
+            }
+            out.flush();
+            result.texts.add(text.toString());
+            return result;
+        }
+    }
+
+    private final PhoneMnemosJdk runner;
+    private final ForkJoinPool pool;
+
+    public PhoneMnemosBatch(final PhoneMnemosJdk runner, final ForkJoinPool pool) {
+        this.runner = runner;
+        this.pool = pool;
+    }
+
+    /**
+     * Translates the numbers, a line each, into the output, in their order.
+     * @return the chunks translated.
+     */
+    public int translate(final File numbers, final Writer out, final long limit) throws IOException {
+        final MappedByteBuffer map;
+        try (RandomAccessFile file = new RandomAccessFile(numbers, "r")) {
+            final FileChannel channel = file.getChannel();
+            if(channel.size() > Integer.MAX_VALUE) throw new IOException("Numbers file over 2 GB: " + numbers);
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        final int size = map.limit();
+        final int window = pool.getParallelism() * WINDOW_PER_THREAD;
+        final Deque<ForkJoinTask<Output>> inFlight = new ArrayDeque<>(window);
+        final PrintWriter printer = new PrintWriter(out);
+        int chunks = 0;
+        for(int from = 0, to; from < size; from = to) {
+            to = Math.min(size, from + CHUNK_BYTES);
+            while(to < size && map.get(to - 1) != '\n') to++;
+            final ByteBuffer lines = map.duplicate();
+            lines.limit(to);
+            lines.position(from);
+            inFlight.add(pool.submit(new Chunk(runner, lines.slice(), limit)));
+            chunks++;
+            if(inFlight.size() == window) write(inFlight.poll().join(), printer, limit);
+        }
+        while(!inFlight.isEmpty()) write(inFlight.poll().join(), printer, limit);
+        printer.flush();
+        if(printer.checkError()) throw new IOException("Output failed");
+        return chunks;
+    }
+
+    /**
+     * Writes a chunk's text, streaming the phrases of the numbers it left in their place.
+     */
+    private void write(final Output output, final PrintWriter out, final long limit) {
+        for(int i = 0; i < output.texts.size(); i++) {
+            out.write(output.texts.get(i));
+            if(i < output.deferred.size()) runner.printPhrases(output.deferred.get(i), limit, out);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final PhoneMnemosJdk runner = new PhoneMnemosJdk(args[0]);
+        final long limit = Long.getLong(PhoneMnemosJdk.LIMIT_PROP, Long.MAX_VALUE);
+        final ForkJoinPool pool = new ForkJoinPool(Integer.getInteger(THREADS_PROP,
+            Runtime.getRuntime().availableProcessors()));
+        try(final Writer out = new BufferedWriter(new OutputStreamWriter(args.length > 2
+            ? new FileOutputStream(args[2]) : System.out), 64 * 1024)) {
+            final long start = System.nanoTime();
+            final int chunks = new PhoneMnemosBatch(runner, pool).translate(new File(args[1]), out, limit);
+            System.err.printf("%d chunks on %d threads in %d ms%n", chunks, pool.getParallelism(),
+                (System.nanoTime() - start) / 1000000);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -1,50 +1,30 @@
-import com.google.common.base.Function;
-import com.google.common.base.Joiner;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.Sets;
 
-import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.collect.ImmutableSet.copyOf;
-import static com.google.common.collect.Lists.transform;
 import static com.google.common.io.Files.readLines;
 import static java.nio.charset.Charset.defaultCharset;
 
 public class PhoneMnemosGuava {
-    final static Function<List<String>, String> LIST_STRING_CONCATTER = new Function<List<String>, String>() {
-                        @Override public String apply(@Nullable List<String> input) {
-                            return Joiner.on(' ').join(input).trim();
-                        }
-    };// this function is called from a method, better not inline it
-    final ImmutableMultimap<String, String> numsToWords;
+    final DigitIndex numsToWords;
 
     Set<String> toPhrases(final String nums) {
         if(nums == null || nums.length() < 1) return Collections.emptySet();
-        Set<String> combinations = new HashSet<>();
-        final int lastPos = nums.length() - 1;
-        for(int pos = 0; pos < nums.length(); pos++) {
-            final String head = nums.substring(0, pos + 1);
-            if(!numsToWords.containsKey(head)) continue;
-            Set<String> words = copyOf(numsToWords.get(head));
+        return copyOf(new PhraseGraph(numsToWords, nums, false).iterator()); // each suffix worked out once
+    }
 
-            Set<String> tails = copyOf(
-                pos == lastPos ? Collections.<String>emptyList() : toPhrases(nums.substring(pos + 1))
-            );
-            combinations.addAll(transform(ImmutableList.copyOf(Sets.cartesianProduct(
-                words, tails.isEmpty() ? Collections.singleton("") : tails)), LIST_STRING_CONCATTER));
-        }
-        return combinations;
+    /**
+     * @param numsToWords compiled by {@link MappedDigitIndex}, say.
+     */
+    public PhoneMnemosGuava(final DigitIndex numsToWords) {
+        this.numsToWords = numsToWords;
     }
 
     public PhoneMnemosGuava(final Set<String> dictionary) {
@@ -60,17 +40,20 @@ public class PhoneMnemosGuava {
             }
         }
 
-        numsToWords = Multimaps.index(dictionary, new Function<String, String>() {
-            @Override public String apply(String word) {// function in a constructor - let it be GC'ed
-                final char[] result = new char[word.length()];
-                for (int pos = 0; pos < word.length(); pos++) result[pos] = charToNum.get(word.charAt(pos));
-                return new String(result);
-            }
-        });
+        final DigitTrie.Builder builder = new DigitTrie.Builder();
+        for (final String word : dictionary) {
+            final char[] digits = new char[word.length()];
+            for (int pos = 0; pos < word.length(); pos++) digits[pos] = charToNum.get(word.charAt(pos));
+            builder.add(new String(digits), word);
+        }
+        numsToWords = builder.build();
     }
 
     public static void main(String[] args) throws IOException {
-        final PhoneMnemosGuava runner = new PhoneMnemosGuava(copyOf(readLines(new File(args[0]), defaultCharset())));
+        final File dictionary = new File(args[0]);
+        final PhoneMnemosGuava runner = MappedDigitIndex.isIndex(dictionary)
+            ? new PhoneMnemosGuava(MappedDigitIndex.open(dictionary))
+            : new PhoneMnemosGuava(copyOf(readLines(dictionary, defaultCharset())));
         final List<String> nums = readLines(new File(args[1]), defaultCharset());
         for(final String num: nums) System.out.printf("%n%s -> %s", num, runner.toPhrases(num));
     }
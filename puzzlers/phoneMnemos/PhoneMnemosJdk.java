@@ -1,83 +1,99 @@
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.PrintWriter;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
 public class PhoneMnemosJdk {
 
     private static final String PARTIAL_MATCHES_PROP = "phone.gen.partial.match.on";
-    private final Map<String, List<String>> wordToNumber = new HashMap<>();
+    static final String LIMIT_PROP = "phone.gen.limit";
+    private final DigitIndex index;
 
     private boolean isPartialMatchEnabled;
 
+    /**
+     * @param dictFileName a dictionary, a word per line, or an index compiled from one by {@link MappedDigitIndex}.
+     */
     public PhoneMnemosJdk(final String dictFileName) throws IOException {
-        final String[] lettersForDigs = {"", "", "ABC", "DEF", "GHI", "JKL", "MNO", "PQRS", "TUV", "WXYZ"};
         isPartialMatchEnabled = System.getProperty(PARTIAL_MATCHES_PROP) != null;
-        char[] digitForLetter = new char[26];
-        final int digitLimit = 10;
-
-        for(int digit = 0; digit < digitLimit; digit++) {
-            String letters = lettersForDigs[digit];
-            for(int i = 0; i < letters.length(); i++) digitForLetter[letters.charAt(i) - 'A'] = (char) (digit + '0');
+        if(MappedDigitIndex.isIndex(new File(dictFileName))) {
+            index = MappedDigitIndex.open(new File(dictFileName)); // mapped as is, nothing to parse
+            return;
         }
-
-        String word = null; // process the dict into the map:
+        final DigitTrie.Builder builder = new DigitTrie.Builder();
         try (BufferedReader br = new BufferedReader(new FileReader(dictFileName))) {
-            while ((word = br.readLine()) != null) {
-                word = word.toUpperCase();
-                char[] digitSeq = word.toCharArray();
-                for (int i = 0; i < digitSeq.length; i++) digitSeq[i] = digitForLetter[digitSeq[i] - 'A'];
-                String number = new String(digitSeq);
-                List<String> words = wordToNumber.get(number);
-                if (words == null) wordToNumber.put(number, words = new ArrayList<>());
-                words.add(word);
-            }
-        }
-        catch (ArrayIndexOutOfBoundsException x) {
-            throw new IllegalArgumentException("Invalid dictionary entry:" + word);
+            String word; // process the dict into the trie:
+            while ((word = br.readLine()) != null) builder.add(word.toUpperCase());
         }
+        index = builder.build();
     }
 
-    private List<String> sentences(char[] digits, int start) {
-        List<String> result = new ArrayList<>(words(digits, start, digits.length - start));
-        for(int split = start + 1; split < digits.length; split++) {
-            result.addAll(cartesianProduct(words(digits, start, split - start), sentences(digits, split)));
-        }
-        return result;
+    public List<String> genWords(final String number) {
+        return graph(number).toList();
     }
 
-    private List<String> words(char[] digits, int offset, int len) {
-        List<String> result = wordToNumber.get(new String(digits, offset, len));
-        return result == null ? Collections.<String>emptyList() : result;
+    public List<String> genWords(final String number, final int limit) {
+        return graph(number).toList(limit);
     }
 
-    public List<String> cartesianProduct(final List<String> heads, final List<String> tails) {
-        final List<String> result = new ArrayList<>();
-        if(heads.isEmpty() && tails.isEmpty()) return result;
-        if(!isPartialMatchEnabled && heads.isEmpty()) return tails;
-        if(tails.isEmpty()) return heads;
-        for(final String prefix: heads)
-            for(final String suffix: tails) result.add(prefix + " " + suffix);
-        return result;
+    /**
+     * The phrases one at a time, in a builder reused: valid till the next one.
+     */
+    public Stream<CharSequence> phrases(final String number) {
+        return graph(number).stream();
     }
 
-    public List<String> genWords(final String number) {
-        return sentences(number.toCharArray(), 0);
+    /**
+     * @return the phrases visited.
+     */
+    public long forEachPhrase(final String number, final PhraseGraph.Visitor visitor) {
+        return graph(number).forEach(visitor);
+    }
+
+    /**
+     * Prints the number and its first phrases up to the limit as they come, none kept, on a line of their own.
+     */
+    public void printPhrases(final String number, final long limit, final PrintWriter out) {
+        printPhrases(number, graph(number), limit, out);
+    }
+
+    /**
+     * Prints the phrases of a graph built already, as {@link #printPhrases(String, long, PrintWriter)}.
+     */
+    static void printPhrases(final String number, final PhraseGraph graph, final long limit, final PrintWriter out) {
+        out.printf("\"%s\" -> [", number);
+        if(limit > 0) graph.forEach(new PhraseGraph.Visitor() {
+            private long printed;
+
+            @Override public boolean visit(final CharSequence phrase) {
+                if(printed++ > 0) out.print(", ");
+                out.append(phrase);
+                return printed < limit;
+            }
+        });
+        out.println(']');
+    }
+
+    PhraseGraph graph(final String number) {
+        return new PhraseGraph(index, number, !isPartialMatchEnabled);
     }
 
     public static void main(String[] args) throws IOException {
 
         final PhoneMnemosJdk runner = new PhoneMnemosJdk(args[0]);
+        final long limit = Long.getLong(LIMIT_PROP, Long.MAX_VALUE);
 
+        // the phrases are printed as they come, none kept: dense numbers don't fill the heap
+        final PrintWriter out = new PrintWriter(System.out);
         try(final BufferedReader br = new BufferedReader(new FileReader(args[1]))) {
             String input;
-            while((input = br.readLine()) != null) {
-                System.out.printf("\"%s\" -> %s%n", input, runner.genWords(input));
-            }
+            while((input = br.readLine()) != null) runner.printPhrases(input, limit, out);
+        }
+        finally {
+            out.flush();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,280 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The phrases of a number as a DAG over its digit positions, built once right to left: a position's choices are
+ * the words starting there, each with the position after it, so a suffix is worked out once however many prefixes
+ * lead to it. The phrases are enumerated lazily, depth first, off the graph; their count is known upfront.
+ * <p>
+ * The enumeration builds each phrase in place in one {@code StringBuilder}: walked through a {@link Visitor}, the
+ * {@link #sequences()} or the {@link #stream()}, the phrases take a memory of the number's length however many of
+ * them there are, as long as they are not kept. The {@code String} ones, {@link #iterator()} and {@link #toList()},
+ * copy each.
+ * </p>
+ * <p>
+ * A word with no phrase after it ends a phrase of its own, the rest of the number left unmatched. With the skipping
+ * on, the digits with no word starting on them may be skipped to a position with phrases, as the JDK front end does
+ * without the partial matches.
+ * </p>
+ * Immutable, safe to share between threads.
+ */
+public final class PhraseGraph {
+
+    /**
+     * One choice at a position: the words of the digits up to {@code next}, or none to skip them.
+     */
+    private static final class Edge {
+        /** Null to skip. */
+        final List<String> words;
+        /** The position the phrase goes on from, {@link #END} if it ends with the words. */
+        final int next;
+
+        Edge(final List<String> words, final int next) {
+            this.words = words;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Called back with the phrases in turn.
+     */
+    public interface Visitor {
+        /**
+         * @param phrase valid during the call only, copy it to keep it.
+         * @return false to stop.
+         */
+        boolean visit(CharSequence phrase);
+    }
+
+    private static final int END = -1;
+
+    /** The choices of each position, the last position's none. */
+    private final List<List<Edge>> edges;
+    private final int length;
+    private final long count;
+
+    /**
+     * @param skipUnmatched true to let the phrases skip the digits no word starts on.
+     */
+    public PhraseGraph(final DigitIndex index, final CharSequence digits, final boolean skipUnmatched) {
+        length = digits.length();
+        final List<List<Edge>> edges = new ArrayList<>(length + 1);
+        for(int pos = 0; pos <= length; pos++) edges.add(Collections.<Edge>emptyList());
+        final long[] counts = new long[length + 1];
+        if(length == 0 && !index.words(DigitIndex.ROOT).isEmpty()) {
+            edges.set(0, Collections.singletonList(new Edge(index.words(DigitIndex.ROOT), END)));
+            counts[0] = index.words(DigitIndex.ROOT).size();
+        }
+        final List<List<String>> heads = new ArrayList<>(length);
+        for(int start = length - 1; start >= 0; start--) {
+            heads.clear();
+            for(int end = start, node = DigitIndex.ROOT; end < length; end++) {
+                if(node != DigitIndex.NONE) node = index.child(node, digits.charAt(end));
+                heads.add(node == DigitIndex.NONE ? Collections.<String>emptyList() : index.words(node));
+            }
+            final List<Edge> choices = new ArrayList<>();
+            long count = 0;
+            final List<String> whole = heads.get(length - start - 1);
+            if(!whole.isEmpty()) {
+                choices.add(new Edge(whole, END));
+                count = whole.size();
+            }
+            for(int split = start + 1; split < length; split++) {
+                final List<String> words = heads.get(split - start - 1);
+                if(words.isEmpty()) {
+                    if(!skipUnmatched || counts[split] == 0) continue;
+                    choices.add(new Edge(null, split));
+                    count = add(count, counts[split]);
+                }
+                else if(counts[split] == 0) {
+                    choices.add(new Edge(words, END));
+                    count = add(count, words.size());
+                }
+                else {
+                    choices.add(new Edge(words, split));
+                    count = add(count, multiply(words.size(), counts[split]));
+                }
+            }
+            if(!choices.isEmpty()) edges.set(start, choices);
+            counts[start] = count;
+        }
+        this.edges = edges;
+        this.count = counts[0];
+    }
+
+    private static long add(final long a, final long b) {
+        final long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long multiply(final long a, final long b) {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+
+    /**
+     * The number of the phrases, {@link Long#MAX_VALUE} if more.
+     */
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Walks the phrases in the order of the {@link #iterator()} till the visitor stops.
+     * @return the phrases visited.
+     */
+    public long forEach(final Visitor visitor) {
+        final Cursor cursor = new Cursor();
+        long visited = 0;
+        while(cursor.advance()) {
+            visited++;
+            if(!visitor.visit(cursor.phrase)) break;
+        }
+        return visited;
+    }
+
+    /**
+     * The phrases, each one the same builder: valid till the next call of {@code next()}.
+     */
+    public Iterator<CharSequence> sequences() {
+        final Cursor cursor = new Cursor();
+        return new Iterator<CharSequence>() {
+            private boolean ready;
+
+            @Override public boolean hasNext() {
+                if(!ready) ready = cursor.advance();
+                return ready;
+            }
+
+            @Override public CharSequence next() {
+                if(!hasNext()) throw new NoSuchElementException();
+                ready = false;
+                return cursor.phrase;
+            }
+
+            @Override public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * The phrases as a sequential stream of the {@link #sequences()}: {@code limit} and the short-circuiting
+     * operations stop the walk, a phrase is valid till the next one, {@code map(CharSequence::toString)} to keep them.
+     */
+    public Stream<CharSequence> stream() {
+        final int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+        return StreamSupport.stream(count == Long.MAX_VALUE
+            ? Spliterators.spliteratorUnknownSize(sequences(), characteristics)
+            : Spliterators.spliterator(sequences(), count, characteristics), false);
+    }
+
+    /**
+     * The phrases, the words separated by a space, in the order of the splits, leftmost first.
+     */
+    public Iterator<String> iterator() {
+        final Iterator<CharSequence> sequences = sequences();
+        return new Iterator<String>() {
+            @Override public boolean hasNext() {
+                return sequences.hasNext();
+            }
+
+            @Override public String next() {
+                return sequences.next().toString();
+            }
+
+            @Override public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * All the phrases, in the order of the {@link #iterator()}.
+     */
+    public List<String> toList() {
+        return toList(Integer.MAX_VALUE);
+    }
+
+    /**
+     * The first phrases, up to the limit, in the order of the {@link #iterator()}.
+     */
+    public List<String> toList(final int limit) {
+        final List<String> result = new ArrayList<>((int) Math.min(Math.min(count, limit), 1024));
+        forEach(new Visitor() {
+            @Override public boolean visit(final CharSequence phrase) {
+                if(result.size() < limit) result.add(phrase.toString());
+                return result.size() < limit;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The depth first walk: a frame per position on the path, the phrase built in place.
+     */
+    private final class Cursor {
+        final StringBuilder phrase = new StringBuilder();
+        /** The position of each frame. */
+        private final int[] node = new int[length + 1];
+        /** The choice of each frame. */
+        private final int[] edge = new int[length + 1];
+        /** The next word of the choice. */
+        private final int[] word = new int[length + 1];
+        /** The length of the phrase before the frame. */
+        private final int[] mark = new int[length + 1];
+        private int depth = -1;
+
+        Cursor() {
+            if(count > 0) push(0);
+        }
+
+        private void push(final int position) {
+            depth++;
+            node[depth] = position;
+            edge[depth] = 0;
+            word[depth] = 0;
+            mark[depth] = phrase.length();
+        }
+
+        /**
+         * @return true if the phrase is the next one, false if there are no more.
+         */
+        boolean advance() {
+            while(depth >= 0) {
+                phrase.setLength(mark[depth]);
+                final List<Edge> choices = edges.get(node[depth]);
+                if(edge[depth] == choices.size()) {
+                    depth--;
+                    continue;
+                }
+                final Edge e = choices.get(edge[depth]);
+                if(e.words == null) {
+                    edge[depth]++;
+                    push(e.next);
+                    continue;
+                }
+                if(word[depth] == e.words.size()) {
+                    edge[depth]++;
+                    word[depth] = 0;
+                    continue;
+                }
+                phrase.append(e.words.get(word[depth]++));
+                if(e.next == END) return true;
+                phrase.append(' ');
+                push(e.next);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package test.github.mub.webCrawler.jmh;
+
+import com.github.mub.webCrawler.FrequencyStore;
+import com.github.mub.webCrawler.HtmlTokenizer;
+import com.github.mub.webCrawler.JdbcFrequencyStore;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.WcEntry;
+import com.github.mub.webCrawler.WordCounts;
+import com.github.mub.webCrawler.WordSource;
+import com.github.mub.webCrawler.WordSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import test.github.mub.webCrawler.SyntheticHtml;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The global side of the counting: merging the pages' counts into the {@link StripedWordAccumulator} from several
+ * crawler threads, swapping the stripes out, and the batched upserts of a flush into H2.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlushBenchmarks {
+
+    private static final FrequencyStore NULL_STORE = new FrequencyStore() {
+        @Override public void store(final Collection<WcEntry> deltas) {}
+    };
+
+    /**
+     * One accumulator for all the threads, the flushes off: only the explicit ones happen.
+     */
+    @State(Scope.Benchmark)
+    public static class Accumulator {
+        @Param({"64"})
+        public int stripes;
+
+        StripedWordAccumulator words;
+
+        @Setup public void setUp() {
+            words = new StripedWordAccumulator(NULL_STORE, stripes, 0, 0);
+        }
+
+        @TearDown public void tearDown() {
+            words.close();
+        }
+    }
+
+    /**
+     * A crawler thread's page counts, the site differs from thread to thread.
+     */
+    @State(Scope.Thread)
+    public static class Page {
+        private static final AtomicInteger SITES = new AtomicInteger();
+
+        WordCounts counts;
+        WordSource site;
+
+        @Setup public void setUp() throws Exception {
+            final int n = SITES.incrementAndGet();
+            counts = new WordCounts();
+            new HtmlTokenizer(WordSpec.compile("\\w{1,}")).tokenize(
+                new StringReader(new SyntheticHtml(20000, n).page(20000)), new HtmlTokenizer.Sink() {
+                    @Override public void word(final CharSequence text, final int start, final int end) {
+                        counts.add(text, start, end);
+                    }
+
+                    @Override public void link(final String href) {
+                        // not followed
+                    }
+                });
+            site = new WordSource("site" + n + ".bench.local:80");
+        }
+    }
+
+    @Benchmark public void mergePage(final Accumulator acc, final Page page) {
+        acc.words.registerAll(page.site, page.counts);
+    }
+
+    @Benchmark @Threads(4) public void mergePageConcurrent(final Accumulator acc, final Page page) {
+        acc.words.registerAll(page.site, page.counts);
+    }
+
+    /**
+     * A page merged and the stripes swapped out: the flusher's share of the work, less the store.
+     */
+    @Benchmark public int mergeAndDrain(final Accumulator acc, final Page page) {
+        acc.words.registerAll(page.site, page.counts);
+        return acc.words.flush();
+    }
+
+    /**
+     * A flush of {@code entries} distinct words into an in-memory H2; the first invocation inserts, the rest update.
+     */
+    @State(Scope.Benchmark)
+    public static class Database {
+        private static final AtomicInteger DATABASES = new AtomicInteger();
+
+        @Param({"10000"})
+        public int entries;
+
+        @Param({"1000", "5000"})
+        public int batchSize;
+
+        JdbcFrequencyStore store;
+        List<WcEntry> deltas;
+
+        @Setup(Level.Trial) public void setUp() throws Exception {
+            store = new JdbcFrequencyStore("jdbc:h2:mem:jmh" + DATABASES.incrementAndGet());
+            store.setBatchSize(batchSize);
+            final SyntheticHtml words = new SyntheticHtml(entries * 2, 42);
+            final WordSource src = new WordSource("bench.local:80");
+            deltas = new ArrayList<>(entries);
+            for(int i = 0; i < entries; i++) deltas.add(new WcEntry(src, words.word() + i, 1 + i % 7));
+        }
+
+        @TearDown(Level.Trial) public void tearDown() throws Exception {
+            store.close();
+        }
+    }
+
+    @Benchmark @BenchmarkMode(Mode.SingleShotTime) @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5) @Measurement(iterations = 20)
+    public void flushBatch(final Database db) throws Exception {
+        db.store.store(db.deltas);
+    }
+}
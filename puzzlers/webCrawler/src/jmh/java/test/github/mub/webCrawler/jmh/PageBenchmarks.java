@@ -0,0 +1,114 @@
+package test.github.mub.webCrawler.jmh;
+
+import com.github.mub.webCrawler.HtmlTokenizer;
+import com.github.mub.webCrawler.PageDecoder;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.WordCounts;
+import com.github.mub.webCrawler.WordRegistrar;
+import com.github.mub.webCrawler.WordSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import test.github.mub.webCrawler.SyntheticHtml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per page work: tokenizing alone, through a {@code Reader} per page or the reused {@link PageDecoder},
+ * tokenizing into the page's {@link WordCounts}, and the whole {@link StreamingPageProcessor} path from the bytes
+ * to the counts and the links. Run with {@code -prof gc} to see the allocation per page too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageBenchmarks {
+
+    private static final WordRegistrar NULL_REGISTRAR = new WordRegistrar() {
+        @Override public void register(final String word, final int count) {}
+    };
+
+    @Param({"10000", "100000"})
+    public int pageBytes;
+
+    @Param({"\\w{1,}"})
+    public String wordSpec;
+
+    private byte[] page;
+    private URL base;
+    private HtmlTokenizer tokenizer;
+    private PageDecoder decoder;
+    private WordCounts counts;
+    private StreamingPageProcessor processor;
+
+    @Setup public void setUp() throws Exception {
+        page = new SyntheticHtml(20000, 42).pageBytes(pageBytes);
+        base = new URL("http://bench.local/");
+        final WordSpec spec = WordSpec.compile(wordSpec);
+        tokenizer = new HtmlTokenizer(spec);
+        decoder = new PageDecoder();
+        counts = new WordCounts();
+        processor = new StreamingPageProcessor(spec, 0);
+    }
+
+    @Benchmark public void tokenize(final Blackhole bh) throws Exception {
+        tokenizer.tokenize(new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8),
+            new HtmlTokenizer.Sink() {
+                @Override public void word(final CharSequence text, final int start, final int end) {
+                    bh.consume(end - start);
+                }
+
+                @Override public void link(final String href) {
+                    bh.consume(href);
+                }
+            });
+    }
+
+    @Benchmark public void tokenizeDecoded(final Blackhole bh) throws Exception {
+        decoder.open(new ByteArrayInputStream(page), StandardCharsets.UTF_8);
+        tokenizer.tokenize(decoder, new HtmlTokenizer.Sink() {
+            @Override public void word(final CharSequence text, final int start, final int end) {
+                bh.consume(end - start);
+            }
+
+            @Override public void link(final String href) {
+                bh.consume(href);
+            }
+        });
+    }
+
+    @Benchmark public int countPage() throws Exception {
+        counts.clear();
+        tokenizer.tokenize(new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8),
+            new HtmlTokenizer.Sink() {
+                @Override public void word(final CharSequence text, final int start, final int end) {
+                    counts.add(text, start, end);
+                }
+
+                @Override public void link(final String href) {
+                    // not followed
+                }
+            });
+        return counts.size();
+    }
+
+    @Benchmark public Collection<String> processPage() throws Exception {
+        return processor.process(new ByteArrayInputStream(page), StandardCharsets.UTF_8, base, NULL_REGISTRAR);
+    }
+}
@@ -0,0 +1,97 @@
+package test.github.mub.webCrawler.jmh;
+
+import com.github.mub.webCrawler.StopWords;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.github.mub.webCrawler.SyntheticHtml;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ignored words check of a token: the {@link StopWords} trie on the window of the text against a
+ * {@code HashSet<String>}, which needs the token made into a lower case {@code String} first, as the page counts
+ * do. {@code hashSetString} is the lookup alone, with the token strings made upfront and their hashes cached.
+ * Run with {@code -prof gc} to see the allocation per token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StopWordBenchmarks {
+
+    private static final List<String> ENGLISH = Arrays.asList("a", "about", "above", "after", "again", "against",
+        "all", "am", "an", "and", "any", "are", "as", "at", "be", "because", "been", "before", "being", "below",
+        "between", "both", "but", "by", "can", "did", "do", "does", "doing", "down", "during", "each", "few", "for",
+        "from", "further", "had", "has", "have", "having", "he", "her", "here", "hers", "herself", "him", "himself",
+        "his", "how", "i", "if", "in", "into", "is", "it", "its", "itself", "just", "me", "more", "most", "my",
+        "myself", "no", "nor", "not", "now", "of", "off", "on", "once", "only", "or", "other", "our", "ours",
+        "ourselves", "out", "over", "own", "same", "she", "should", "so", "some", "such", "than", "that", "the",
+        "their", "theirs", "them", "themselves", "then", "there", "these", "they", "this", "those", "through", "to",
+        "too", "under", "until", "up", "very", "was", "we", "were", "what", "when", "where", "which", "while", "who",
+        "whom", "why", "will", "with", "you", "your", "yours", "yourself", "yourselves");
+
+    private static final int TOKENS = 1 << 12;
+
+    private CharBuffer text;
+    private int[] starts;
+    private int[] ends;
+    private String[] strings;
+    private Set<String> set;
+    private StopWords stopWords;
+    private int next;
+
+    /**
+     * A text of the synthetic words with about 40% of stop words, as an English text has.
+     */
+    @Setup public void setUp() {
+        final SyntheticHtml words = new SyntheticHtml(20000, 42);
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder();
+        starts = new int[TOKENS];
+        ends = new int[TOKENS];
+        strings = new String[TOKENS];
+        for(int i = 0; i < TOKENS; i++) {
+            final String word = random.nextInt(10) < 4 ? ENGLISH.get(random.nextInt(ENGLISH.size())) : words.word();
+            starts[i] = sb.length();
+            sb.append(random.nextInt(8) == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            ends[i] = sb.length();
+            strings[i] = word;
+            sb.append(' ');
+        }
+        text = CharBuffer.wrap(sb.toString().toCharArray());
+        set = new HashSet<>(ENGLISH);
+        stopWords = StopWords.of(ENGLISH);
+    }
+
+    @Benchmark public boolean stopWordsWindow() {
+        final int i = next++ & TOKENS - 1;
+        return stopWords.contains(text, starts[i], ends[i]);
+    }
+
+    @Benchmark public boolean hashSetWindow() {
+        final int i = next++ & TOKENS - 1;
+        final char[] word = new char[ends[i] - starts[i]];
+        for(int c = 0; c < word.length; c++) word[c] = Character.toLowerCase(text.charAt(starts[i] + c));
+        return set.contains(new String(word));
+    }
+
+    @Benchmark public boolean hashSetString() {
+        return set.contains(strings[next++ & TOKENS - 1]);
+    }
+}
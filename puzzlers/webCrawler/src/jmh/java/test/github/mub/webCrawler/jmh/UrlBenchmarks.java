@@ -0,0 +1,85 @@
+package test.github.mub.webCrawler.jmh;
+
+import com.github.mub.webCrawler.UrlNormalizer;
+import com.github.mub.webCrawler.VisitedUrls;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per link work of the crawl: parsing and normalizing the links found, and the visited set lookups.
+ * The links are synthetic, spread over a few dozen hosts like the links of a real crawl.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBenchmarks {
+
+    private static final int LINKS = 1 << 14;
+
+    /** Of the URLs looked up, how many are visited already. */
+    @Param({"1000000"})
+    public int visitedSize;
+
+    private String[] links;
+    private URL[] urls;
+    private VisitedUrls visited;
+    private int next;
+
+    @Setup public void setUp() throws Exception {
+        final Random random = new Random(42);
+        links = new String[LINKS];
+        urls = new URL[LINKS];
+        for(int i = 0; i < LINKS; i++) {
+            links[i] = "http://www" + random.nextInt(50) + ".Example.com/dir" + random.nextInt(100) + "/page"
+                + random.nextInt(1000000) + ".html?x=" + i + "#top";
+            urls[i] = new URL(links[i]);
+        }
+        visited = new VisitedUrls(visitedSize);
+        for(int i = 0; i < visitedSize; i++) visited.add(UrlNormalizer.fingerprint("host:80/" + i));
+        for(int i = 0; i < LINKS; i += 2) visited.add(urls[i]); // half of the lookups hit
+    }
+
+    private int nextIndex() {
+        return next++ & LINKS - 1;
+    }
+
+    @Benchmark public URL toCrawlable() {
+        return UrlNormalizer.toCrawlable(links[nextIndex()]);
+    }
+
+    @Benchmark public String normalize() {
+        return UrlNormalizer.normalize(urls[nextIndex()]);
+    }
+
+    @Benchmark public long fingerprint() {
+        return UrlNormalizer.fingerprint(UrlNormalizer.normalize(urls[nextIndex()]));
+    }
+
+    @Benchmark public boolean visitedContains() {
+        return visited.contains(urls[nextIndex()]);
+    }
+
+    /**
+     * The lookups of the crawler threads at once; the index races are harmless, any link will do.
+     */
+    @Benchmark @Threads(4) public boolean visitedContainsConcurrent() {
+        return visited.contains(urls[nextIndex()]);
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.mub.webCrawler;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * {@link PageProcessor} replaying the pages of a {@link CrawlArchive} through the same decode, tokenize and count
+ * pipeline as the {@link StreamingPageProcessor}, with no network: the crawl of a recorded site is repeatable and
+ * runs at the speed of the counting alone.
+ * <p>
+ * A page not in the archive fails as unreachable, a recorded error status fails as it did live. The links are
+ * resolved against the URL the page was requested by, not the one it was redirected to if any.
+ * </p>
+ * @author michaelb
+ */
+public class ArchivePageProcessor extends StreamingPageProcessor {
+
+    private final CrawlArchive archive;
+
+    public ArchivePageProcessor(final CrawlArchive archive, final WordSpec wordSpec) {
+        super(wordSpec);
+        this.archive = archive;
+    }
+
+    public CrawlArchive getArchive() {
+        return archive;
+    }
+
+    @Override public Collection<String> process(final URL url, final WordRegistrar words) throws IOException {
+        final CrawlArchive.Page page = archive.get(url);
+        if(page == null) throw new IOException("Not in the archive: " + url);
+        if(page.getStatus() / 100 != 2) throw new IOException("HTTP " + page.getStatus() + " from " + url);
+        if(!isHtml(page.getContentType())) return new ArrayList<>(0);
+        return process(page.getBody(), charsetOf(page.getContentType()), new URL(page.getUrl()), words);
+    }
+}
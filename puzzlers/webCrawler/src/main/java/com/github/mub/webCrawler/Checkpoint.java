@@ -0,0 +1,163 @@
+package com.github.mub.webCrawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One consistent snapshot of a crawl: the epoch, how many fingerprints of the {@link FingerprintLog} were visited,
+ * the pending frontier and the frequency deltas of the epoch.
+ * <p>
+ * Binary format, big endian: the magic {@code "WCCP"}, the version int, the epoch long, the visited count long,
+ * the frontier count int, the delta count int, then the frontier entries as {@code depth int, url string}
+ * and the deltas as {@code site string, word string, count int}; the strings are an unsigned short length
+ * followed by the UTF-8 bytes.
+ * Written through a memory map to a temporary file, forced, then atomically renamed over the previous one.
+ * </p>
+ * @author michaelb
+ */
+public class Checkpoint {
+
+    static final int MAGIC = 0x57434350; // WCCP
+    static final int VERSION = 1;
+
+    /**
+     * A pending page of the frontier.
+     */
+    public static final class Page {
+        private final String url;
+        private final int depth;
+
+        public Page(final String url, final int depth) {
+            this.url = url;
+            this.depth = depth;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private final long epoch;
+    private final long visitedCount;
+    private final List<Page> frontier;
+    private final List<WcEntry> deltas;
+
+    public Checkpoint(final long epoch, final long visitedCount, final List<Page> frontier,
+                      final List<WcEntry> deltas) {
+        this.epoch = epoch;
+        this.visitedCount = visitedCount;
+        this.frontier = frontier;
+        this.deltas = deltas;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVisitedCount() {
+        return visitedCount;
+    }
+
+    public List<Page> getFrontier() {
+        return frontier;
+    }
+
+    public List<WcEntry> getDeltas() {
+        return deltas;
+    }
+
+    public void write(final File file) throws IOException {
+        final List<byte[]> strings = new ArrayList<>(frontier.size() + deltas.size() * 2);
+        long size = 4 + 4 + 8 + 8 + 4 + 4 + frontier.size() * 4L + deltas.size() * 4L;
+        for(final Page p: frontier) size += 2 + add(strings, p.url).length;
+        for(final WcEntry e: deltas) {
+            size += 2 + add(strings, e.getSource().getKey()).length + 2 + add(strings, e.getWord()).length;
+        }
+
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(epoch).putLong(visitedCount)
+                .putInt(frontier.size()).putInt(deltas.size());
+            int s = 0;
+            for(final Page p: frontier) {
+                buf.putInt(p.depth);
+                putString(buf, strings.get(s++));
+            }
+            for(final WcEntry e: deltas) {
+                putString(buf, strings.get(s++));
+                putString(buf, strings.get(s++));
+                buf.putInt(e.getCount());
+            }
+            buf.force();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps and parses the checkpoint, null if there is no such file.
+     */
+    public static Checkpoint read(final File file) throws IOException {
+        if(!file.exists()) return null;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if(buf.getInt() != MAGIC || buf.getInt() != VERSION) throw new IOException("Not a v" + VERSION
+                + " checkpoint: " + file);
+            final long epoch = buf.getLong(), visitedCount = buf.getLong();
+            final int frontierCount = buf.getInt(), deltaCount = buf.getInt();
+            final List<Page> frontier = new ArrayList<>(frontierCount);
+            for(int i = 0; i < frontierCount; i++) {
+                final int depth = buf.getInt();
+                frontier.add(new Page(getString(buf), depth));
+            }
+            final List<WcEntry> deltas = new ArrayList<>(deltaCount);
+            final Map<String, WordSource> sources = new HashMap<>();
+            for(int i = 0; i < deltaCount; i++) {
+                final String site = getString(buf);
+                WordSource src = sources.get(site);
+                if(src == null) sources.put(site, src = new WordSource(site));
+                deltas.add(new WcEntry(src, getString(buf), buf.getInt()));
+            }
+            return new Checkpoint(epoch, visitedCount, Collections.unmodifiableList(frontier),
+                Collections.unmodifiableList(deltas));
+        }
+    }
+
+    private static byte[] add(final List<byte[]> strings, final String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > 0xffff) { // hardly a crawlable URL anyway, cut on a char boundary
+            int len = 0xffff;
+            while((bytes[len] & 0xc0) == 0x80) len--;
+            bytes = Arrays.copyOf(bytes, len);
+        }
+        strings.add(bytes);
+        return bytes;
+    }
+
+    private static void putString(final MappedByteBuffer buf, final byte[] bytes) {
+        buf.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(final MappedByteBuffer buf) {
+        final byte[] bytes = new byte[buf.getShort() & 0xffff];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
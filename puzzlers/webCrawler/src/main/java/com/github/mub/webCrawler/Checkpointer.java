@@ -0,0 +1,210 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Makes a crawl restartable: every flush of the accumulator becomes a {@link Checkpoint} epoch.
+ * <p>
+ * The pages finish under the crawler's epoch lock held for reading, the checkpoint takes it for writing just long
+ * enough to swap the counter tables, copy the references of the pending pages with the positions of the spill files
+ * and note the length of the {@link FingerprintLog}; the entries and the page list are made, the spill files read
+ * and the files written after the lock is released. The store records the epoch in the same transaction as the
+ * deltas, so on {@code --resume} the deltas of the last checkpoint are applied only if the store missed them,
+ * and every page is counted exactly once.
+ * </p>
+ * <p>
+ * The {@link PageValidators} of an incremental crawl are taken with the deltas: the changes of each epoch are
+ * appended to a journal before the checkpoint is written, and on the next start the epochs the store has are
+ * folded into the validators file, so that a re-crawl diffs the pages against what was counted.
+ * </p>
+ * @author michaelb
+ */
+public class Checkpointer implements Closeable {
+    private static final Logger L = getLogger(Checkpointer.class);
+
+    public static final String CHECKPOINT_FILE = "checkpoint.bin";
+    public static final String VISITED_FILE = "visited.log";
+    public static final String VALIDATORS_JOURNAL = "validators.log";
+
+    private final File checkpointFile;
+    private final Checkpoint resumed;
+    private final FingerprintLog log;
+    private final File validatorsJournal;
+    private volatile Crawler crawler;
+    private long epoch;
+    private PageValidators validators;
+    private File validatorsFile;
+    /** The validators' changes taken and not journaled yet, the flusher's. */
+    private Map<String, PageValidators.Entry> validatorChanges;
+    private DataOutputStream journal;
+    private FileOutputStream journalFile;
+
+    /**
+     * @param resume true to pick up the last checkpoint in the directory, false to start afresh.
+     */
+    public Checkpointer(final File dir, final boolean resume) throws IOException {
+        if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+        checkpointFile = new File(dir, CHECKPOINT_FILE);
+        validatorsJournal = new File(dir, VALIDATORS_JOURNAL);
+        final File visitedFile = new File(dir, VISITED_FILE);
+        if(resume) {
+            resumed = Checkpoint.read(checkpointFile);
+            if(resumed == null) throw new IOException("No checkpoint to resume from in " + dir);
+            L.info("Resuming epoch {}: {} visited, {} pending", resumed.getEpoch(), resumed.getVisitedCount(),
+                resumed.getFrontier().size());
+        }
+        else {
+            resumed = null;
+            if(checkpointFile.exists() && !checkpointFile.delete() || visitedFile.exists() && !visitedFile.delete()) {
+                throw new IOException("Could not clear the previous checkpoint in " + dir);
+            }
+        }
+        log = new FingerprintLog(visitedFile, resumed == null ? 0 : resumed.getVisitedCount());
+        epoch = resumed == null ? 0 : resumed.getEpoch();
+    }
+
+    /**
+     * The checkpoint resumed from, null if started afresh.
+     */
+    public Checkpoint getResumed() {
+        return resumed;
+    }
+
+    /**
+     * The log to back the {@link VisitedUrls} with.
+     */
+    public FingerprintLog getVisitedLog() {
+        return log;
+    }
+
+    public void attach(final Crawler crawler) {
+        this.crawler = crawler;
+    }
+
+    /**
+     * Journals the changes of the validators with the epochs, before the {@link #recover(FrequencyStore)}.
+     * @param file where the validators are saved, the journal is folded into.
+     */
+    public void setValidators(final PageValidators validators, final File file) {
+        this.validators = validators;
+        this.validatorsFile = file;
+        validators.trackChanges();
+    }
+
+    /**
+     * Applies the deltas of the resumed checkpoint unless the store has them already, then folds the journaled
+     * validators of the epochs the store has into the validators file.
+     */
+    public void recover(final FrequencyStore store) throws IOException {
+        if(resumed != null) {
+            final long stored = store.lastEpoch();
+            if(stored == FrequencyStore.NO_EPOCH) {
+                L.warn("No epoch in the store, applying epoch {} again may double its counts", resumed.getEpoch());
+            }
+            if(stored < resumed.getEpoch()) store.store(resumed.getDeltas(), resumed.getEpoch());
+        }
+        if(validators == null || !validatorsJournal.exists()) return;
+        // resumed, the store has the checkpoint's epoch by now; afresh, the last one of the previous run it has:
+        final int folded = validators.replay(validatorsJournal, resumed != null ? resumed.getEpoch()
+            : store.lastEpoch());
+        if(folded > 0) validators.save(validatorsFile);
+        if(!validatorsJournal.delete()) throw new IOException("Could not clear " + validatorsJournal);
+        L.info("Folded {} epochs of the validators journal into {}", folded, validatorsFile);
+    }
+
+    /**
+     * Drains the accumulator and captures the crawl state, atomically with respect to the page completions.
+     */
+    Checkpoint snapshot(final WordAccumulator words) {
+        final Crawler c = crawler;
+        if(c == null) {
+            takeValidatorChanges();
+            return new Checkpoint(++epoch, log.size(), Collections.<Checkpoint.Page>emptyList(), words.drain());
+        }
+        final Lock lock = c.epochLock().writeLock();
+        final long began = System.nanoTime();
+        final WordAccumulator.Swapped swapped;
+        final Frontier.Snapshot pending;
+        final long visitedCount;
+        lock.lock();
+        try {
+            swapped = words.swap();
+            pending = c.frontier();
+            visitedCount = log.size();
+            takeValidatorChanges();
+        }
+        finally {
+            lock.unlock();
+        }
+        L.debug("Epoch {} snapshot held the crawlers for {} us", epoch + 1, (System.nanoTime() - began) / 1000);
+        final List<WcEntry> deltas = swapped.toEntries();
+        final List<Checkpoint.Page> frontier;
+        try {
+            frontier = pending.pages();
+        }
+        catch (RuntimeException x) {
+            words.retry(deltas); // swapped out already, the flush would lose them
+            throw x;
+        }
+        return new Checkpoint(++epoch, visitedCount, frontier, deltas);
+    }
+
+    /**
+     * Swaps the validators' changes out; the ones of a checkpoint that failed to be written stay, under the newer.
+     */
+    private void takeValidatorChanges() {
+        if(validators == null) return;
+        final Map<String, PageValidators.Entry> taken = validators.takeChanges();
+        if(validatorChanges == null) validatorChanges = taken;
+        else validatorChanges.putAll(taken);
+    }
+
+    /**
+     * Makes the snapshot durable, the visited fingerprints and the validators' changes first.
+     */
+    void write(final Checkpoint checkpoint) throws IOException {
+        log.force();
+        if(validatorChanges != null && !validatorChanges.isEmpty()) {
+            if(journal == null) {
+                journalFile = new FileOutputStream(validatorsJournal, true);
+                journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+            }
+            final long length = journalFile.getChannel().position();
+            try {
+                PageValidators.appendChanges(journal, checkpoint.getEpoch(), validatorChanges);
+                journal.flush();
+                journalFile.getChannel().force(false);
+            }
+            catch (IOException x) { // no record cut short in the middle of the journal
+                journal = null;
+                journalFile.getChannel().truncate(length);
+                journalFile.close();
+                throw x;
+            }
+        }
+        validatorChanges = null;
+        checkpoint.write(checkpointFile);
+    }
+
+    @Override public void close() throws IOException {
+        try {
+            if(journal != null) journal.close();
+        }
+        finally {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.mub.webCrawler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent set of non-zero {@code long}s: segmented open addressing with linear probing over primitive arrays,
+ * 8 bytes per slot and no per-entry objects. The segments are sized for a load of about 0.7 at the expected number
+ * of elements, about 11 bytes each, and double when 3/4 full; the slot is picked by scaling the value's low bits to
+ * the capacity, so that it needs not be a power of two.
+ * <p>
+ * Lookups are lock-free. Inserts CAS into an empty slot and share the segment's lock in the read mode,
+ * so they only ever wait for the rare resize of their own segment.
+ * </p>
+ * @author michaelb
+ */
+public class ConcurrentLongSet {
+
+    private static final int SEGMENTS = 64;
+    private static final int SEGMENT_SHIFT = 64 - 6;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 30;
+    private static final int ADDED = 1, PRESENT = 0, FULL = -1;
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private volatile AtomicLongArray slots;
+        private final AtomicInteger size = new AtomicInteger();
+
+        Segment(final int capacity) {
+            slots = new AtomicLongArray(capacity);
+        }
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * @param expected the expected number of elements, the set grows past it as needed.
+     */
+    public ConcurrentLongSet(final long expected) {
+        final long perSegment = (expected + SEGMENTS - 1) / SEGMENTS;
+        final long slots = perSegment * 4 / 3 + perSegment / 16 + 1; // a load of about 0.7, under the 3/4 growth
+        final int capacity = (int) Math.min(MAX_SEGMENT_CAPACITY, Math.max(MIN_SEGMENT_CAPACITY, slots));
+        for(int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(capacity);
+    }
+
+    public boolean contains(final long value) {
+        final AtomicLongArray slots = segmentOf(value).slots;
+        final int capacity = slots.length();
+        // bounded: a table the concurrent inserts filled up before its resize has no empty slot to stop at
+        for(int i = indexOf(value, capacity), probes = 0; probes < capacity; i = next(i, capacity), probes++) {
+            final long v = slots.get(i);
+            if(v == value) return true;
+            if(v == 0) return false;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the value was not there, i.e. this caller is the one who added it.
+     */
+    public boolean add(final long value) {
+        if(value == 0) throw new IllegalArgumentException("Zero is reserved");
+        final Segment seg = segmentOf(value);
+        while(true) {
+            final int outcome;
+            final long stamp = seg.lock.readLock();
+            try {
+                outcome = insert(seg.slots, value);
+                if(outcome == PRESENT) return false;
+                if(outcome == ADDED && !isCrowded(seg.size.incrementAndGet(), seg.slots.length())) return true;
+            }
+            finally {
+                seg.lock.unlockRead(stamp);
+            }
+            grow(seg);
+            if(outcome == ADDED) return true;
+        }
+    }
+
+    private static int insert(final AtomicLongArray slots, final long value) {
+        final int capacity = slots.length();
+        for(int i = indexOf(value, capacity), probes = 0; probes < capacity; i = next(i, capacity), probes++) {
+            final long v = slots.get(i);
+            if(v == value) return PRESENT;
+            if(v == 0) {
+                if(slots.compareAndSet(i, 0, value)) return ADDED;
+                if(slots.get(i) == value) return PRESENT; // lost the race to the same value
+            }
+        }
+        return FULL; // only when the concurrent inserts have outrun the resize
+    }
+
+    private static boolean isCrowded(final int size, final int capacity) {
+        return size * 4L >= capacity * 3L;
+    }
+
+    public long size() {
+        long result = 0;
+        for(final Segment seg: segments) result += seg.size.get();
+        return result;
+    }
+
+    /**
+     * Heap used by the slots, in bytes.
+     */
+    public long footprint() {
+        long result = 0;
+        for(final Segment seg: segments) result += seg.slots.length() * 8L;
+        return result;
+    }
+
+    /**
+     * Doubles the segment if it is still over 3/4 full once the writers are out.
+     */
+    private static void grow(final Segment seg) {
+        final long stamp = seg.lock.writeLock();
+        try {
+            final AtomicLongArray old = seg.slots;
+            if(!isCrowded(seg.size.get(), old.length())) return; // someone else has grown it
+            if(old.length() >= MAX_SEGMENT_CAPACITY) throw new IllegalStateException("Set segment full");
+            final AtomicLongArray grown = new AtomicLongArray((int) Math.min(MAX_SEGMENT_CAPACITY, old.length() * 2L));
+            final int capacity = grown.length();
+            for(int j = 0; j < old.length(); j++) {
+                final long v = old.get(j);
+                if(v == 0) continue;
+                int i = indexOf(v, capacity);
+                while(grown.get(i) != 0) i = next(i, capacity);
+                grown.set(i, v);
+            }
+            seg.slots = grown;
+        }
+        finally {
+            seg.lock.unlockWrite(stamp);
+        }
+    }
+
+    private Segment segmentOf(final long value) {
+        return segments[(int) (value >>> SEGMENT_SHIFT)];
+    }
+
+    /**
+     * The top bits pick the segment, the bottom 32 the slot: scaled to the capacity, no modulo.
+     */
+    private static int indexOf(final long value, final int capacity) {
+        return (int) ((value & 0xFFFFFFFFL) * capacity >>> 32);
+    }
+
+    private static int next(final int i, final int capacity) {
+        return i + 1 == capacity ? 0 : i + 1;
+    }
+}
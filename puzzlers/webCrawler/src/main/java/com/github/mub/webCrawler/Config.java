@@ -1,9 +1,262 @@
 package com.github.mub.webCrawler;
 
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
+ * The settings as they come from the YAML file, the keys are the property names:
+ * <pre>
+ * maxDepth: 3
+ * wordSpec: \w{2,}
+ * ignoredUrls: ['^https:\/\/.+$']
+ * ignoredWords: [the, off, out]
+ * flushMillis: 2000
+ * </pre>
+ * Mutable and not thread-safe, the running crawl sees it through a {@link ConfigSnapshot}.
  * @author michaelb
  */
 public class Config {
 
     private String gateway;
+
+    /** Links away from the start page to follow, zero for the start page only. */
+    private int maxDepth = 2;
+    /** What constitutes a word. */
+    private String wordSpec = "\\w{1,}";
+    /** RegExes of the URLs not to enter. */
+    private List<String> ignoredUrls = new ArrayList<>();
+    /** Words not to count, such as "the", "off", "out". */
+    private List<String> ignoredWords = new ArrayList<>();
+    /** Pages processed at the same time overall: the worker count. */
+    private int maxInFlight = 64;
+    /** Pages of one {@code host:port} processed at the same time. */
+    private int maxPerHost = 4;
+    /** Odometer: flush after about this many word encounters. */
+    private int flushEncounters = 100000;
+    /** Odometer: flush at least this often. */
+    private long flushMillis = 5000;
+    private String dbUrl = JdbcFrequencyStore.DEFAULT_URL;
+    /** The sites' counters are written by this many parallel writers, each on a connection of its own. */
+    private int shards = 4;
+    /** Rows per JDBC batch round trip. */
+    private int batchSize = JdbcFrequencyStore.DEFAULT_BATCH_SIZE;
+    /** Discovered URLs kept in memory while they wait for their turn, the rest are spilled to the disk. */
+    private int queueCapacity = Frontier.DEFAULT_CAPACITY;
+    /** Counters accumulated between the flushes before the crawlers are held off, zero for no bound. */
+    private int maxBacklog = 1000000;
+    /** Count only about the top this many words of each site, in a bounded memory; zero for the exact counts. */
+    private int topWords;
+    /** The error bound of the top words' approximate counts, as a fraction of all the encounters. */
+    private double sketchError = 0.00001;
+    /** The probability that the error of the top words' approximate counts is within the bound. */
+    private double sketchConfidence = 0.99;
+    /** How often to log the crawl metrics line, zero for never; they are on JMX either way. */
+    private long metricsMillis = 10000;
+    /** Sizing hint for the visited URL set, it grows past it as needed. */
+    private long expectedUrls = 1000000;
+    /** Where to remember the pages' ETags and Last-Modified for the conditional re-crawls, none if null. */
+    private String validatorsFile;
+    /** Re-crawls count the pages' changes since the validators were saved instead of adding the pages up again. */
+    private boolean incremental;
+    /** Where to keep the checkpoints for {@code --resume}, none if null. */
+    private String checkpointDir;
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(final int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public String getWordSpec() {
+        return wordSpec;
+    }
+
+    public void setWordSpec(final String wordSpec) {
+        this.wordSpec = wordSpec;
+    }
+
+    /**
+     * Reads the YAML file, the settings it does not mention keep their defaults.
+     */
+    public static Config load(final File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    public static Config load(final Reader yaml) throws IOException {
+        try {
+            final Config result = new Yaml(new Constructor(Config.class, new LoaderOptions())).load(yaml);
+            return result == null ? new Config() : result;
+        }
+        catch (YAMLException | ClassCastException x) {
+            throw new IOException("Invalid configuration: " + x.getMessage(), x);
+        }
+    }
+
+    public List<String> getIgnoredUrls() {
+        return ignoredUrls;
+    }
+
+    public void setIgnoredUrls(final List<String> ignoredUrls) {
+        this.ignoredUrls = ignoredUrls;
+    }
+
+    public List<String> getIgnoredWords() {
+        return ignoredWords;
+    }
+
+    public void setIgnoredWords(final List<String> ignoredWords) {
+        this.ignoredWords = ignoredWords;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(final int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    public void setMaxPerHost(final int maxPerHost) {
+        this.maxPerHost = maxPerHost;
+    }
+
+    public int getFlushEncounters() {
+        return flushEncounters;
+    }
+
+    public void setFlushEncounters(final int flushEncounters) {
+        this.flushEncounters = flushEncounters;
+    }
+
+    public long getFlushMillis() {
+        return flushMillis;
+    }
+
+    public void setFlushMillis(final long flushMillis) {
+        this.flushMillis = flushMillis;
+    }
+
+    public String getDbUrl() {
+        return dbUrl;
+    }
+
+    public void setDbUrl(final String dbUrl) {
+        this.dbUrl = dbUrl;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(final int shards) {
+        this.shards = shards;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(final int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    public void setMaxBacklog(final int maxBacklog) {
+        this.maxBacklog = maxBacklog;
+    }
+
+    public int getTopWords() {
+        return topWords;
+    }
+
+    public void setTopWords(final int topWords) {
+        this.topWords = topWords;
+    }
+
+    public double getSketchError() {
+        return sketchError;
+    }
+
+    public void setSketchError(final double sketchError) {
+        this.sketchError = sketchError;
+    }
+
+    public double getSketchConfidence() {
+        return sketchConfidence;
+    }
+
+    public void setSketchConfidence(final double sketchConfidence) {
+        this.sketchConfidence = sketchConfidence;
+    }
+
+    public long getMetricsMillis() {
+        return metricsMillis;
+    }
+
+    public void setMetricsMillis(final long metricsMillis) {
+        this.metricsMillis = metricsMillis;
+    }
+
+    public long getExpectedUrls() {
+        return expectedUrls;
+    }
+
+    public void setExpectedUrls(final long expectedUrls) {
+        this.expectedUrls = expectedUrls;
+    }
+
+    public String getCheckpointDir() {
+        return checkpointDir;
+    }
+
+    public void setCheckpointDir(final String checkpointDir) {
+        this.checkpointDir = checkpointDir;
+    }
+
+    public String getValidatorsFile() {
+        return validatorsFile;
+    }
+
+    public void setValidatorsFile(final String validatorsFile) {
+        this.validatorsFile = validatorsFile;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+    }
 }
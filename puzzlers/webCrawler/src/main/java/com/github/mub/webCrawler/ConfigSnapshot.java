@@ -0,0 +1,212 @@
+package com.github.mub.webCrawler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable, validated copy of a {@link Config}, with the regular expressions compiled.
+ * <p>
+ * A new snapshot replaces the old one in a single volatile write, so the crawlers read the settings without locking
+ * and never see half of an update.
+ * </p>
+ * @author michaelb
+ */
+public final class ConfigSnapshot {
+    private final int maxDepth;
+    private final String wordSpec;
+    private final WordSpec compiledWordSpec;
+    private final List<String> ignoredUrls;
+    private final UrlFilter urlFilter;
+    private final Set<String> ignoredWords;
+    private final StopWords stopWords;
+    private final int maxInFlight;
+    private final int maxPerHost;
+    private final int flushEncounters;
+    private final long flushMillis;
+    private final String dbUrl;
+    private final int shards;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int maxBacklog;
+    private final int topWords;
+    private final double sketchError;
+    private final double sketchConfidence;
+    private final long metricsMillis;
+    private final long expectedUrls;
+    private final String checkpointDir;
+    private final String validatorsFile;
+    private final boolean incremental;
+
+    /**
+     * @throws IllegalArgumentException if a setting is out of range or a regular expression does not compile.
+     */
+    public ConfigSnapshot(final Config config) {
+        maxDepth = atLeast("maxDepth", config.getMaxDepth(), 0);
+        maxInFlight = atLeast("maxInFlight", config.getMaxInFlight(), 1);
+        maxPerHost = atLeast("maxPerHost", config.getMaxPerHost(), 1);
+        shards = atLeast("shards", config.getShards(), 1);
+        batchSize = atLeast("batchSize", config.getBatchSize(), 1);
+        queueCapacity = atLeast("queueCapacity", config.getQueueCapacity(), 1);
+        maxBacklog = config.getMaxBacklog();
+        topWords = atLeast("topWords", config.getTopWords(), 0);
+        sketchError = config.getSketchError();
+        sketchConfidence = config.getSketchConfidence();
+        if(topWords > 0) CountMinSketch.check(sketchError, sketchConfidence);
+        metricsMillis = config.getMetricsMillis();
+        flushEncounters = config.getFlushEncounters();
+        flushMillis = config.getFlushMillis();
+        expectedUrls = config.getExpectedUrls();
+        dbUrl = config.getDbUrl();
+        checkpointDir = config.getCheckpointDir();
+        validatorsFile = config.getValidatorsFile();
+        incremental = config.isIncremental();
+        if(incremental && validatorsFile == null) {
+            throw new IllegalArgumentException("Incremental re-crawls need a validatorsFile");
+        }
+        wordSpec = config.getWordSpec();
+        compiledWordSpec = WordSpec.compile(wordSpec);
+        ignoredUrls = Collections.unmodifiableList(new ArrayList<>(nonNull(config.getIgnoredUrls())));
+        urlFilter = new UrlFilter(ignoredUrls);
+        final Set<String> words = new HashSet<>();
+        for(final String word: nonNull(config.getIgnoredWords())) words.add(word.toLowerCase(Locale.ROOT));
+        ignoredWords = Collections.unmodifiableSet(words);
+        stopWords = StopWords.of(words);
+    }
+
+    private static int atLeast(final String name, final int value, final int min) {
+        if(value < min) throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        return value;
+    }
+
+    private static List<String> nonNull(final List<String> list) {
+        return list == null ? Collections.<String>emptyList() : list;
+    }
+
+    /**
+     * The settings that differ and can't change on a running crawl.
+     */
+    public List<String> restartNeeded(final ConfigSnapshot other) {
+        final List<String> result = new ArrayList<>();
+        if(!wordSpec.equals(other.wordSpec)) result.add("wordSpec");
+        if(!String.valueOf(dbUrl).equals(String.valueOf(other.dbUrl))) result.add("dbUrl");
+        if(shards != other.shards) result.add("shards");
+        if(!String.valueOf(checkpointDir).equals(String.valueOf(other.checkpointDir))) result.add("checkpointDir");
+        if(!String.valueOf(validatorsFile).equals(String.valueOf(other.validatorsFile))) result.add("validatorsFile");
+        if(expectedUrls != other.expectedUrls) result.add("expectedUrls");
+        if(metricsMillis != other.metricsMillis) result.add("metricsMillis");
+        if(incremental != other.incremental) result.add("incremental");
+        if(topWords != other.topWords) result.add("topWords");
+        if(sketchError != other.sketchError) result.add("sketchError");
+        if(sketchConfidence != other.sketchConfidence) result.add("sketchConfidence");
+        return result;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public String getWordSpec() {
+        return wordSpec;
+    }
+
+    public WordSpec getCompiledWordSpec() {
+        return compiledWordSpec;
+    }
+
+    public List<String> getIgnoredUrls() {
+        return ignoredUrls;
+    }
+
+    public UrlFilter getUrlFilter() {
+        return urlFilter;
+    }
+
+    /**
+     * Lower case.
+     */
+    public Set<String> getIgnoredWords() {
+        return ignoredWords;
+    }
+
+    /**
+     * The ignored words, to be matched against the tokens before they are made into strings.
+     */
+    public StopWords getStopWords() {
+        return stopWords;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    public int getFlushEncounters() {
+        return flushEncounters;
+    }
+
+    public long getFlushMillis() {
+        return flushMillis;
+    }
+
+    public String getDbUrl() {
+        return dbUrl;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    /**
+     * Zero for the exact counts.
+     */
+    public int getTopWords() {
+        return topWords;
+    }
+
+    public double getSketchError() {
+        return sketchError;
+    }
+
+    public double getSketchConfidence() {
+        return sketchConfidence;
+    }
+
+    public long getMetricsMillis() {
+        return metricsMillis;
+    }
+
+    public long getExpectedUrls() {
+        return expectedUrls;
+    }
+
+    public String getCheckpointDir() {
+        return checkpointDir;
+    }
+
+    public String getValidatorsFile() {
+        return validatorsFile;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+}
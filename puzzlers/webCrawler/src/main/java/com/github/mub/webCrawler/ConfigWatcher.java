@@ -0,0 +1,156 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Keeps the current {@link ConfigSnapshot} of a YAML file and republishes it when the file changes.
+ * <p>
+ * A daemon thread watches the file's directory; on a change it parses and validates the file into a new snapshot
+ * and only then swaps it in, so a broken edit leaves the crawl running on the last good settings.
+ * The listeners are called on the watcher thread.
+ * </p>
+ * @author michaelb
+ */
+public class ConfigWatcher implements Closeable {
+    private static final Logger L = getLogger(ConfigWatcher.class);
+
+    /** Editors write a file in several steps, let them finish. */
+    private static final long SETTLE_MILLIS = 100;
+
+    /**
+     * Told about every snapshot swapped in after the first.
+     */
+    public interface Listener {
+        public void configChanged(final ConfigSnapshot previous, final ConfigSnapshot current);
+    }
+
+    private final File file;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ConfigSnapshot current;
+    private WatchService watcher;
+    private Thread thread;
+
+    /**
+     * Loads the file, does not watch it yet.
+     * @throws IOException if the file can't be read or is not a valid configuration.
+     */
+    public ConfigWatcher(final File file) throws IOException {
+        this.file = file.getAbsoluteFile();
+        current = load();
+    }
+
+    private ConfigSnapshot load() throws IOException {
+        final Config config = Config.load(file);
+        try {
+            return new ConfigSnapshot(config);
+        }
+        catch (IllegalArgumentException x) {
+            throw new IOException("Invalid configuration in " + file + ": " + x.getMessage(), x);
+        }
+    }
+
+    /**
+     * The settings in effect, read it afresh rather than caching it.
+     */
+    public ConfigSnapshot get() {
+        return current;
+    }
+
+    public void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Re-reads the file now.
+     * @return true if a new snapshot was swapped in, false if the file is broken and the old one stays.
+     */
+    public synchronized boolean reload() {
+        final ConfigSnapshot next;
+        try {
+            next = load();
+        }
+        catch (IOException x) {
+            L.error("Configuration not reloaded, keeping the previous one", x);
+            return false;
+        }
+        final ConfigSnapshot previous = current;
+        current = next;
+        final List<String> ignored = previous.restartNeeded(next);
+        if(!ignored.isEmpty()) L.warn("Changes to {} take effect after a restart", ignored);
+        L.info("Configuration reloaded from {}", file);
+        for(final Listener listener: listeners) {
+            try {
+                listener.configChanged(previous, next);
+            }
+            catch (RuntimeException x) {
+                L.error("Listener failed to apply the configuration", x);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts watching the file for changes.
+     */
+    public synchronized void start() throws IOException {
+        if(thread != null) return;
+        final Path dir = file.getParentFile().toPath();
+        watcher = FileSystems.getDefault().newWatchService();
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        thread = new Thread(new Runnable() {
+            @Override public void run() {
+                watch();
+            }
+        }, "wc-config");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        final Path name = file.toPath().getFileName();
+        try {
+            while(true) {
+                final WatchKey key = watcher.take();
+                boolean changed = false;
+                for(final WatchEvent<?> event: key.pollEvents()) {
+                    if(name.equals(event.context())) changed = true;
+                }
+                if(changed) {
+                    TimeUnit.MILLISECONDS.sleep(SETTLE_MILLIS);
+                    key.pollEvents(); // the rest of the same write
+                    reload();
+                }
+                if(!key.reset()) {
+                    L.warn("Stopped watching {}, the directory is gone", file);
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException x) {
+            // closed
+        }
+    }
+
+    @Override public synchronized void close() throws IOException {
+        if(thread == null) return;
+        watcher.close();
+        thread.interrupt();
+        thread = null;
+    }
+}
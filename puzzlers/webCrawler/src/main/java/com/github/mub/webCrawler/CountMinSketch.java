@@ -0,0 +1,93 @@
+package com.github.mub.webCrawler;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-Min Sketch: approximate counts of any number of keys in a fixed space, never below the true counts.
+ * <p>
+ * With {@code width = e / epsilon} and {@code depth = ln(1 / (1 - confidence))} an estimate exceeds the true count
+ * by more than {@code epsilon} times the total of all the counts with a probability under {@code 1 - confidence}.
+ * The keys come in as 64 bit hashes; the row indexes are derived from the two halves of the hash
+ * (Kirsch-Mitzenmacher), so a key costs one hash whatever the depth. Thread-safe, lock free.
+ * </p>
+ * @author michaelb
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final int mask;
+    private final AtomicIntegerArray cells;
+
+    /**
+     * @param epsilon    the error bound, as a fraction of the total count.
+     * @param confidence the probability that the error is within the bound.
+     */
+    public CountMinSketch(final double epsilon, final double confidence) {
+        check(epsilon, confidence);
+        width = Integer.highestOneBit((int) Math.ceil(Math.E / epsilon) - 1 << 1 | 1);
+        depth = Math.max(1, (int) Math.ceil(Math.log(1 / (1 - confidence))));
+        mask = width - 1;
+        cells = new AtomicIntegerArray(width * depth);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the sketch can't be made of the parameters.
+     */
+    static void check(final double epsilon, final double confidence) {
+        if(!(epsilon > 0 && epsilon < 1) || !(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Invalid sketch error " + epsilon + " or confidence " + confidence);
+        }
+        if(Math.ceil(Math.E / epsilon) > 1 << 28) {
+            throw new IllegalArgumentException("Sketch error too small: " + epsilon);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * The bytes of the counters.
+     */
+    public long footprint() {
+        return 4L * width * depth;
+    }
+
+    /**
+     * Adds the count to the key.
+     * @return the estimate of the key's count after the addition.
+     */
+    public int add(final long hash, final int count) {
+        final int h1 = (int) hash, h2 = (int) (hash >>> 32) | 1;
+        int min = Integer.MAX_VALUE;
+        for(int row = 0; row < depth; row++) {
+            final int cell = row * width + (h1 + row * h2 & mask);
+            min = Math.min(min, saturatedAdd(cell, count));
+        }
+        return min;
+    }
+
+    /**
+     * The estimate of the key's count: the true count or more.
+     */
+    public int estimate(final long hash) {
+        final int h1 = (int) hash, h2 = (int) (hash >>> 32) | 1;
+        int min = Integer.MAX_VALUE;
+        for(int row = 0; row < depth; row++) min = Math.min(min, cells.get(row * width + (h1 + row * h2 & mask)));
+        return min;
+    }
+
+    private int saturatedAdd(final int cell, final int count) {
+        for(;;) {
+            final int old = cells.get(cell);
+            final long sum = (long) old + count;
+            final int next = sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+            if(old == next || cells.compareAndSet(cell, old, next)) return next;
+        }
+    }
+}
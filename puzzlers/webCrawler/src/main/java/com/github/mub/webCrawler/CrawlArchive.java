@@ -0,0 +1,258 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Compact, append-only archive of the fetched pages, WARC-like: a {@link Recorder} appends the responses as the crawl
+ * fetches them, the {@link ArchivePageProcessor} replays them through the parse and count pipeline with no network.
+ * <p>
+ * The file is a header, {@code "WCRA"} and the version, then the records, each one:
+ * {@code int length} of the rest of the record, {@code short status}, the URL and the {@code Content-Type} as
+ * {@code short} length prefixed UTF-8, {@code int} body length and the body bytes, as served with the transfer and
+ * content encodings undone. A record cut short by a crash is ignored by the reader and cut off by the next recorder.
+ * </p>
+ * <p>
+ * The reader maps the file and indexes the records by the normalized URL, the last record of a URL wins; the bodies
+ * are read-only views of the mapping, nothing is copied. Up to 2 GB per archive.
+ * </p>
+ * Thread-safe once opened.
+ * @author michaelb
+ */
+public final class CrawlArchive {
+    private static final Logger L = getLogger(CrawlArchive.class);
+
+    private static final int MAGIC = 0x57435241; // WCRA
+    private static final short VERSION = 1;
+    private static final int HEADER = 6;
+
+    /**
+     * One recorded response.
+     */
+    public static final class Page {
+        private final String url;
+        private final int status;
+        private final String contentType;
+        private final ByteBuffer body;
+
+        Page(final String url, final int status, final String contentType, final ByteBuffer body) {
+            this.url = url;
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Null if none.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * A read-only view of the body, a new one per call.
+         */
+        public ByteBuffer getBody() {
+            return body.duplicate();
+        }
+    }
+
+    /**
+     * Appends the responses to an archive, created if none. Thread-safe.
+     */
+    public static final class Recorder implements Closeable {
+        private final RandomAccessFile file;
+        private final DataOutputStream out;
+        private long records;
+
+        public Recorder(final File archive) throws IOException {
+            file = new RandomAccessFile(archive, "rw");
+            final FileChannel channel = file.getChannel();
+            try {
+                final long valid = file.length() == 0 ? 0 : validLength(channel);
+                if(valid < file.length()) {
+                    L.warn("Cutting {} bytes of an unfinished record off {}", file.length() - valid, archive);
+                    channel.truncate(valid);
+                }
+                channel.position(valid);
+            }
+            catch (IOException x) {
+                file.close();
+                throw x;
+            }
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            if(file.length() == 0) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+            }
+        }
+
+        /**
+         * @param contentType null if none.
+         */
+        public synchronized void record(final String url, final int status, final String contentType,
+                                        final byte[] body, final int length) throws IOException {
+            final byte[] urlBytes = url.getBytes(StandardCharsets.UTF_8);
+            final byte[] typeBytes = (contentType == null ? "" : contentType).getBytes(StandardCharsets.UTF_8);
+            if(urlBytes.length > Short.MAX_VALUE || typeBytes.length > Short.MAX_VALUE) {
+                throw new IOException("URL or Content-Type too long to record: " + url);
+            }
+            out.writeInt(2 + 2 + urlBytes.length + 2 + typeBytes.length + 4 + length);
+            out.writeShort(status);
+            out.writeShort(urlBytes.length);
+            out.write(urlBytes);
+            out.writeShort(typeBytes.length);
+            out.write(typeBytes);
+            out.writeInt(length);
+            out.write(body, 0, length);
+            records++;
+        }
+
+        /**
+         * The records appended by this recorder.
+         */
+        public synchronized long getRecords() {
+            return records;
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override public synchronized void close() throws IOException {
+            try {
+                out.flush();
+            }
+            finally {
+                file.close();
+            }
+        }
+    }
+
+    private final MappedByteBuffer map;
+    /** The offsets of the records, in the recording order. */
+    private final int[] offsets;
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private CrawlArchive(final MappedByteBuffer map, final int[] offsets) {
+        this.map = map;
+        this.offsets = offsets;
+        for(int i = 0; i < offsets.length; i++) {
+            final Page page = read(offsets[i]);
+            try {
+                index.put(UrlNormalizer.normalize(new URL(page.getUrl())), i);
+            }
+            catch (MalformedURLException x) {
+                L.warn("Skipping the record of {}: {}", page.getUrl(), x.getMessage());
+            }
+        }
+    }
+
+    public static CrawlArchive open(final File archive) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+            final FileChannel channel = file.getChannel();
+            if(channel.size() > Integer.MAX_VALUE) throw new IOException("Archive over 2 GB: " + archive);
+            final long valid = validLength(channel);
+            if(valid < channel.size()) L.warn("Ignoring an unfinished record at the end of {}", archive);
+            final MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, valid);
+            final List<Integer> offsets = new ArrayList<>();
+            for(int at = HEADER; at < valid; at += 4 + map.getInt(at)) offsets.add(at);
+            final int[] result = new int[offsets.size()];
+            for(int i = 0; i < result.length; i++) result[i] = offsets.get(i);
+            return new CrawlArchive(map, result);
+        }
+    }
+
+    /**
+     * The length of the header and the complete records.
+     */
+    private static long validLength(final FileChannel channel) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(HEADER);
+        channel.position(0);
+        while(buf.hasRemaining() && channel.read(buf) >= 0);
+        if(buf.hasRemaining() || buf.getInt(0) != MAGIC) throw new IOException("Not a crawl archive");
+        if(buf.getShort(4) != VERSION) throw new IOException("Unsupported archive version " + buf.getShort(4));
+        final long size = channel.size();
+        final ByteBuffer length = ByteBuffer.allocate(4);
+        long at = HEADER;
+        while(at + 4 <= size) {
+            length.clear();
+            while(length.hasRemaining() && channel.read(length, at + length.position()) >= 0);
+            final long next = at + 4 + length.getInt(0);
+            if(length.getInt(0) < 0 || next > size) break;
+            at = next;
+        }
+        return at;
+    }
+
+    private Page read(int at) {
+        final ByteBuffer buf = map.duplicate();
+        at += 4;
+        final int status = buf.getShort(at) & 0xFFFF;
+        at += 2;
+        final String url = string(buf, at);
+        at += 2 + buf.getShort(at);
+        final String contentType = string(buf, at);
+        at += 2 + buf.getShort(at);
+        final int length = buf.getInt(at);
+        at += 4;
+        buf.limit(at + length);
+        buf.position(at);
+        return new Page(url, status, contentType.isEmpty() ? null : contentType, buf.slice().asReadOnlyBuffer());
+    }
+
+    private static String string(final ByteBuffer buf, final int at) {
+        final byte[] bytes = new byte[buf.getShort(at)];
+        for(int i = 0; i < bytes.length; i++) bytes[i] = buf.get(at + 2 + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The number of the records.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * The record in the recording order.
+     */
+    public Page get(final int record) {
+        return read(offsets[record]);
+    }
+
+    /**
+     * The last record of the URL, null if none.
+     */
+    public Page get(final URL url) {
+        final Integer record = index.get(UrlNormalizer.normalize(url));
+        return record == null ? null : read(offsets[record]);
+    }
+}
@@ -0,0 +1,311 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Counters and latency histograms across the crawl stages: fetch, parse, register, flush.
+ * <p>
+ * Tells a network-bound crawl (the fetch latency up, the frontier full) from a parse-bound one (the parse latency
+ * up) and from a DB-bound one (the flush latency and the backpressure time up). The recording methods are called
+ * on the hot path and allocate nothing: {@link LongAdder}s and {@link LatencyHistogram}s only. Every report period
+ * the rates and the percentiles of the interval are computed into preallocated arrays, logged in one line and
+ * published over JMX as {@value #OBJECT_NAME}.
+ * </p>
+ * @author michaelb
+ */
+public class CrawlMetrics implements CrawlMetricsMBean, Closeable {
+    private static final Logger L = getLogger(CrawlMetrics.class);
+
+    public static final String OBJECT_NAME = "com.github.mub.webCrawler:type=CrawlMetrics";
+
+    /**
+     * A queue depth, read at the report time.
+     */
+    public interface Gauge {
+        public long value();
+    }
+
+    private static final Gauge ZERO = new Gauge() {
+        @Override public long value() {
+            return 0;
+        }
+    };
+
+    /**
+     * The interval view of one histogram: the counts at the last report and the difference since the one before.
+     */
+    private static final class Interval {
+        private final LatencyHistogram histogram;
+        private final long[] last = new long[LatencyHistogram.BUCKETS];
+        private final long[] now = new long[LatencyHistogram.BUCKETS];
+        private long p50;
+        private long p99;
+
+        Interval(final LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        void update() {
+            histogram.copyCounts(now);
+            long total = 0;
+            for(int i = 0; i < now.length; i++) {
+                final long n = now[i];
+                now[i] -= last[i];
+                total += now[i];
+                last[i] = n;
+            }
+            p50 = LatencyHistogram.percentile(now, total, 0.5);
+            p99 = LatencyHistogram.percentile(now, total, 0.99);
+        }
+    }
+
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedEntries = new LongAdder();
+    private final LongAdder backpressureNanos = new LongAdder();
+    private final LatencyHistogram fetch = new LatencyHistogram();
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram register = new LatencyHistogram();
+    private final LatencyHistogram flush = new LatencyHistogram();
+    private final Interval fetchInterval = new Interval(fetch);
+    private final Interval parseInterval = new Interval(parse);
+    private final Interval registerInterval = new Interval(register);
+    private final Interval flushInterval = new Interval(flush);
+
+    private volatile Gauge frontierSize = ZERO;
+    private volatile Gauge frontierInMemory = ZERO;
+    private volatile Gauge inFlight = ZERO;
+
+    private long lastReport = System.nanoTime();
+    private long lastPages;
+    private long lastTokens;
+    private volatile double pagesPerSecond;
+    private volatile double tokensPerSecond;
+
+    private Thread reporter;
+    private ObjectName registered;
+
+    /**
+     * From the request sent to the response headers in.
+     */
+    public void recordFetch(final long nanos) {
+        fetch.record(nanos);
+    }
+
+    /**
+     * Reading and tokenizing the body, the network transfer of the body included.
+     */
+    public void recordParse(final long nanos, final int pageTokens) {
+        parse.record(nanos);
+        tokens.add(pageTokens);
+    }
+
+    /**
+     * Handing the page's counts to the accumulator.
+     */
+    public void recordRegister(final long nanos) {
+        register.record(nanos);
+    }
+
+    /**
+     * One flush to the store.
+     */
+    public void recordFlush(final long nanos, final int entries) {
+        flush.record(nanos);
+        flushes.increment();
+        flushedEntries.add(entries);
+    }
+
+    public void pageDone() {
+        pages.increment();
+    }
+
+    public void pageFailed() {
+        failed.increment();
+    }
+
+    public void pageNotModified() {
+        notModified.increment();
+    }
+
+    /**
+     * Time the crawlers were held off waiting for the flusher.
+     */
+    public void recordBackpressure(final long nanos) {
+        backpressureNanos.add(nanos);
+    }
+
+    public void setGauges(final Gauge frontierSize, final Gauge frontierInMemory, final Gauge inFlight) {
+        this.frontierSize = frontierSize;
+        this.frontierInMemory = frontierInMemory;
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Closes the interval: computes its rates and percentiles.
+     * @return the report line.
+     */
+    public synchronized String report() {
+        final long now = System.nanoTime();
+        final double seconds = Math.max(1, now - lastReport) / 1e9;
+        final long p = pages.sum(), t = tokens.sum();
+        pagesPerSecond = (p - lastPages) / seconds;
+        tokensPerSecond = (t - lastTokens) / seconds;
+        lastReport = now;
+        lastPages = p;
+        lastTokens = t;
+        fetchInterval.update();
+        parseInterval.update();
+        registerInterval.update();
+        flushInterval.update();
+        return String.format("pages %,d (%.1f/s, %,d failed, %,d not modified), tokens %,d (%.0f/s), frontier %,d"
+                + " (%,d in memory), in flight %,d | fetch p50/p99 %,d/%,d us, parse %,d/%,d us, register p99 %,d us"
+                + " | flush p50/p99/max %,d/%,d/%,d ms, %,d entries, backpressure %,d ms",
+            p, pagesPerSecond, failed.sum(), notModified.sum(), t, tokensPerSecond, getFrontierSize(),
+            getFrontierInMemory(), getPagesInFlight(), getFetchP50Micros(), getFetchP99Micros(), getParseP50Micros(),
+            getParseP99Micros(), getRegisterP99Micros(), getFlushP50Millis(), getFlushP99Millis(), getFlushMaxMillis(),
+            flushedEntries.sum(), getBackpressureMillis());
+    }
+
+    /**
+     * Logs a report line every period on a daemon thread.
+     */
+    public synchronized void start(final long periodMillis) {
+        if(reporter != null || periodMillis <= 0) return;
+        reporter = new Thread(new Runnable() {
+            @Override public void run() {
+                try {
+                    while(true) {
+                        TimeUnit.MILLISECONDS.sleep(periodMillis);
+                        L.info(report());
+                    }
+                }
+                catch (InterruptedException x) {
+                    // closed
+                }
+            }
+        }, "wc-metrics");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server.
+     */
+    public synchronized void registerMBean() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        if(server.isRegistered(name)) server.unregisterMBean(name);
+        server.registerMBean(this, name);
+        registered = name;
+    }
+
+    @Override public synchronized void close() {
+        if(reporter != null) {
+            reporter.interrupt();
+            reporter = null;
+        }
+        if(registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            }
+            catch (JMException x) {
+                L.warn("Could not unregister " + registered, x);
+            }
+            registered = null;
+        }
+    }
+
+    @Override public long getPages() {
+        return pages.sum();
+    }
+
+    @Override public long getPagesFailed() {
+        return failed.sum();
+    }
+
+    @Override public long getPagesNotModified() {
+        return notModified.sum();
+    }
+
+    @Override public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override public long getFlushes() {
+        return flushes.sum();
+    }
+
+    @Override public long getFlushedEntries() {
+        return flushedEntries.sum();
+    }
+
+    @Override public double getPagesPerSecond() {
+        return pagesPerSecond;
+    }
+
+    @Override public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    @Override public long getFrontierSize() {
+        return frontierSize.value();
+    }
+
+    @Override public long getFrontierInMemory() {
+        return frontierInMemory.value();
+    }
+
+    @Override public long getPagesInFlight() {
+        return inFlight.value();
+    }
+
+    @Override public long getBackpressureMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(backpressureNanos.sum());
+    }
+
+    @Override public synchronized long getFetchP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(fetchInterval.p50);
+    }
+
+    @Override public synchronized long getFetchP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(fetchInterval.p99);
+    }
+
+    @Override public synchronized long getParseP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(parseInterval.p50);
+    }
+
+    @Override public synchronized long getParseP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(parseInterval.p99);
+    }
+
+    @Override public synchronized long getRegisterP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(registerInterval.p99);
+    }
+
+    @Override public synchronized long getFlushP50Millis() {
+        return TimeUnit.NANOSECONDS.toMillis(flushInterval.p50);
+    }
+
+    @Override public synchronized long getFlushP99Millis() {
+        return TimeUnit.NANOSECONDS.toMillis(flushInterval.p99);
+    }
+
+    @Override public long getFlushMaxMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(flush.getMax());
+    }
+}
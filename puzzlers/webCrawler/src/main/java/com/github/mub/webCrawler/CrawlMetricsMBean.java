@@ -0,0 +1,32 @@
+package com.github.mub.webCrawler;
+
+/**
+ * The JMX view of the {@link CrawlMetrics}: totals since the start, rates and percentiles of the last report
+ * interval, queue depths now.
+ * @author michaelb
+ */
+public interface CrawlMetricsMBean {
+    public long getPages();
+    public long getPagesFailed();
+    public long getPagesNotModified();
+    public long getTokens();
+    public long getFlushes();
+    public long getFlushedEntries();
+
+    public double getPagesPerSecond();
+    public double getTokensPerSecond();
+
+    public long getFrontierSize();
+    public long getFrontierInMemory();
+    public long getPagesInFlight();
+    public long getBackpressureMillis();
+
+    public long getFetchP50Micros();
+    public long getFetchP99Micros();
+    public long getParseP50Micros();
+    public long getParseP99Micros();
+    public long getRegisterP99Micros();
+    public long getFlushP50Millis();
+    public long getFlushP99Millis();
+    public long getFlushMaxMillis();
+}
@@ -0,0 +1,422 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Recursive crawl scheduler.
+ * <p>
+ * Each page is a task: on a virtual thread if the JVM has them, otherwise on a bounded pool of platform threads.
+ * The crawl is I/O bound, so the concurrency is capped twice: overall by {@code maxInFlight} and per
+ * {@code host:port} by {@code maxPerHost}. The pages discovered wait in the bounded, breadth-first {@link Frontier}
+ * rather than holding a thread; a dispatcher thread takes them from there as the limits allow, and holds off while
+ * the accumulator's flusher is behind, so that the fetching slows down instead of piling up counters.
+ * </p>
+ * @author michaelb
+ */
+public class Crawler implements Closeable {
+    private static final Logger L = getLogger(Crawler.class);
+
+    /** How often the dispatcher checks if the crawl is over while there's nothing to do. */
+    private static final long DISPATCH_WAIT_MILLIS = 50;
+
+    /**
+     * A semaphore the number of the permits of which can be changed on the go.
+     */
+    private static final class Throttle extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        private int limit;
+
+        Throttle(final int limit) {
+            super(limit);
+            this.limit = limit;
+        }
+
+        synchronized void resize(final int newLimit) {
+            final int delta = newLimit - limit;
+            limit = newLimit;
+            if(delta > 0) release(delta);
+            else if(delta < 0) reducePermits(-delta);
+        }
+    }
+
+    private final PageProcessor processor;
+    private final WordAccumulator words;
+    private volatile int maxDepth;
+    private final ExecutorService executor;
+    private final Throttle inFlight;
+    private final Frontier frontier;
+    private final VisitedUrls visited;
+    private volatile UrlFilter ignored;
+    /** The pages taken from the frontier and not done yet. */
+    private final Set<PageTask> running = ConcurrentHashMap.newKeySet();
+    private final ReadWriteLock epochLock = new ReentrantReadWriteLock();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger pages = new AtomicInteger();
+    /** The failure of the start page or of the frontier, the crawl's outcome. */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private volatile CountDownLatch done;
+    private volatile CrawlMetrics metrics;
+
+    /**
+     * @param maxDepth    how many links away from the start page to go, zero for the start page only.
+     * @param maxInFlight the overall cap of the pages being processed at the same time.
+     * @param maxPerHost  the cap of the pages of one {@code host:port} being processed at the same time.
+     */
+    public Crawler(final PageProcessor processor, final WordAccumulator words, final VisitedUrls visited,
+                   final UrlFilter ignored, final int maxDepth, final int maxInFlight, final int maxPerHost) {
+        this(processor, words, visited, ignored, new Frontier(Frontier.DEFAULT_CAPACITY, maxPerHost, null), maxDepth,
+            maxInFlight);
+    }
+
+    /**
+     * @param frontier    where the pages wait, owned by the crawler from now on; its per host limit is the crawler's.
+     * @param maxDepth    how many links away from the start page to go, zero for the start page only.
+     * @param maxInFlight the overall cap of the pages being processed at the same time.
+     */
+    public Crawler(final PageProcessor processor, final WordAccumulator words, final VisitedUrls visited,
+                   final UrlFilter ignored, final Frontier frontier, final int maxDepth, final int maxInFlight) {
+        checkLimits(maxInFlight, 1);
+        this.processor = processor;
+        this.words = words;
+        this.visited = visited;
+        this.ignored = ignored;
+        this.frontier = frontier;
+        this.maxDepth = maxDepth;
+        this.inFlight = new Throttle(maxInFlight);
+        this.executor = newExecutor(maxInFlight);
+    }
+
+    private static void checkLimits(final int maxInFlight, final int maxPerHost) {
+        if(maxInFlight < 1 || maxPerHost < 1) throw new IllegalArgumentException(
+            "Invalid concurrency limits: " + maxInFlight + "/" + maxPerHost);
+    }
+
+    /**
+     * Changes the limits of a running crawl; the pages under way finish under the old ones.
+     */
+    public void setLimits(final int maxDepth, final int maxInFlight, final int maxPerHost) {
+        checkLimits(maxInFlight, maxPerHost);
+        this.maxDepth = maxDepth;
+        frontier.setMaxPerHost(maxPerHost);
+        inFlight.resize(maxInFlight);
+        if(executor instanceof ThreadPoolExecutor) {
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            if(maxInFlight > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(maxInFlight);
+                pool.setCorePoolSize(maxInFlight);
+            }
+            else {
+                pool.setCorePoolSize(maxInFlight);
+                pool.setMaximumPoolSize(maxInFlight);
+            }
+        }
+    }
+
+    /**
+     * Replaces the filter of the URLs not to enter, applies to the links found from now on.
+     */
+    public void setIgnored(final UrlFilter ignored) {
+        this.ignored = ignored;
+    }
+
+    /**
+     * Counts the pages done and failed into the metrics and lets them see the frontier and the pages in flight.
+     */
+    public void setMetrics(final CrawlMetrics metrics) {
+        this.metrics = metrics;
+        metrics.setGauges(new CrawlMetrics.Gauge() {
+            @Override public long value() {
+                return frontier.size();
+            }
+        }, new CrawlMetrics.Gauge() {
+            @Override public long value() {
+                return frontier.inMemory();
+            }
+        }, new CrawlMetrics.Gauge() {
+            @Override public long value() {
+                return running.size();
+            }
+        });
+    }
+
+    /**
+     * Crawls from the given page down to the depth limit and returns when done.
+     * @return the number of the pages processed.
+     * @throws IOException if the start page could not be processed or the frontier could not spill to the disk.
+     */
+    public int crawl(final URL start) throws IOException, InterruptedException {
+        return run(Collections.singletonList(new Checkpoint.Page(start.toString(), 0)), true);
+    }
+
+    /**
+     * Picks up the frontier of a {@link Checkpoint}, its pages are in the visited set already.
+     * @return the number of the pages processed.
+     */
+    public int resume(final List<Checkpoint.Page> frontier) throws IOException, InterruptedException {
+        return run(frontier, false);
+    }
+
+    private int run(final List<Checkpoint.Page> seeds, final boolean fresh) throws IOException,
+        InterruptedException {
+        final CountDownLatch finished = new CountDownLatch(1);
+        done = finished;
+        pending.incrementAndGet(); // so that the first pages done do not look like the end of the crawl
+        for(final Checkpoint.Page seed: seeds) {
+            final URL url = new URL(seed.getUrl());
+            if(!fresh || visited.add(url)) enqueue(url, seed.getDepth());
+        }
+        if(pending.decrementAndGet() == 0) finished.countDown();
+        final Thread dispatcher = new Thread(new Runnable() {
+            @Override public void run() {
+                dispatch(finished);
+            }
+        }, "wc-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        try {
+            finished.await();
+        }
+        finally {
+            dispatcher.interrupt();
+            dispatcher.join();
+        }
+        final IOException failed = failure.get();
+        if(failed != null) throw failed;
+        return pages.get();
+    }
+
+    /**
+     * The lock the pages finish under (for reading) and a checkpoint is taken under (for writing).
+     */
+    ReadWriteLock epochLock() {
+        return epochLock;
+    }
+
+    /**
+     * The pages scheduled and not finished yet, to be listed by {@link Frontier.Snapshot#pages()}; consistent only
+     * if taken under the {@link #epochLock()} write lock, the listing is not.
+     */
+    Frontier.Snapshot frontier() {
+        final Frontier.Snapshot result = frontier.snapshot();
+        for(final PageTask task: running) result.add(task.entry);
+        return result;
+    }
+
+    private void schedule(final URL url, final int depth) {
+        if(visited.add(url)) enqueue(url, depth);
+    }
+
+    /**
+     * A page the frontier can't take stops the crawl, as the dispatcher's failure does: the page would never be done.
+     */
+    private void enqueue(final URL url, final int depth) {
+        pending.incrementAndGet();
+        try {
+            frontier.add(new Frontier.Entry(url, depth));
+        }
+        catch (UncheckedIOException x) {
+            pending.decrementAndGet();
+            if(failure.compareAndSet(null, x.getCause())) L.error("Frontier failed, the crawl is stopped", x);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Moves the pages from the frontier to the executor as the limits allow, till the crawl is finished.
+     */
+    private void dispatch(final CountDownLatch finished) {
+        try {
+            while(finished.getCount() > 0) {
+                // no new pages while the flusher is behind:
+                if(!words.awaitBacklog(DISPATCH_WAIT_MILLIS, TimeUnit.MILLISECONDS)) continue;
+                if(!inFlight.tryAcquire(DISPATCH_WAIT_MILLIS, TimeUnit.MILLISECONDS)) continue;
+                PageTask task = null;
+                try {
+                    frontier.await(DISPATCH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    // taken and running at once as far as a checkpoint can see:
+                    epochLock.readLock().lock();
+                    try {
+                        final Frontier.Entry entry = frontier.tryTake();
+                        if(entry != null) {
+                            task = new PageTask(entry);
+                            running.add(task);
+                        }
+                    }
+                    finally {
+                        epochLock.readLock().unlock();
+                    }
+                    if(task != null) executor.execute(task);
+                }
+                finally {
+                    if(task == null) inFlight.release();
+                }
+            }
+        }
+        catch (InterruptedException x) {
+            // the crawl is over
+        }
+        catch (RuntimeException x) {
+            L.error("Dispatcher failed, the crawl is stopped", x);
+            finished.countDown();
+        }
+    }
+
+    private final class PageTask implements Runnable {
+        private final Frontier.Entry entry;
+        private final URL url;
+        private final String site;
+        private final int depth;
+
+        PageTask(final Frontier.Entry entry) {
+            this.entry = entry;
+            this.url = entry.getUrl();
+            this.site = entry.getSite();
+            this.depth = entry.getDepth();
+        }
+
+        @Override public void run() {
+            try {
+                visit(this);
+            }
+            finally {
+                frontier.done(entry);
+                inFlight.release();
+                if(pending.decrementAndGet() == 0) done.countDown();
+            }
+        }
+    }
+
+    /**
+     * The registrar of one page: takes the epoch read lock with the first words and holds it till the page is done,
+     * so that a checkpoint sees either all of the page's outcome or none of it.
+     */
+    private final class PageWords implements WordRegistrar {
+        private final WordRegistrar target;
+        private boolean locked;
+
+        PageWords(final WordRegistrar target) {
+            this.target = target;
+        }
+
+        void lock() {
+            if(locked) return;
+            epochLock.readLock().lock();
+            locked = true;
+        }
+
+        void unlock() {
+            if(!locked) return;
+            locked = false;
+            epochLock.readLock().unlock();
+        }
+
+        @Override public void register(final String word, final int count) {
+            lock();
+            target.register(word, count);
+        }
+
+        @Override public void registerAll(final WordCounts counts) {
+            lock();
+            target.registerAll(counts);
+        }
+    }
+
+    private void visit(final PageTask task) {
+        final PageWords pageWords = new PageWords(words.forSource(new WordSource(task.site)));
+        try {
+            final Collection<String> links;
+            try {
+                links = processor.process(task.url, pageWords);
+                pages.incrementAndGet();
+                if(metrics != null) metrics.pageDone();
+            }
+            catch (IOException x) {
+                if(metrics != null) metrics.pageFailed();
+                L.error("Failed to process " + task.url, x);
+                if(task.depth == 0) failure.set(x);
+                return;
+            }
+            if(task.depth >= maxDepth) return;
+            pageWords.lock();
+            final UrlFilter ignored = this.ignored;
+            for(final String link: links) {
+                if(ignored.isIgnored(link)) continue;
+                final URL next = UrlNormalizer.toCrawlable(link);
+                if(next != null) schedule(next, task.depth + 1);
+            }
+        }
+        finally {
+            pageWords.lock();
+            running.remove(task);
+            pageWords.unlock();
+        }
+    }
+
+    /**
+     * Virtual threads when the running JVM has them, platform threads otherwise.
+     */
+    private static ExecutorService newExecutor(final int maxInFlight) {
+        try {
+            final ExecutorService result = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            L.info("Crawling on virtual threads");
+            return result;
+        }
+        catch (ReflectiveOperationException x) {
+            L.info("No virtual threads, crawling on {} platform threads", maxInFlight);
+            return Executors.newFixedThreadPool(maxInFlight, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                @Override public Thread newThread(final Runnable r) {
+                    final Thread t = new Thread(r, "wc-crawler-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the pages under way, then closes the accumulator, so that its last flush checkpoints the frontier with
+     * its spilled pages, and only then deletes the frontier's spill files.
+     */
+    @Override public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+        words.close();
+        try {
+            frontier.close();
+        }
+        catch (IOException x) {
+            L.warn("Frontier cleanup failed", x);
+        }
+    }
+}
@@ -1,11 +1,145 @@
 package com.github.mub.webCrawler;
 
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
 /**
  * @author michaelb
  */
 public class CrawlerConsoleMain {
+    private static final Logger L = getLogger(CrawlerConsoleMain.class);
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    public static void main(final String[] args) throws Exception {
+        boolean resume = false;
+        String input = null, configFile = null, checkpointDir = null, recordFile = null, replayFile = null;
+        for(int i = 0; i < args.length; i++) {
+            if("--resume".equals(args[i])) resume = true;
+            else if("--config".equals(args[i]) && i + 1 < args.length) configFile = args[++i];
+            else if("--checkpoint".equals(args[i]) && i + 1 < args.length) checkpointDir = args[++i];
+            else if("--record".equals(args[i]) && i + 1 < args.length) recordFile = args[++i];
+            else if("--replay".equals(args[i]) && i + 1 < args.length) replayFile = args[++i];
+            else input = args[i];
+        }
+        final ConfigWatcher watcher = configFile == null ? null : new ConfigWatcher(new File(configFile));
+        final ConfigSnapshot config = watcher == null ? new ConfigSnapshot(new Config()) : watcher.get();
+        if(checkpointDir == null) checkpointDir = config.getCheckpointDir();
+        final CrawlArchive archive = replayFile == null ? null : CrawlArchive.open(new File(replayFile));
+        if(input == null && archive != null && archive.size() > 0) input = archive.get(0).getUrl();
+        if(resume ? checkpointDir == null : input == null) {
+            System.err.printf("Usage: %s [--config <yaml>] [--checkpoint <dir> [--resume]] "
+                + "[--record <archive> | --replay <archive>] <url>%n", CrawlerConsoleMain.class.getName());
+            System.exit(1);
+        }
+        final URL start = input == null ? null : UrlNormalizer.parseInput(input);
+        final Checkpointer checkpointer = checkpointDir == null ? null
+            : new Checkpointer(new File(checkpointDir), resume);
+        final Frontier frontier = new Frontier(config.getQueueCapacity(), config.getMaxPerHost(),
+            checkpointDir == null ? null : new File(checkpointDir));
+        final VisitedUrls visited = checkpointer == null ? new VisitedUrls(config.getExpectedUrls())
+            : new VisitedUrls(config.getExpectedUrls(), checkpointer.getVisitedLog());
 
-    public static void main(final String[] args) {
+        final PageValidators validators = config.getValidatorsFile() == null ? null : new PageValidators();
+        if(validators != null) validators.load(new File(config.getValidatorsFile()));
+
+        final List<JdbcFrequencyStore> shards = new ArrayList<>(config.getShards());
+        final CrawlMetrics metrics = new CrawlMetrics();
+        final StreamingPageProcessor processor;
+        try (HttpFetcher fetcher = new HttpFetcher(TIMEOUT_MILLIS, config.getMaxPerHost(),
+                 HttpFetcher.DEFAULT_KEEP_ALIVE_MILLIS);
+             ShardedFrequencyStore store = new ShardedFrequencyStore(openShards(config, shards));
+             WordAccumulator words = newAccumulator(config, store);
+             CrawlArchive.Recorder recorder = recordFile == null || archive != null ? null
+                 : new CrawlArchive.Recorder(new File(recordFile));
+             Crawler crawler = new Crawler(processor = archive != null
+                 ? new ArchivePageProcessor(archive, config.getCompiledWordSpec())
+                 : new StreamingPageProcessor(config.getCompiledWordSpec(), fetcher, validators,
+                     config.isIncremental()), words, visited, config.getUrlFilter(), frontier,
+                 config.getMaxDepth(), config.getMaxInFlight())) {
+            processor.setMetrics(metrics);
+            processor.setRecorder(recorder);
+            words.setMetrics(metrics);
+            crawler.setMetrics(metrics);
+            metrics.registerMBean();
+            metrics.start(config.getMetricsMillis());
+            for(final JdbcFrequencyStore shard: shards) shard.setBatchSize(config.getBatchSize());
+            processor.setIgnoredWords(config.getStopWords());
+            words.setIgnoredWords(config.getStopWords());
+            words.setMaxBacklog(config.getMaxBacklog());
+            if(checkpointer != null) {
+                if(validators != null) checkpointer.setValidators(validators, new File(config.getValidatorsFile()));
+                checkpointer.recover(store);
+                words.setCheckpointer(checkpointer);
+                checkpointer.attach(crawler);
+            }
+            if(watcher != null) {
+                watcher.addListener(new ConfigWatcher.Listener() {
+                    @Override public void configChanged(final ConfigSnapshot previous, final ConfigSnapshot current) {
+                        crawler.setLimits(current.getMaxDepth(), current.getMaxInFlight(), current.getMaxPerHost());
+                        crawler.setIgnored(current.getUrlFilter());
+                        words.setFlushCadence(current.getFlushEncounters(), current.getFlushMillis());
+                        processor.setIgnoredWords(current.getStopWords());
+                        words.setIgnoredWords(current.getStopWords());
+                        words.setMaxBacklog(current.getMaxBacklog());
+                        frontier.setCapacity(current.getQueueCapacity());
+                        for(final JdbcFrequencyStore shard: shards) shard.setBatchSize(current.getBatchSize());
+                    }
+                });
+                watcher.start();
+            }
+            final long began = System.currentTimeMillis();
+            final int pages = resume ? crawler.resume(checkpointer.getResumed().getFrontier()) : crawler.crawl(start);
+            L.info("Crawled {} pages in {} ms, {} connections opened, {} reused", pages,
+                System.currentTimeMillis() - began, fetcher.getOpened(), fetcher.getReused());
+            L.info(metrics.report());
+            if(recorder != null) L.info("Recorded {} responses to {}", recorder.getRecords(), recordFile);
+        }
+        catch (IOException x) {
+            L.error("Crawl of " + (resume ? checkpointDir : start) + " failed", x);
+            System.exit(2);
+        }
+        finally {
+            metrics.close();
+            if(watcher != null) watcher.close();
+            if(checkpointer != null) checkpointer.close();
+        }
+        // the counts are flushed by now, the pages may be taken as counted; the journal is folded on the next start:
+        if(validators != null) validators.save(new File(config.getValidatorsFile()));
+    }
+
+    /**
+     * The exact counts, or the top words' of each site if so configured.
+     */
+    private static WordAccumulator newAccumulator(final ConfigSnapshot config, final FrequencyStore store) {
+        if(config.getTopWords() > 0) {
+            return new TopWordAccumulator(store, config.getTopWords(), config.getSketchError(),
+                config.getSketchConfidence(), config.getFlushEncounters(), config.getFlushMillis());
+        }
+        return new StripedWordAccumulator(store, config.getMaxInFlight() * 4, config.getFlushEncounters(),
+            config.getFlushMillis());
+    }
 
+    /**
+     * A connection per shard, into the list; the ones opened are closed if one fails.
+     */
+    private static List<JdbcFrequencyStore> openShards(final ConfigSnapshot config,
+                                                       final List<JdbcFrequencyStore> into) throws IOException {
+        try {
+            for(int i = 0; i < config.getShards(); i++) into.add(new JdbcFrequencyStore(config.getDbUrl(), i));
+            return into;
+        }
+        catch (SQLException x) {
+            for(final JdbcFrequencyStore shard: into) shard.close();
+            throw new IOException("Could not open " + config.getDbUrl(), x);
+        }
     }
 }
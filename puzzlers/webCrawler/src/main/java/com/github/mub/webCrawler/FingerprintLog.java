@@ -0,0 +1,105 @@
+package com.github.mub.webCrawler;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only log of the visited URL fingerprints in a memory mapped file, written as the URLs are added,
+ * so a checkpoint only has to record how long the log was.
+ * <p>
+ * Format: the magic {@code "WCVL"}, the version int, eight reserved bytes, then the {@code long}s.
+ * Mapped in 64MB segments as it grows; the appends from different threads go to different slots, lock-free.
+ * </p>
+ * @author michaelb
+ */
+public class FingerprintLog implements Closeable {
+
+    static final int MAGIC = 0x5743564c; // WCVL
+    static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int SEGMENT_SHIFT = 23; // 8M longs = 64MB
+    private static final int SEGMENT_LONGS = 1 << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final AtomicLong size;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * Opens the log, creating it if needed.
+     * @param size how many of the logged fingerprints to keep: the ones past the last checkpoint are overwritten.
+     */
+    public FingerprintLog(final File file, final long size) throws IOException {
+        final boolean fresh = !file.exists() || file.length() < HEADER;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER);
+        if(fresh) {
+            if(size > 0) throw new IOException("No fingerprints to resume from in " + file);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+        }
+        else {
+            channel.read(header, 0);
+            header.flip();
+            if(header.getInt() != MAGIC || header.getInt() != VERSION) throw new IOException("Not a v" + VERSION
+                + " fingerprint log: " + file);
+            if(HEADER + size * 8 > channel.size()) throw new IOException("Log " + file + " is shorter than " + size);
+        }
+        this.size = new AtomicLong(size);
+    }
+
+    public void append(final long fingerprint) {
+        final long index = size.getAndIncrement();
+        segment(index).putLong((int) (index & SEGMENT_LONGS - 1) << 3, fingerprint);
+    }
+
+    public long get(final long index) {
+        return segment(index).getLong((int) (index & SEGMENT_LONGS - 1) << 3);
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Makes the logged fingerprints durable.
+     */
+    public void force() {
+        for(final MappedByteBuffer segment: segments) segment.force();
+    }
+
+    private MappedByteBuffer segment(final long index) {
+        final int n = (int) (index >>> SEGMENT_SHIFT);
+        final MappedByteBuffer[] current = segments;
+        return n < current.length ? current[n] : map(n);
+    }
+
+    private synchronized MappedByteBuffer map(final int n) {
+        MappedByteBuffer[] current = segments;
+        if(n < current.length) return current[n];
+        try {
+            current = Arrays.copyOf(current, n + 1);
+            for(int i = segments.length; i <= n; i++) {
+                current[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + ((long) i << SEGMENT_SHIFT + 3),
+                    (long) SEGMENT_LONGS << 3);
+            }
+            segments = current;
+            return current[n];
+        }
+        catch (IOException x) {
+            throw new IllegalStateException("Could not map the fingerprint log segment " + n, x);
+        }
+    }
+
+    @Override public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.mub.webCrawler;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * The persistence layer: thin on purpose, any concrete storage can be plugged in.
+ * Called by a single flusher thread, never by the crawlers themselves.
+ * @author michaelb
+ */
+public interface FrequencyStore {
+
+    /** No checkpoint epoch. */
+    public static final long NO_EPOCH = -1;
+
+    /**
+     * Add the counts of the given entries to the stored frequencies of their {@code [site, word]} keys.
+     * Either the whole batch is applied or none of it, so the caller may retry it on failure.
+     */
+    public void store(final Collection<WcEntry> deltas) throws IOException;
+
+    /**
+     * Like {@link #store(Collection)}, also recording the {@link Checkpoint} epoch of the batch in the same
+     * transaction. Stores that can't record it may ignore the epoch.
+     */
+    public default void store(final Collection<WcEntry> deltas, final long epoch) throws IOException {
+        store(deltas);
+    }
+
+    /**
+     * The epoch recorded with the last batch, {@link #NO_EPOCH} if none or not tracked.
+     */
+    public default long lastEpoch() throws IOException {
+        return NO_EPOCH;
+    }
+
+}
@@ -0,0 +1,486 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * The pages discovered and waiting for their turn: bounded, breadth-first and aware of the per-host limit.
+ * <p>
+ * Each {@code host:port} has its own queue per depth; the hosts that may take one more page are kept in a priority
+ * queue by the depth of their shallowest page, round robin among the equal ones, so a {@link #tryTake()} is
+ * {@code O(log hosts)} no matter how many pages of the busy hosts wait. Past {@code capacity} pages in memory the
+ * new ones go to a spill file per depth and come back, in order, once the memory queues drain to half the capacity
+ * or have nothing to offer. The spilled pages are kept as their URLs only.
+ * </p>
+ * @author michaelb
+ */
+public class Frontier implements Closeable {
+    private static final Logger L = getLogger(Frontier.class);
+
+    public static final int DEFAULT_CAPACITY = 100000;
+
+    /**
+     * A page to crawl.
+     */
+    public static final class Entry {
+        private final URL url;
+        private final String site;
+        private final int depth;
+
+        public Entry(final URL url, final int depth) {
+            this.url = url;
+            this.site = UrlNormalizer.siteOf(url);
+            this.depth = depth;
+        }
+
+        public URL getUrl() {
+            return url;
+        }
+
+        public String getSite() {
+            return site;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private static final class HostQueue {
+        private ArrayDeque<Entry>[] byDepth = newDeques(4);
+        private int size;
+        private int active;
+        /** In the ready queue. */
+        private boolean ready;
+        /** The priority it was put in the ready queue with. */
+        private int readyDepth;
+        private long readySeq;
+
+        void add(final Entry e) {
+            if(e.depth >= byDepth.length) {
+                final int old = byDepth.length;
+                byDepth = Arrays.copyOf(byDepth, Math.max(e.depth + 1, old * 2));
+                for(int d = old; d < byDepth.length; d++) byDepth[d] = new ArrayDeque<>();
+            }
+            byDepth[e.depth].add(e);
+            size++;
+        }
+
+        int minDepth() {
+            for(int d = 0; d < byDepth.length; d++) if(!byDepth[d].isEmpty()) return d;
+            return -1;
+        }
+
+        Entry poll() {
+            for(final ArrayDeque<Entry> q: byDepth) {
+                if(!q.isEmpty()) {
+                    size--;
+                    return q.poll();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The pages waiting at one moment: the references of the ones in memory and the positions of the spill files,
+     * taken under the frontier's lock, made into the {@link #pages()} off it. The spill files are kept from being
+     * restarted till then.
+     */
+    public final class Snapshot {
+        private final List<Entry> entries;
+        private final Spill[] spills;
+        private final long[] from;
+        private final long[] to;
+        private boolean listed;
+
+        Snapshot(final List<Entry> entries, final Spill[] spills) {
+            this.entries = entries;
+            this.spills = spills;
+            from = new long[spills.length];
+            to = new long[spills.length];
+        }
+
+        /**
+         * A page under way, to resume from as well.
+         */
+        void add(final Entry e) {
+            entries.add(e);
+        }
+
+        /**
+         * Lists the pages, once: the spilled ones are read from their files.
+         */
+        public List<Checkpoint.Page> pages() {
+            if(listed) throw new IllegalStateException("Snapshot listed already");
+            listed = true;
+            long spilled = 0;
+            for(int d = 0; d < spills.length; d++) spilled += to[d] - from[d];
+            final List<Checkpoint.Page> result = new ArrayList<>((int) Math.min(1 << 20, entries.size() + spilled));
+            try {
+                for(final Entry e: entries) result.add(new Checkpoint.Page(e.url.toString(), e.depth));
+                for(int d = 0; d < spills.length; d++) if(spills[d] != null) spills[d].list(d, from[d], to[d], result);
+                return result;
+            }
+            catch (IOException x) {
+                throw new UncheckedIOException("Frontier spill unreadable", x);
+            }
+            finally {
+                unpin(spills);
+            }
+        }
+    }
+
+    /**
+     * Pages of one depth past the capacity, appended to a file and read back in the same order.
+     */
+    private final class Spill {
+        private final File file;
+        private DataOutputStream out;
+        private DataInputStream in;
+        private long written;
+        private long read;
+        /** The snapshots yet to list the file: it is not restarted meanwhile. */
+        private int pins;
+
+        Spill(final int depth) {
+            file = new File(dir, "frontier-" + depth + ".spill");
+        }
+
+        long size() {
+            return written - read;
+        }
+
+        void add(final Entry e) throws IOException {
+            if(out == null) {
+                if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            }
+            out.writeUTF(e.url.toString());
+            written++;
+        }
+
+        Entry poll(final int depth) throws IOException {
+            if(size() == 0) return null;
+            out.flush();
+            if(in == null) in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            final String url = in.readUTF();
+            if(++read == written && pins == 0) clear(); // start the file afresh rather than growing it forever
+            return new Entry(new URL(url), depth);
+        }
+
+        /**
+         * Makes the pages written so far readable by a snapshot.
+         */
+        void flush() throws IOException {
+            if(out != null) out.flush();
+        }
+
+        void unpin() throws IOException {
+            if(--pins == 0 && written > 0 && read == written) clear();
+        }
+
+        /**
+         * Lists the pages {@code [from, to)} of a pinned file, without the frontier's lock: the part is on the disk.
+         */
+        void list(final int depth, final long from, final long to, final List<Checkpoint.Page> result)
+            throws IOException {
+            if(from == to) return;
+            try (DataInputStream all = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                for(long i = 0; i < to; i++) {
+                    final String url = all.readUTF();
+                    if(i >= from) result.add(new Checkpoint.Page(url, depth));
+                }
+            }
+        }
+
+        void clear() throws IOException {
+            if(in != null) in.close();
+            if(out != null) out.close();
+            in = null;
+            out = null;
+            written = read = 0;
+            if(file.exists() && !file.delete()) throw new IOException("Could not delete " + file);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final PriorityQueue<HostQueue> readyHosts = new PriorityQueue<>(64, new Comparator<HostQueue>() {
+        @Override public int compare(final HostQueue a, final HostQueue b) {
+            return a.readyDepth != b.readyDepth ? Integer.compare(a.readyDepth, b.readyDepth)
+                : Long.compare(a.readySeq, b.readySeq);
+        }
+    });
+    private final File dir;
+    private final boolean temporary;
+    private Spill[] spills = new Spill[0];
+    private volatile int capacity;
+    private volatile int maxPerHost;
+    private int inMemory;
+    private long spilled;
+    private long seq;
+    /** Closed with the crawl: the pages of the tasks outliving it are dropped, no spill file made again. */
+    private boolean closed;
+
+    /**
+     * @param capacity   the pages to keep in memory, the rest are spilled to the disk.
+     * @param maxPerHost the cap of the pages of one {@code host:port} taken and not {@link #done(Entry)} yet.
+     * @param spillDir   where to spill to, null for the temporary directory.
+     */
+    public Frontier(final int capacity, final int maxPerHost, final File spillDir) {
+        setCapacity(capacity);
+        setMaxPerHost(maxPerHost);
+        temporary = spillDir == null;
+        dir = temporary ? new File(System.getProperty("java.io.tmpdir"), "wc-frontier-" + System.nanoTime())
+            : spillDir;
+    }
+
+    public void setCapacity(final int capacity) {
+        if(capacity < 1) throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * A raised limit applies to a busy host when one of its pages is done.
+     */
+    public void setMaxPerHost(final int maxPerHost) {
+        if(maxPerHost < 1) throw new IllegalArgumentException("Invalid per host limit: " + maxPerHost);
+        this.maxPerHost = maxPerHost;
+    }
+
+    public void add(final Entry e) {
+        lock.lock();
+        try {
+            if(closed) return;
+            final Spill spill = e.depth < spills.length ? spills[e.depth] : null;
+            if(inMemory >= capacity || spill != null && spill.size() > 0) { // keep the order within the depth
+                spillOf(e.depth).add(e);
+                if(spilled++ == 0) L.info("Frontier over {} pages, spilling to {}", capacity, dir);
+            }
+            else toMemory(e);
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException("Frontier spill failed", x);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void toMemory(final Entry e) {
+        HostQueue host = hosts.get(e.site);
+        if(host == null) hosts.put(e.site, host = new HostQueue());
+        host.add(e);
+        inMemory++;
+        if(host.ready && e.depth < host.readyDepth) { // rare in a breadth-first crawl, worth a linear removal
+            readyHosts.remove(host);
+            host.ready = false;
+        }
+        offer(host);
+        changed.signal();
+    }
+
+    private void offer(final HostQueue host) {
+        if(host.ready || host.size == 0 || host.active >= maxPerHost) return;
+        host.ready = true;
+        host.readyDepth = host.minDepth();
+        host.readySeq = seq++;
+        readyHosts.add(host);
+    }
+
+    private Spill spillOf(final int depth) {
+        if(depth >= spills.length) spills = Arrays.copyOf(spills, depth + 1);
+        if(spills[depth] == null) spills[depth] = new Spill(depth);
+        return spills[depth];
+    }
+
+    /**
+     * The shallowest page of a host below its limit, counted as active on that host till {@link #done(Entry)}.
+     * @return null if none can be taken now.
+     */
+    public Entry tryTake() {
+        lock.lock();
+        try {
+            if(spilled > 0 && (inMemory <= capacity / 2 || readyHosts.isEmpty())) refill();
+            final HostQueue host = readyHosts.poll();
+            if(host == null) return null;
+            host.ready = false;
+            final Entry e = host.poll();
+            inMemory--;
+            host.active++;
+            offer(host);
+            return e;
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException("Frontier refill failed", x);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() throws IOException {
+        for(int d = 0; d < spills.length && inMemory < capacity; d++) {
+            final Spill spill = spills[d];
+            if(spill == null) continue;
+            Entry e;
+            while(inMemory < capacity && (e = spill.poll(d)) != null) {
+                spilled--;
+                toMemory(e);
+            }
+        }
+    }
+
+    /**
+     * Waits until a page may be available to {@link #tryTake()}, or the time is out.
+     */
+    public void await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            if(readyHosts.isEmpty() && spilled == 0) changed.await(timeout, unit);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the host's slot of a page taken.
+     */
+    public void done(final Entry e) {
+        lock.lock();
+        try {
+            final HostQueue host = hosts.get(e.site);
+            host.active--;
+            if(host.size == 0 && host.active == 0) hosts.remove(e.site);
+            else offer(host);
+            changed.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pages waiting, in memory and spilled.
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return inMemory + spilled;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pages waiting, in memory only.
+     */
+    public int inMemory() {
+        lock.lock();
+        try {
+            return inMemory;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * All the pages waiting, for a {@link Checkpoint}.
+     */
+    public List<Checkpoint.Page> pages() {
+        return snapshot().pages();
+    }
+
+    /**
+     * The pages waiting now, to be listed by {@link Snapshot#pages()}: the frontier is locked for a copy of the
+     * references in memory only, the spilled pages are read after.
+     */
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            final Snapshot result = new Snapshot(new ArrayList<Entry>(inMemory + 16), spills.clone());
+            for(final HostQueue host: hosts.values()) {
+                for(final ArrayDeque<Entry> q: host.byDepth) result.entries.addAll(q);
+            }
+            for(final Spill spill: spills) if(spill != null) spill.flush();
+            for(int d = 0; d < spills.length; d++) {
+                final Spill spill = spills[d];
+                if(spill == null) continue;
+                spill.pins++; // till the snapshot is listed
+                result.from[d] = spill.read;
+                result.to[d] = spill.written;
+            }
+            return result;
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException("Frontier spill unflushable", x);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void unpin(final Spill[] pinned) {
+        lock.lock();
+        try {
+            for(final Spill spill: pinned) if(spill != null) spill.unpin();
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException("Frontier spill failed", x);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the spill files; the pages added from now on are dropped.
+     */
+    @Override public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            for(final Spill spill: spills) if(spill != null) spill.clear();
+            if(temporary && dir.exists() && !dir.delete()) L.warn("Could not delete {}", dir);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<Entry>[] newDeques(final int n) {
+        final ArrayDeque<Entry>[] result = new ArrayDeque[n];
+        for(int i = 0; i < n; i++) result[i] = new ArrayDeque<>();
+        return result;
+    }
+}
@@ -0,0 +1,337 @@
+package com.github.mub.webCrawler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming HTML text extractor: one pass over the characters, no DOM, the words and the link hrefs go
+ * straight to the {@link Sink}.
+ * <p>
+ * The text runs between the tags are gathered in a reusable buffer and scanned with the {@link WordSpec}
+ * right there, the memory used does not depend on the page size. As in JSoup's {@code text()}, only the block
+ * level tags and {@code br} separate the words, {@code tr<b>ee} is one word, the closing ones too where JSoup 1.8
+ * joins {@code <h1>h</h1>s}; the content of {@code script} and {@code style} and the comments are skipped, the
+ * common character entities are decoded.
+ * </p>
+ * Reusable but not thread-safe: one instance per thread at a time.
+ * @author michaelb
+ */
+public class HtmlTokenizer {
+
+    public interface Sink {
+        /**
+         * The word at {@code [start, end)} of the {@code text}, the window is only valid during the call.
+         */
+        public void word(final CharSequence text, final int start, final int end);
+
+        /**
+         * The {@code href} of an anchor, as is: may be relative.
+         */
+        public void link(final String href);
+    }
+
+    /**
+     * The characters of a page in chunks, such as a {@link PageDecoder}.
+     */
+    public interface CharSource {
+        /**
+         * Puts the next characters into the buffer, in its write mode.
+         * @return false at the end of the page, the characters put in by this last call included.
+         */
+        public boolean read(final CharBuffer into) throws IOException;
+    }
+
+    public static final int DEFAULT_BUFFER = 8192;
+    private static final int TAG_LIMIT = 2048;
+    private static final int ENTITY_LIMIT = 10;
+
+    private static final int TEXT = 0, TAG = 1, ENTITY = 2, COMMENT = 3, RAW = 4;
+    private static final char[] SCRIPT_END = "</script".toCharArray();
+    private static final char[] STYLE_END = "</style".toCharArray();
+    /** The tags ending a word, JSoup's block tags and {@code br}, by the length of their name. */
+    private static final String[][] BREAKING = byLength("html", "head", "body", "frameset", "script", "noscript",
+        "style", "meta", "link", "title", "frame", "noframes", "section", "nav", "aside", "hgroup", "header", "footer",
+        "article", "main", "p", "h1", "h2", "h3", "h4", "h5", "h6", "ul", "ol", "pre", "div", "blockquote", "hr",
+        "address", "figure", "figcaption", "form", "fieldset", "ins", "del", "s", "dl", "dt", "dd", "li", "table",
+        "caption", "thead", "tfoot", "tbody", "colgroup", "col", "tr", "th", "td", "video", "audio", "canvas",
+        "details", "menu", "plaintext", "br");
+
+    private final char[] in;
+    private final CharBuffer inView;
+    private final char[] text;
+    private final CharBuffer textView;
+    private final WordSpec.Scanner scanner;
+    private final char[] tag = new char[TAG_LIMIT];
+    private final char[] entity = new char[ENTITY_LIMIT];
+
+    private Sink sink;
+    private int state;
+    private int textLen;
+    private int tagLen;
+    private boolean tagOverflow;
+    private char quote;
+    private int entityLen;
+    private int dashes;
+    private char[] rawEnd;
+    private int rawMatched;
+
+    private static String[][] byLength(final String... names) {
+        int longest = 0;
+        for(final String name: names) longest = Math.max(longest, name.length());
+        final String[][] result = new String[longest + 1][0];
+        for(final String name: names) {
+            final String[] same = Arrays.copyOf(result[name.length()], result[name.length()].length + 1);
+            same[same.length - 1] = name;
+            result[name.length()] = same;
+        }
+        return result;
+    }
+
+    public HtmlTokenizer(final WordSpec wordSpec) {
+        this(wordSpec, DEFAULT_BUFFER);
+    }
+
+    public HtmlTokenizer(final WordSpec wordSpec, final int bufferSize) {
+        in = new char[bufferSize];
+        inView = CharBuffer.wrap(in);
+        text = new char[bufferSize];
+        textView = CharBuffer.wrap(text);
+        scanner = wordSpec.newScanner();
+    }
+
+    public HtmlTokenizer(final Pattern wordSpec, final int bufferSize) {
+        this(WordSpec.of(wordSpec), bufferSize);
+    }
+
+    /**
+     * Reads the page to the end, does not close the reader.
+     */
+    public void tokenize(final Reader reader, final Sink sink) throws IOException {
+        this.sink = sink;
+        state = TEXT;
+        textLen = 0;
+        try {
+            int n;
+            while((n = reader.read(in)) >= 0) {
+                for(int i = 0; i < n; i++) accept(in[i]);
+            }
+            finish();
+        }
+        finally {
+            this.sink = null;
+        }
+    }
+
+    /**
+     * Reads the page to the end, straight from the source into the input buffer: no copy in between.
+     */
+    public void tokenize(final CharSource source, final Sink sink) throws IOException {
+        this.sink = sink;
+        state = TEXT;
+        textLen = 0;
+        try {
+            boolean more;
+            do {
+                inView.clear();
+                more = source.read(inView);
+                final int n = inView.position();
+                for(int i = 0; i < n; i++) accept(in[i]);
+            } while(more);
+            finish();
+        }
+        finally {
+            this.sink = null;
+        }
+    }
+
+    private void finish() {
+        if(state == ENTITY) endEntity();
+        flushText(true);
+    }
+
+    private void accept(final char c) {
+        switch(state) {
+            case TEXT:
+                if(c == '<') startTag(); // the text is kept: an inline tag does not end the word
+                else if(c == '&') {
+                    entityLen = 0;
+                    state = ENTITY;
+                }
+                else appendText(c);
+                break;
+            case ENTITY:
+                if(c == ';') {
+                    appendText(decodeEntity());
+                    state = TEXT;
+                }
+                else if(entityLen < ENTITY_LIMIT && (Character.isLetterOrDigit(c) || c == '#' && entityLen == 0)) {
+                    entity[entityLen++] = c;
+                }
+                else {
+                    endEntity();
+                    accept(c);
+                }
+                break;
+            case TAG:
+                if(quote != 0) {
+                    if(c == quote) quote = 0;
+                }
+                else if(c == '"' || c == '\'') {
+                    quote = c;
+                }
+                else if(c == '>') {
+                    state = TEXT;
+                    endTag();
+                    break;
+                }
+                if(tagLen < TAG_LIMIT) tag[tagLen++] = c;
+                else tagOverflow = true;
+                if(tagLen == 3 && tag[0] == '!' && tag[1] == '-' && tag[2] == '-') {
+                    dashes = 0;
+                    state = COMMENT;
+                }
+                break;
+            case COMMENT:
+                if(c == '>' && dashes >= 2) state = TEXT;
+                else dashes = c == '-' ? dashes + 1 : 0;
+                break;
+            case RAW:
+                if(Character.toLowerCase(c) == rawEnd[rawMatched]) {
+                    if(++rawMatched == rawEnd.length) {
+                        startTag();
+                        for(int i = 1; i < rawEnd.length; i++) tag[tagLen++] = rawEnd[i];
+                    }
+                }
+                else rawMatched = c == '<' ? 1 : 0;
+                break;
+            default:
+                throw new IllegalStateException("State " + state);
+        }
+    }
+
+    private void startTag() {
+        tagLen = 0;
+        tagOverflow = false;
+        quote = 0;
+        state = TAG;
+    }
+
+    private void appendText(final char c) {
+        if(textLen == text.length) flushText(false);
+        text[textLen++] = c;
+    }
+
+    /**
+     * Matches the gathered text against the word specification.
+     * @param boundary true if the text ends on a word boundary, otherwise the last partial word is kept for later.
+     */
+    private void flushText(final boolean boundary) {
+        if(textLen == 0) return;
+        int end = textLen;
+        if(!boundary) {
+            while(end > 0 && !Character.isWhitespace(text[end - 1])) end--;
+            if(end == 0) end = textLen; // one huge "word", cut it
+        }
+        scanner.scan(text, textView, end, sink);
+        System.arraycopy(text, end, text, 0, textLen - end);
+        textLen -= end;
+    }
+
+    /**
+     * Unterminated entity: taken literally.
+     */
+    private void endEntity() {
+        state = TEXT;
+        appendText('&');
+        for(int i = 0; i < entityLen; i++) appendText(entity[i]);
+    }
+
+    private char decodeEntity() {
+        if(entityLen > 1 && entity[0] == '#') {
+            final boolean hex = entity[1] == 'x' || entity[1] == 'X';
+            int code = 0;
+            for(int i = hex ? 2 : 1; i < entityLen; i++) {
+                final int digit = Character.digit(entity[i], hex ? 16 : 10);
+                if(digit < 0) return ' ';
+                code = code * (hex ? 16 : 10) + digit;
+            }
+            return code > 0 && code < Character.MIN_SURROGATE ? (char) code : ' ';
+        }
+        if(entityIs("amp")) return '&';
+        if(entityIs("lt")) return '<';
+        if(entityIs("gt")) return '>';
+        if(entityIs("quot")) return '"';
+        if(entityIs("apos")) return '\'';
+        return ' '; // nbsp and whatever else: a separator
+    }
+
+    private boolean entityIs(final String name) {
+        if(entityLen != name.length()) return false;
+        for(int i = 0; i < entityLen; i++) if(entity[i] != name.charAt(i)) return false;
+        return true;
+    }
+
+    private void endTag() {
+        if(tagLen == 0) return;
+        int pos = 0;
+        final boolean closing = tag[0] == '/';
+        if(closing) pos++;
+        final int nameStart = pos;
+        while(pos < tagLen && !Character.isWhitespace(tag[pos]) && tag[pos] != '/') pos++;
+        if(isBreaking(nameStart, pos)) flushText(true);
+        if(closing) return;
+        if(nameIs(nameStart, pos, "script")) startRaw(SCRIPT_END);
+        else if(nameIs(nameStart, pos, "style")) startRaw(STYLE_END);
+        else if(nameIs(nameStart, pos, "a") && !tagOverflow) findHref(pos);
+    }
+
+    private void startRaw(final char[] end) {
+        rawEnd = end;
+        rawMatched = 0;
+        state = RAW;
+    }
+
+    private boolean isBreaking(final int start, final int end) {
+        if(end - start >= BREAKING.length) return false;
+        for(final String name: BREAKING[end - start]) if(nameIs(start, end, name)) return true;
+        return false;
+    }
+
+    private boolean nameIs(final int start, final int end, final String name) {
+        if(end - start != name.length()) return false;
+        for(int i = start; i < end; i++) if(Character.toLowerCase(tag[i]) != name.charAt(i - start)) return false;
+        return true;
+    }
+
+    private void findHref(int pos) {
+        while(pos < tagLen) {
+            while(pos < tagLen && (Character.isWhitespace(tag[pos]) || tag[pos] == '/')) pos++;
+            final int nameStart = pos;
+            while(pos < tagLen && tag[pos] != '=' && !Character.isWhitespace(tag[pos])) pos++;
+            final int nameEnd = pos;
+            while(pos < tagLen && Character.isWhitespace(tag[pos])) pos++;
+            if(pos >= tagLen || tag[pos] != '=') continue;
+            pos++;
+            while(pos < tagLen && Character.isWhitespace(tag[pos])) pos++;
+            int valueStart = pos, valueEnd;
+            if(pos < tagLen && (tag[pos] == '"' || tag[pos] == '\'')) {
+                final char q = tag[pos];
+                valueStart = ++pos;
+                while(pos < tagLen && tag[pos] != q) pos++;
+                valueEnd = pos++;
+            }
+            else {
+                while(pos < tagLen && !Character.isWhitespace(tag[pos])) pos++;
+                valueEnd = pos;
+            }
+            if(nameIs(nameStart, nameEnd, "href")) {
+                final String href = new String(tag, valueStart, valueEnd - valueStart).trim();
+                if(!href.isEmpty()) sink.link(href.indexOf('&') < 0 ? href : href.replace("&amp;", "&"));
+                return;
+            }
+        }
+    }
+}
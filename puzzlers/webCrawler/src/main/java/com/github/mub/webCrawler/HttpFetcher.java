@@ -0,0 +1,507 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Minimal HTTP/1.1 {@code GET} client keeping the connections alive per {@code host:port}.
+ * <p>
+ * A recursive crawl hits the same sites over and over, so a connection whose response has been read to the end
+ * goes back to its site's idle pool instead of being closed, and the next page of the site skips the TCP handshake.
+ * The bodies come {@code gzip} or {@code deflate} encoded if the server likes, and are decoded on the fly.
+ * Given the validators of an earlier fetch the request is conditional: an unchanged page costs a {@code 304} and no
+ * body. Redirects are followed within {@code http}. Thread-safe, one {@link Response} per thread at a time.
+ * </p>
+ * @author michaelb
+ */
+public class HttpFetcher implements Closeable {
+    private static final Logger L = getLogger(HttpFetcher.class);
+
+    public static final int DEFAULT_KEEP_ALIVE_MILLIS = 15000;
+    private static final int MAX_REDIRECTS = 5;
+    /** Rather read that much of an abandoned body than lose the connection. */
+    private static final int MAX_DRAIN = 16 * 1024;
+    private static final int MAX_HEADER_LINE = 16 * 1024;
+    private static final String USER_AGENT = "wc-crawler";
+
+    /**
+     * The response being read; closing it returns the connection to the pool if the body was read to the end.
+     */
+    public static final class Response implements Closeable {
+        private final URL url;
+        private final int status;
+        private final String contentType;
+        private final String eTag;
+        private final String lastModified;
+        private final String location;
+        private final InputStream body;
+        private final Connection conn;
+        private final BodyStream raw;
+
+        Response(final URL url, final int status, final Headers headers, final Connection conn, final BodyStream raw,
+                 final InputStream body) {
+            this.url = url;
+            this.status = status;
+            this.contentType = headers.contentType;
+            this.eTag = headers.eTag;
+            this.lastModified = headers.lastModified;
+            this.location = headers.location;
+            this.conn = conn;
+            this.raw = raw;
+            this.body = body;
+        }
+
+        /**
+         * Where the page came from in the end, after the redirects.
+         */
+        public URL getUrl() {
+            return url;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * The decoded body, empty for a {@code 304}.
+         */
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override public void close() {
+            if(body != raw) {
+                try {
+                    body.close(); // frees the inflater
+                }
+                catch (IOException x) {
+                    // the raw stream does not mind
+                }
+            }
+            boolean reusable = raw.reusable;
+            if(reusable && !raw.finished) {
+                try {
+                    reusable = raw.drain(MAX_DRAIN);
+                }
+                catch (IOException x) {
+                    reusable = false;
+                }
+            }
+            conn.release(reusable);
+        }
+    }
+
+    /**
+     * The validators of an earlier fetch of the same page, for a conditional request.
+     */
+    public interface Validators {
+        public String getETag();
+        public String getLastModified();
+    }
+
+    private static final class Headers {
+        private String contentType;
+        private String eTag;
+        private String lastModified;
+        private String location;
+        private String transferEncoding;
+        private String contentEncoding;
+        private String connection;
+        private long contentLength = -1;
+    }
+
+    /**
+     * A socket with its buffered streams, idle in the pool of its site or in use by one response.
+     */
+    private final class Connection {
+        private final String site;
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private long idleSince;
+        private boolean reused;
+
+        Connection(final String site, final Socket socket) throws IOException {
+            this.site = site;
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 1024);
+        }
+
+        void release(final boolean reusable) {
+            if(reusable && running) {
+                idleSince = System.currentTimeMillis();
+                final Deque<Connection> idle = idleOf(site);
+                if(idle.size() < maxIdlePerSite) {
+                    idle.push(this);
+                    return;
+                }
+            }
+            closeQuietly();
+        }
+
+        void closeQuietly() {
+            try {
+                socket.close();
+            }
+            catch (IOException x) {
+                // gone anyway
+            }
+        }
+    }
+
+    /**
+     * The raw body: framed by the {@code Content-Length}, by chunks or by the end of the connection.
+     */
+    private static final class BodyStream extends InputStream {
+        private final InputStream in;
+        private final boolean chunked;
+        /** Bytes left in the body or in the current chunk, -1 if read to the end of the connection. */
+        private long left;
+        private boolean finished;
+        private final boolean reusable;
+        private final byte[] one = new byte[1];
+
+        BodyStream(final InputStream in, final boolean chunked, final long length, final boolean keepAlive) {
+            this.in = in;
+            this.chunked = chunked;
+            this.left = chunked ? 0 : length;
+            this.finished = !chunked && length == 0;
+            this.reusable = keepAlive && (chunked || length >= 0);
+        }
+
+        @Override public int read() throws IOException {
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override public int read(final byte[] b, final int off, final int len) throws IOException {
+            if(finished) return -1;
+            if(chunked && left == 0) {
+                if(!nextChunk()) return -1;
+            }
+            final int n = in.read(b, off, left < 0 ? len : (int) Math.min(len, left));
+            if(n < 0) {
+                if(left > 0) throw new EOFException("Connection closed in the middle of the body");
+                finished = true;
+                return -1;
+            }
+            if(left > 0) {
+                left -= n;
+                if(left == 0 && !chunked) finished = true;
+            }
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException {
+            String line = readLine(in);
+            if(line != null && line.isEmpty()) line = readLine(in); // the CRLF after the previous chunk
+            if(line == null) throw new EOFException("Connection closed in the middle of the chunks");
+            final int ext = line.indexOf(';');
+            try {
+                left = Long.parseLong((ext < 0 ? line : line.substring(0, ext)).trim(), 16);
+            }
+            catch (NumberFormatException x) {
+                throw new IOException("Invalid chunk size: " + line);
+            }
+            if(left == 0) {
+                while((line = readLine(in)) != null && !line.isEmpty()); // trailers
+                finished = true;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Reads off what is left of the body, up to the limit.
+         * @return true if the end of it was reached.
+         */
+        boolean drain(final int limit) throws IOException {
+            final byte[] buf = new byte[1024];
+            int total = 0;
+            while(!finished && total < limit) {
+                final int n = read(buf, 0, buf.length);
+                if(n < 0) break;
+                total += n;
+            }
+            return finished;
+        }
+
+        @Override public void close() {
+            // the Response decides what becomes of the connection
+        }
+    }
+
+    private final ConcurrentMap<String, Deque<Connection>> pools = new ConcurrentHashMap<>();
+    private final int timeoutMillis;
+    private final int maxIdlePerSite;
+    private final long keepAliveMillis;
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * @param timeoutMillis   connect and read timeout.
+     * @param maxIdlePerSite  idle connections to keep per {@code host:port}, the crawler's per host limit is right.
+     * @param keepAliveMillis how long an idle connection is trusted to be still open.
+     */
+    public HttpFetcher(final int timeoutMillis, final int maxIdlePerSite, final long keepAliveMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxIdlePerSite = maxIdlePerSite;
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public HttpFetcher(final int timeoutMillis) {
+        this(timeoutMillis, 4, DEFAULT_KEEP_ALIVE_MILLIS);
+    }
+
+    /**
+     * Unconditional {@code GET}.
+     */
+    public Response get(final URL url) throws IOException {
+        return get(url, null);
+    }
+
+    /**
+     * {@code GET}, conditional if there are validators; follows the redirects.
+     * @throws IOException if the site can't be reached, the response is malformed or there are too many redirects.
+     */
+    public Response get(final URL url, final Validators validators) throws IOException {
+        URL current = url;
+        for(int redirects = 0; ; redirects++) {
+            final Response response = getOnce(current, validators);
+            final int status = response.getStatus();
+            if(status != 301 && status != 302 && status != 303 && status != 307 && status != 308) return response;
+            response.close();
+            final URL next = response.location == null ? null : UrlNormalizer.toCrawlable(
+                new URL(current, response.location).toString());
+            if(next == null) throw new IOException("HTTP " + status + " from " + current + " to nowhere crawlable");
+            if(redirects == MAX_REDIRECTS) throw new IOException("Too many redirects from " + url);
+            current = next;
+        }
+    }
+
+    private Response getOnce(final URL url, final Validators validators) throws IOException {
+        final String site = UrlNormalizer.siteOf(url);
+        while(true) {
+            final Connection conn = checkOut(site, url);
+            try {
+                return exchange(conn, url, validators);
+            }
+            catch (IOException x) {
+                conn.closeQuietly();
+                // the server may have dropped an idle connection just as it was reused: retry on a fresh one
+                if(!conn.reused || x instanceof SocketTimeoutException) throw x;
+                L.debug("Stale connection to {}, reconnecting", site);
+            }
+        }
+    }
+
+    private Connection checkOut(final String site, final URL url) throws IOException {
+        final Deque<Connection> idle = idleOf(site);
+        final long now = System.currentTimeMillis();
+        Connection conn;
+        while((conn = idle.poll()) != null) {
+            if(now - conn.idleSince < keepAliveMillis && !conn.socket.isClosed()) {
+                conn.reused = true;
+                reused.incrementAndGet();
+                return conn;
+            }
+            conn.closeQuietly();
+        }
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(url.getHost(), UrlNormalizer.portOf(url)), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            socket.setTcpNoDelay(true);
+            conn = new Connection(site, socket);
+        }
+        catch (IOException x) {
+            socket.close();
+            throw x;
+        }
+        opened.incrementAndGet();
+        return conn;
+    }
+
+    private Deque<Connection> idleOf(final String site) {
+        Deque<Connection> idle = pools.get(site);
+        if(idle == null) {
+            final Deque<Connection> fresh = new ConcurrentLinkedDeque<>();
+            idle = pools.putIfAbsent(site, fresh);
+            if(idle == null) idle = fresh;
+        }
+        return idle;
+    }
+
+    private Response exchange(final Connection conn, final URL url, final Validators validators) throws IOException {
+        final StringBuilder req = new StringBuilder(256);
+        final String path = url.getFile();
+        req.append("GET ").append(path.isEmpty() ? "/" : path).append(" HTTP/1.1\r\n")
+            .append("Host: ").append(url.getHost());
+        if(url.getPort() != -1) req.append(':').append(url.getPort());
+        req.append("\r\nUser-Agent: ").append(USER_AGENT)
+            .append("\r\nAccept: text/html, */*;q=0.5\r\nAccept-Encoding: gzip, deflate\r\nConnection: keep-alive\r\n");
+        if(validators != null) {
+            if(validators.getETag() != null) req.append("If-None-Match: ").append(validators.getETag()).append("\r\n");
+            if(validators.getLastModified() != null) {
+                req.append("If-Modified-Since: ").append(validators.getLastModified()).append("\r\n");
+            }
+        }
+        req.append("\r\n");
+        conn.out.write(req.toString().getBytes(StandardCharsets.ISO_8859_1));
+        conn.out.flush();
+
+        String statusLine;
+        do { // skip the interim 1xx responses
+            statusLine = readLine(conn.in);
+            if(statusLine == null) throw new EOFException("No response from " + url);
+            if(statusLine.length() < 12 || !statusLine.startsWith("HTTP/1.")) {
+                throw new IOException("Invalid status line from " + url + ": " + statusLine);
+            }
+        } while(statusLine.charAt(9) == '1' && readHeaders(conn.in) != null);
+        final int status;
+        try {
+            status = Integer.parseInt(statusLine.substring(9, 12));
+        }
+        catch (NumberFormatException x) {
+            throw new IOException("Invalid status line from " + url + ": " + statusLine);
+        }
+        final Headers headers = readHeaders(conn.in);
+        final boolean keepAlive = statusLine.startsWith("HTTP/1.1")
+            ? !"close".equalsIgnoreCase(headers.connection) : "keep-alive".equalsIgnoreCase(headers.connection);
+        final boolean noBody = status == 204 || status == 304;
+        final boolean chunked = !noBody && headers.transferEncoding != null
+            && headers.transferEncoding.toLowerCase(Locale.ROOT).contains("chunked");
+        final BodyStream raw = new BodyStream(conn.in, chunked, noBody ? 0 : headers.contentLength, keepAlive);
+        return new Response(url, status, headers, conn, raw, decoded(raw, headers));
+    }
+
+    private static InputStream decoded(final BodyStream raw, final Headers headers) throws IOException {
+        if(raw.finished || headers.contentEncoding == null) return raw;
+        final String encoding = headers.contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if(encoding.equals("gzip") || encoding.equals("x-gzip")) return new GZIPInputStream(raw, 4096);
+        if(encoding.equals("deflate")) {
+            // meant to be zlib wrapped, some servers send it raw
+            final PushbackInputStream in = new PushbackInputStream(raw, 1);
+            final int first = in.read();
+            if(first < 0) return in;
+            in.unread(first);
+            return new InflaterInputStream(in, new Inflater((first & 0x0F) != 8), 4096) {
+                @Override public void close() throws IOException {
+                    inf.end();
+                    super.close();
+                }
+            };
+        }
+        if(encoding.equals("identity")) return raw;
+        throw new IOException("Unsupported Content-Encoding: " + headers.contentEncoding);
+    }
+
+    private static Headers readHeaders(final InputStream in) throws IOException {
+        final Headers headers = new Headers();
+        String line;
+        while((line = readLine(in)) != null && !line.isEmpty()) {
+            final int colon = line.indexOf(':');
+            if(colon <= 0) continue;
+            final String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            final String value = line.substring(colon + 1).trim();
+            switch(name) {
+                case "content-type": headers.contentType = value; break;
+                case "etag": headers.eTag = value; break;
+                case "last-modified": headers.lastModified = value; break;
+                case "location": headers.location = value; break;
+                case "transfer-encoding": headers.transferEncoding = value; break;
+                case "content-encoding": headers.contentEncoding = value; break;
+                case "connection": headers.connection = value; break;
+                case "content-length":
+                    try {
+                        headers.contentLength = Long.parseLong(value);
+                    }
+                    catch (NumberFormatException x) {
+                        throw new IOException("Invalid Content-Length: " + value);
+                    }
+                    break;
+                default: // not needed
+            }
+        }
+        if(line == null) throw new EOFException("Connection closed in the middle of the headers");
+        return headers;
+    }
+
+    /**
+     * One ISO-8859-1 line without the line break, null at the end of the stream.
+     */
+    private static String readLine(final InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder(64);
+        int c;
+        while((c = in.read()) >= 0 && c != '\n') {
+            if(line.length() == MAX_HEADER_LINE) throw new IOException("Header line too long");
+            line.append((char) c);
+        }
+        if(c < 0 && line.length() == 0) return null;
+        final int end = line.length();
+        if(end > 0 && line.charAt(end - 1) == '\r') line.setLength(end - 1);
+        return line.toString();
+    }
+
+    /**
+     * Connections made since the start.
+     */
+    public long getOpened() {
+        return opened.get();
+    }
+
+    /**
+     * Fetches served by an idle connection rather than a new one.
+     */
+    public long getReused() {
+        return reused.get();
+    }
+
+    /**
+     * Closes the idle connections, the ones in use are closed as their responses are.
+     */
+    @Override public void close() {
+        running = false;
+        for(final Deque<Connection> idle: pools.values()) {
+            Connection conn;
+            while((conn = idle.poll()) != null) conn.closeQuietly();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link FrequencyStore} on an embedded RDBMS (H2 by default, anything speaking standard {@code MERGE} will do).
+ * <p>
+ * Each flush is one transaction with prepared-statement batches of upserts adding the deltas to the frequencies,
+ * so the database sees one round trip per {@code batchSize} words rather than per word.
+ * Owns a single connection: meant to be driven by one flusher thread. Several of them write to the same tables in
+ * parallel as the shards of a {@link ShardedFrequencyStore}, each recording the checkpoint epoch of its own.
+ * </p>
+ * @author michaelb
+ */
+public class JdbcFrequencyStore implements FrequencyStore, Closeable {
+    private static final Logger L = getLogger(JdbcFrequencyStore.class);
+
+    public static final String DEFAULT_URL = "jdbc:h2:./wordFreq";
+    public static final String TABLE = "WORD_FREQ";
+    public static final int SITE_LEN = 255;
+    public static final int WORD_LEN = 48;
+    public static final int DEFAULT_BATCH_SIZE = 5000;
+
+    private static final String DDL = "CREATE TABLE IF NOT EXISTS " + TABLE + " (site VARCHAR(" + SITE_LEN
+        + ") NOT NULL, word VARCHAR(" + WORD_LEN + ") NOT NULL, frequency INTEGER NOT NULL, PRIMARY KEY (site, word))";
+
+    private static final String UPSERT = "MERGE INTO " + TABLE + " t USING (VALUES (CAST(? AS VARCHAR(" + SITE_LEN
+        + ")), CAST(? AS VARCHAR(" + WORD_LEN + ")), CAST(? AS INTEGER))) d(site, word, delta)"
+        + " ON t.site = d.site AND t.word = d.word"
+        + " WHEN MATCHED THEN UPDATE SET t.frequency = t.frequency + d.delta"
+        + " WHEN NOT MATCHED THEN INSERT (site, word, frequency) VALUES (d.site, d.word, d.delta)";
+
+    private static final String EPOCH_TABLE = "WC_CHECKPOINT";
+
+    private static final String EPOCH_DDL = "CREATE TABLE IF NOT EXISTS " + EPOCH_TABLE
+        + " (id INTEGER NOT NULL PRIMARY KEY, epoch BIGINT NOT NULL)";
+
+    private static final String EPOCH_UPSERT = "MERGE INTO " + EPOCH_TABLE
+        + " t USING (VALUES (CAST(? AS INTEGER), CAST(? AS BIGINT))) d(id, epoch) ON t.id = d.id"
+        + " WHEN MATCHED THEN UPDATE SET t.epoch = d.epoch"
+        + " WHEN NOT MATCHED THEN INSERT (id, epoch) VALUES (d.id, d.epoch)";
+
+    private static final String SELECT = "SELECT frequency FROM " + TABLE + " WHERE site = ? AND word = ?";
+
+    private final Connection conn;
+    private final PreparedStatement upsert;
+    private final PreparedStatement epochUpsert;
+    /** The row of the epoch table this store records its epochs in. */
+    private final int epochId;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * @param shard the number of this store among the {@link ShardedFrequencyStore} shards, zero if not sharded.
+     */
+    public JdbcFrequencyStore(final String url, final String user, final String password, final int shard)
+        throws SQLException {
+        if(shard < 0) throw new IllegalArgumentException("Invalid shard: " + shard);
+        epochId = shard + 1;
+        conn = DriverManager.getConnection(url, user, password);
+        try (Statement st = conn.createStatement()) {
+            st.execute(DDL);
+            st.execute(EPOCH_DDL);
+        }
+        conn.setAutoCommit(false);
+        upsert = conn.prepareStatement(UPSERT);
+        epochUpsert = conn.prepareStatement(EPOCH_UPSERT);
+    }
+
+    public JdbcFrequencyStore(final String url, final String user, final String password) throws SQLException {
+        this(url, user, password, 0);
+    }
+
+    public JdbcFrequencyStore(final String url, final int shard) throws SQLException {
+        this(url, "", "", shard);
+    }
+
+    public JdbcFrequencyStore(final String url) throws SQLException {
+        this(url, 0);
+    }
+
+    /**
+     * Rows per JDBC batch round trip, a flush may take several of them, all in the one transaction.
+     */
+    public void setBatchSize(final int batchSize) {
+        if(batchSize < 1) throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    @Override public void store(final Collection<WcEntry> deltas) throws IOException {
+        store(deltas, NO_EPOCH);
+    }
+
+    @Override public void store(final Collection<WcEntry> deltas, final long epoch) throws IOException {
+        final int batchSize = this.batchSize;
+        try {
+            int rows = 0;
+            for(final WcEntry e: deltas) {
+                if(e.getWord().length() > WORD_LEN || e.getSource().getKey().length() > SITE_LEN) {
+                    L.warn("Does not fit the schema, dropped: {}", e);
+                    continue;
+                }
+                if(e.getCount() == 0) continue;
+                upsert.setString(1, e.getSource().getKey());
+                upsert.setString(2, e.getWord());
+                upsert.setInt(3, e.getCount());
+                upsert.addBatch();
+                if(++rows % batchSize == 0) upsert.executeBatch();
+            }
+            if(rows % batchSize != 0) upsert.executeBatch();
+            if(epoch != NO_EPOCH) {
+                epochUpsert.setInt(1, epochId);
+                epochUpsert.setLong(2, epoch);
+                epochUpsert.executeUpdate();
+            }
+            else if(rows == 0) return;
+            conn.commit();
+        }
+        catch (SQLException x) {
+            try {
+                upsert.clearBatch();
+                conn.rollback();
+            }
+            catch (SQLException rx) {
+                x.addSuppressed(rx);
+            }
+            throw new IOException("Batch of " + deltas.size() + " deltas failed", x);
+        }
+    }
+
+    @Override public long lastEpoch() throws IOException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT epoch FROM " + EPOCH_TABLE + " WHERE id = " + epochId)) {
+            return rs.next() ? rs.getLong(1) : NO_EPOCH;
+        }
+        catch (SQLException x) {
+            throw new IOException(x);
+        }
+        finally {
+            try {
+                conn.commit();
+            }
+            catch (SQLException x) {
+                L.warn("Commit after the epoch read failed", x);
+            }
+        }
+    }
+
+    /**
+     * Current stored frequency of the {@code [site, word]}, zero if none.
+     */
+    public int frequency(final String site, final String word) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement(SELECT)) {
+            st.setString(1, site);
+            st.setString(2, word);
+            try (ResultSet rs = st.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+            finally {
+                conn.commit();
+            }
+        }
+    }
+
+    @Override public void close() throws IOException {
+        try {
+            upsert.close();
+            epochUpsert.close();
+            conn.close();
+        }
+        catch (SQLException x) {
+            throw new IOException(x);
+        }
+    }
+}
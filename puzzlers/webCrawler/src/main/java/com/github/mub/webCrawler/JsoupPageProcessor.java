@@ -0,0 +1,51 @@
+package com.github.mub.webCrawler;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link PageProcessor} on top of the JSoup DOM: the page text is matched against the word specification.
+ * Kept as the reference for the {@link StreamingPageProcessor}.
+ * @author michaelb
+ */
+public class JsoupPageProcessor implements PageProcessor {
+
+    private final Pattern wordSpec;
+    private final int timeoutMillis;
+
+    public JsoupPageProcessor(final Pattern wordSpec, final int timeoutMillis) {
+        this.wordSpec = wordSpec;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override public Collection<String> process(final URL url, final WordRegistrar words) throws IOException {
+        return process(Jsoup.connect(url.toString()).timeout(timeoutMillis).get(), words);
+    }
+
+    /**
+     * Counts the words and collects the links of an already parsed page.
+     */
+    public Collection<String> process(final Document doc, final WordRegistrar words) {
+        final String text = doc.text();
+        final WordCounts counts = new WordCounts();
+        final Matcher m = wordSpec.matcher(text);
+        while(m.find()) counts.add(text, m.start(), m.end());
+        words.registerAll(counts);
+
+        final List<String> links = new ArrayList<>();
+        for(final Element a: doc.select("a[href]")) {
+            final String href = a.absUrl("href");
+            if(!href.isEmpty()) links.add(href);
+        }
+        return links;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.mub.webCrawler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent latency histogram in the HDR manner: log-linear buckets, each power of two split in {@code 8}, so any
+ * value lands in a bucket within 12.5% of it whatever the range, nanoseconds to hours in under 500 buckets.
+ * <p>
+ * {@link #record(long)} is a couple of atomic increments and no allocation, fit for the hot path.
+ * The readers copy the counts into an array of their own with {@link #copyCounts(long[])} and compute the
+ * percentiles from it; the difference of two copies gives the percentiles of the interval between them.
+ * </p>
+ * @author michaelb
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    /** Every positive {@code long}: the first {@code SUB} values exactly, then {@code SUB} per power of two. */
+    public static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long value) {
+        final long v = value < 0 ? 0 : value;
+        counts.incrementAndGet(indexOf(v));
+        long m;
+        while(v > (m = max.get()) && !max.compareAndSet(m, v));
+    }
+
+    static int indexOf(final long v) {
+        if(v < SUB) return (int) v;
+        final int exp = 63 - Long.numberOfLeadingZeros(v);
+        return (exp - SUB_BITS + 1 << SUB_BITS) + (int) (v >>> exp - SUB_BITS & SUB - 1);
+    }
+
+    /**
+     * The smallest value of the bucket.
+     */
+    static long lowerBound(final int index) {
+        if(index < SUB) return index;
+        final int exp = (index >>> SUB_BITS) + SUB_BITS - 1;
+        return (long) (SUB + (index & SUB - 1)) << exp - SUB_BITS;
+    }
+
+    /**
+     * The largest value recorded since the start.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Copies the counts so far into the array of {@link #BUCKETS} length.
+     * @return the total count.
+     */
+    public long copyCounts(final long[] into) {
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) total += into[i] = counts.get(i);
+        return total;
+    }
+
+    /**
+     * The value at the percentile of the counts, as the upper bound of its bucket; zero if none.
+     * @param fraction 0.5 for the median, 0.99 for the 99th percentile.
+     */
+    public static long percentile(final long[] counts, final long total, final double fraction) {
+        if(total == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if(seen >= rank) return i + 1 < BUCKETS ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * The percentile since the start; allocates the copy of the counts, not for the hot path.
+     */
+    public long percentile(final double fraction) {
+        final long[] copy = new long[BUCKETS];
+        return percentile(copy, copyCounts(copy), fraction);
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.mub.webCrawler;
+
+import java.util.Arrays;
+
+/**
+ * {@code (siteId, wordId) -> count} table for one accumulator stripe: the pair is packed into a {@code long} key,
+ * open addressing over parallel primitive arrays. Not thread-safe, reusable with {@link #clear()}.
+ * @author michaelb
+ */
+final class PackedCounts {
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    PackedCounts(final int capacity) {
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * Never zero, zero marks an empty slot.
+     */
+    static long pack(final int siteId, final int wordId) {
+        return (long) (siteId + 1) << 32 | wordId & 0xffffffffL;
+    }
+
+    static int siteOf(final long key) {
+        return (int) (key >>> 32) - 1;
+    }
+
+    static int wordOf(final long key) {
+        return (int) key;
+    }
+
+    /**
+     * MurmurHash3 finalizer: the high half picks the stripe, the low half the slot.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    void add(final long key, final long hash, final int count) {
+        final int mask = keys.length - 1;
+        for(int slot = (int) hash & mask; ; slot = slot + 1 & mask) {
+            final long k = keys[slot];
+            if(k == key) {
+                counts[slot] += count;
+                return;
+            }
+            if(k == 0) {
+                keys[slot] = key;
+                counts[slot] = count;
+                if(++size * 4 >= keys.length * 3) grow();
+                return;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * The key in the slot, zero if the slot is empty.
+     */
+    long keyAt(final int slot) {
+        return keys[slot];
+    }
+
+    int countAt(final int slot) {
+        return counts[slot];
+    }
+
+    void clear() {
+        if(size == 0) return;
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldCounts = counts;
+        keys = new long[oldKeys.length << 1];
+        counts = new int[keys.length];
+        final int mask = keys.length - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == 0) continue;
+            int slot = (int) mix(oldKeys[i]) & mask;
+            while(keys[slot] != 0) slot = slot + 1 & mask;
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.github.mub.webCrawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental decoder of the page bytes into the {@link HtmlTokenizer}'s own char buffer: no {@code String} and no
+ * char array of the page, no {@code Reader} per page.
+ * <p>
+ * The bytes are read from the body stream into a buffer of the decoder's, the charset is sniffed once from the first
+ * of them: the byte order mark, else the one declared by the {@code Content-Type}, else the one of a {@code <meta>}
+ * tag, else UTF-8. The decoders are kept per charset and reset per page, so a decoder reused for page after page
+ * allocates nothing in the steady state. The malformed input is replaced, as by an {@code InputStreamReader}.
+ * </p>
+ * Reusable but not thread-safe: one instance per thread at a time.
+ * @author michaelb
+ */
+public class PageDecoder implements HtmlTokenizer.CharSource {
+
+    public static final int DEFAULT_BUFFER = 16 * 1024;
+    /** How far into the page a {@code <meta>} charset is looked for. */
+    static final int SNIFF_BYTES = 1024;
+
+    private final ByteBuffer bytes;
+    private final Map<Charset, CharsetDecoder> decoders = new HashMap<>();
+    private InputStream in;
+    /** The bytes to decode, in the read mode: the decoder's buffer or a page read whole. */
+    private ByteBuffer src;
+    private CharsetDecoder decoder;
+    private boolean eof;
+    private boolean flushed;
+
+    public PageDecoder() {
+        this(DEFAULT_BUFFER);
+    }
+
+    /**
+     * @param bufferSize the bytes read from the stream at a time, {@value #SNIFF_BYTES} at least.
+     */
+    public PageDecoder(final int bufferSize) {
+        if(bufferSize < SNIFF_BYTES) throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+        bytes = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Starts on a page streamed in, reads up to its first {@value #SNIFF_BYTES} bytes for the charset.
+     * @param declared the charset of the {@code Content-Type}, null if none.
+     * @return the charset of the page.
+     */
+    public Charset open(final InputStream in, final Charset declared) throws IOException {
+        this.in = in;
+        src = bytes;
+        eof = false;
+        bytes.clear();
+        while(bytes.position() < SNIFF_BYTES && !eof) fill();
+        bytes.flip();
+        return start(declared);
+    }
+
+    /**
+     * Starts on a page read whole, from its position to its limit.
+     * @param declared the charset of the {@code Content-Type}, null if none.
+     * @return the charset of the page.
+     */
+    public Charset open(final ByteBuffer page, final Charset declared) {
+        in = null;
+        src = page;
+        eof = true;
+        return start(declared);
+    }
+
+    private Charset start(final Charset declared) {
+        final Charset charset = sniff(src, declared);
+        decoder = decoders.get(charset);
+        if(decoder == null) {
+            decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decoders.put(charset, decoder);
+        }
+        decoder.reset();
+        flushed = false;
+        return charset;
+    }
+
+    /**
+     * Reads more of the stream into the bytes buffer in its write mode, straight into its array.
+     */
+    private void fill() throws IOException {
+        final int n = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        if(n < 0) eof = true;
+        else bytes.position(bytes.position() + n);
+    }
+
+    @Override public boolean read(final CharBuffer into) throws IOException {
+        while(!flushed) {
+            if(decoder.decode(src, into, eof).isOverflow()) return true;
+            if(!eof) { // underflow: the stream has more
+                src.compact();
+                fill();
+                src.flip();
+                continue;
+            }
+            if(decoder.flush(into) == CoderResult.OVERFLOW) return true;
+            flushed = true;
+        }
+        in = null;
+        return false;
+    }
+
+    /**
+     * The charset of the page, skips the byte order mark if any.
+     */
+    static Charset sniff(final ByteBuffer head, final Charset declared) {
+        final int p = head.position(), n = head.remaining();
+        if(n >= 3 && head.get(p) == (byte) 0xEF && head.get(p + 1) == (byte) 0xBB && head.get(p + 2) == (byte) 0xBF) {
+            head.position(p + 3);
+            return StandardCharsets.UTF_8;
+        }
+        if(n >= 2 && head.get(p) == (byte) 0xFE && head.get(p + 1) == (byte) 0xFF) {
+            head.position(p + 2);
+            return StandardCharsets.UTF_16BE;
+        }
+        if(n >= 2 && head.get(p) == (byte) 0xFF && head.get(p + 1) == (byte) 0xFE) {
+            head.position(p + 2);
+            return StandardCharsets.UTF_16LE;
+        }
+        if(declared != null) return declared;
+        final Charset meta = metaCharset(head);
+        return meta == null ? StandardCharsets.UTF_8 : meta;
+    }
+
+    /**
+     * The {@code charset} of a {@code <meta charset>} or a {@code <meta http-equiv content>} among the first bytes,
+     * null if none. A UTF-16 one can't be true of the bytes it was read from as ASCII: taken as UTF-8.
+     */
+    private static Charset metaCharset(final ByteBuffer head) {
+        final int end = Math.min(head.limit(), head.position() + SNIFF_BYTES);
+        for(int i = head.position(); i < end; i++) {
+            if(head.get(i) != '<' || !asciiMatches(head, i + 1, end, "meta")) continue;
+            for(int j = i + 5; j < end && head.get(j) != '>'; j++) {
+                if(!asciiMatches(head, j, end, "charset")) continue;
+                int k = j + "charset".length();
+                while(k < end && head.get(k) == ' ') k++;
+                if(k == end || head.get(k) != '=') continue;
+                k++;
+                while(k < end && (head.get(k) == ' ' || head.get(k) == '"' || head.get(k) == '\'')) k++;
+                final int start = k;
+                while(k < end && isNameByte(head.get(k))) k++;
+                final char[] name = new char[k - start];
+                for(int c = 0; c < name.length; c++) name[c] = (char) head.get(start + c);
+                final Charset charset = forName(new String(name));
+                if(charset == null) return null;
+                return charset.name().startsWith("UTF-16") ? StandardCharsets.UTF_8 : charset;
+            }
+        }
+        return null;
+    }
+
+    private static boolean asciiMatches(final ByteBuffer bytes, final int at, final int end, final String lower) {
+        if(end - at < lower.length()) return false;
+        for(int i = 0; i < lower.length(); i++) {
+            if(Character.toLowerCase((char) bytes.get(at + i)) != lower.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isNameByte(final byte b) {
+        return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '-' || b == '_'
+            || b == '.' || b == ':';
+    }
+
+    /**
+     * The charset by the name, null if unknown or illegal.
+     */
+    static Charset forName(final String name) {
+        try {
+            return name.isEmpty() ? null : Charset.forName(name);
+        }
+        catch (IllegalArgumentException x) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.mub.webCrawler;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+
+/**
+ * Fetches and parses one page: its words go to the registrar, its links come back to the crawler.
+ * Called concurrently by the crawler threads, implementations must be thread-safe.
+ * @author michaelb
+ */
+public interface PageProcessor {
+
+    /**
+     * @param url   the page to process.
+     * @param words the registrar bound to the page's site.
+     * @return absolute URLs of the links found on the page, filtering is up to the crawler.
+     * @throws IOException if the page could not be fetched.
+     */
+    public Collection<String> process(final URL url, final WordRegistrar words) throws IOException;
+
+}
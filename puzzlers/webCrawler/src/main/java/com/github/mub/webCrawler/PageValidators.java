@@ -0,0 +1,319 @@
+package com.github.mub.webCrawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code ETag} and {@code Last-Modified} of the pages counted, with their links, so that a re-crawl asks for
+ * each page conditionally and, on a {@code 304}, follows the same links without counting the page again.
+ * Keyed by the normalized URL, the same as the visited set. Kept in memory, saved to a file between the runs.
+ * <p>
+ * For the incremental re-crawls an entry also holds the hash of the page's content and the words the page
+ * contributed to the counts, so that a changed page adds only the difference and a page served again unchanged,
+ * validators or not, is not parsed at all. That's a word table per page: the memory and the file grow accordingly.
+ * </p>
+ * <p>
+ * The file is saved at the end of a crawl. With a {@link Checkpointer} the changes of each epoch are also appended to
+ * a journal with the epoch's deltas, so that after a crash the validators are those of the counts the store has.
+ * </p>
+ * @author michaelb
+ */
+public class PageValidators {
+    static final int MAGIC = 0x57435056; // WCPV
+    static final int VERSION = 2;
+    private static final int MAX_STRING = 0xFFFF / 3;
+
+    /**
+     * What is known of one page.
+     */
+    public static final class Entry implements HttpFetcher.Validators {
+        private final String eTag;
+        private final String lastModified;
+        private final String[] links;
+        private final long contentHash;
+        /** The page's words and their counts, null if not kept. */
+        private final String[] words;
+        private final int[] counts;
+
+        public Entry(final String eTag, final String lastModified, final Collection<String> links) {
+            this(eTag, lastModified, links.toArray(new String[links.size()]), 0, null, null);
+        }
+
+        /**
+         * With the content, for the incremental re-crawls.
+         * @param counts the words the page contributed, copied; only the ones the store can keep, the others never
+         *               count anyway.
+         */
+        public static Entry withContent(final String eTag, final String lastModified, final Collection<String> links,
+                                        final long contentHash, final WordCounts counts) {
+            final String[] words = new String[counts.size()];
+            final int[] wordCounts = new int[counts.size()];
+            int n = 0;
+            for(int slot = 0; slot < counts.capacity(); slot++) {
+                final String word = counts.wordAt(slot);
+                if(word == null || word.length() > JdbcFrequencyStore.WORD_LEN) continue;
+                words[n] = word;
+                wordCounts[n++] = counts.countAt(slot);
+            }
+            return new Entry(eTag, lastModified, links.toArray(new String[links.size()]), contentHash,
+                Arrays.copyOf(words, n), Arrays.copyOf(wordCounts, n));
+        }
+
+        private Entry(final String eTag, final String lastModified, final String[] links, final long contentHash,
+                      final String[] words, final int[] counts) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.links = links;
+            this.contentHash = contentHash;
+            this.words = words;
+            this.counts = counts;
+        }
+
+        /**
+         * The same page under new validators.
+         */
+        public Entry withValidators(final String eTag, final String lastModified) {
+            return new Entry(eTag, lastModified, links, contentHash, words, counts);
+        }
+
+        @Override public String getETag() {
+            return eTag;
+        }
+
+        @Override public String getLastModified() {
+            return lastModified;
+        }
+
+        public List<String> getLinks() {
+            return Collections.unmodifiableList(Arrays.asList(links));
+        }
+
+        /**
+         * True if the content hash and the words are kept.
+         */
+        public boolean hasContent() {
+            return words != null;
+        }
+
+        public long getContentHash() {
+            return contentHash;
+        }
+
+        /**
+         * Adds the words the page contributed, times the factor, to the counts: -1 to take them back.
+         */
+        public void addWordsTo(final WordCounts into, final int factor) {
+            if(words != null) for(int i = 0; i < words.length; i++) into.add(words[i], counts[i] * factor);
+        }
+    }
+
+    /** The removal of a page in the changes. */
+    private static final Entry REMOVED = new Entry(null, null, new String[0], 0, null, null);
+
+    private final Map<String, Entry> pages = new ConcurrentHashMap<>();
+    /** The pages put or removed since the last {@link #takeChanges()}, null if not tracked. */
+    private volatile Map<String, Entry> changes;
+
+    public Entry get(final String normalizedUrl) {
+        return pages.get(normalizedUrl);
+    }
+
+    public void put(final String normalizedUrl, final Entry entry) {
+        pages.put(normalizedUrl, entry);
+        final Map<String, Entry> changes = this.changes;
+        if(changes != null) changes.put(normalizedUrl, entry);
+    }
+
+    public Entry remove(final String normalizedUrl) {
+        final Entry removed = pages.remove(normalizedUrl);
+        final Map<String, Entry> changes = this.changes;
+        if(changes != null && removed != null) changes.put(normalizedUrl, REMOVED);
+        return removed;
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    /**
+     * Keeps the puts and the removals from now on for {@link #takeChanges()}.
+     */
+    void trackChanges() {
+        if(changes == null) changes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The pages put or removed since the previous call, the removed ones mapped to an entry the
+     * {@link #appendChanges(DataOutputStream, long, Map)} knows; a swap, to be called with the pages held off.
+     */
+    Map<String, Entry> takeChanges() {
+        final Map<String, Entry> taken = changes;
+        changes = new ConcurrentHashMap<>();
+        return taken;
+    }
+
+    /**
+     * Appends the changes of an epoch to a journal as one record: its length, then the epoch, the count and the
+     * changes, each the URL, whether present and the entry as in the saved file.
+     */
+    static void appendChanges(final DataOutputStream journal, final long epoch, final Map<String, Entry> changes)
+        throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(epoch);
+        int fit = 0;
+        for(final String url: changes.keySet()) if(fits(url)) fit++;
+        out.writeInt(fit);
+        for(final Map.Entry<String, Entry> e: changes.entrySet()) {
+            if(!fits(e.getKey())) continue;
+            out.writeUTF(e.getKey());
+            out.writeBoolean(e.getValue() != REMOVED);
+            if(e.getValue() != REMOVED) writeEntry(out, e.getValue());
+        }
+        out.flush();
+        journal.writeInt(bytes.size());
+        bytes.writeTo(journal);
+    }
+
+    /**
+     * Applies the changes of the journal's epochs up to the given one, in their order; a record cut short by a
+     * crash ends the journal.
+     * @return the records applied.
+     */
+    public int replay(final File journal, final long lastEpoch) throws IOException {
+        if(!journal.exists()) return 0;
+        int applied = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+            while(true) {
+                final byte[] record;
+                try {
+                    record = new byte[in.readInt()];
+                    in.readFully(record);
+                }
+                catch (EOFException x) {
+                    break;
+                }
+                final DataInputStream changes = new DataInputStream(new ByteArrayInputStream(record));
+                if(changes.readLong() > lastEpoch) continue;
+                for(int n = changes.readInt(); n > 0; n--) {
+                    final String url = changes.readUTF();
+                    if(changes.readBoolean()) pages.put(url, readEntry(changes, VERSION));
+                    else pages.remove(url);
+                }
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Reads the file saved by an earlier run, nothing if there's none.
+     */
+    public void load(final File file) throws IOException {
+        if(!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final int version;
+            if(in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+                throw new IOException("Not a validators file: " + file);
+            }
+            for(int n = in.readInt(); n > 0; n--) {
+                final String url = in.readUTF();
+                pages.put(url, readEntry(in, version));
+            }
+        }
+    }
+
+    private static Entry readEntry(final DataInputStream in, final int version) throws IOException {
+        final String eTag = readNullable(in), lastModified = readNullable(in);
+        final String[] links = new String[in.readInt()];
+        for(int i = 0; i < links.length; i++) links[i] = in.readUTF();
+        long contentHash = 0;
+        String[] words = null;
+        int[] counts = null;
+        if(version > 1 && in.readBoolean()) {
+            contentHash = in.readLong();
+            words = new String[in.readInt()];
+            counts = new int[words.length];
+            for(int i = 0; i < words.length; i++) {
+                words[i] = in.readUTF();
+                counts[i] = in.readInt();
+            }
+        }
+        return new Entry(eTag, lastModified, links, contentHash, words, counts);
+    }
+
+    /**
+     * Writes them all to a temporary file, then moves it over the old one.
+     */
+    public void save(final File file) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            final Map<String, Entry> copy = new HashMap<>(pages);
+            for(final Iterator<String> urls = copy.keySet().iterator(); urls.hasNext();) {
+                if(!fits(urls.next())) urls.remove();
+            }
+            out.writeInt(copy.size());
+            for(final Map.Entry<String, Entry> e: copy.entrySet()) {
+                out.writeUTF(e.getKey());
+                writeEntry(out, e.getValue());
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeEntry(final DataOutputStream out, final Entry entry) throws IOException {
+        writeNullable(out, fits(entry.eTag) ? entry.eTag : null);
+        writeNullable(out, fits(entry.lastModified) ? entry.lastModified : null);
+        int fit = 0;
+        for(final String link: entry.links) if(fits(link)) fit++;
+        out.writeInt(fit);
+        for(final String link: entry.links) if(fits(link)) out.writeUTF(link);
+        // the words are short, JdbcFrequencyStore.WORD_LEN at the most:
+        out.writeBoolean(entry.words != null);
+        if(entry.words != null) {
+            out.writeLong(entry.contentHash);
+            out.writeInt(entry.words.length);
+            for(int i = 0; i < entry.words.length; i++) {
+                out.writeUTF(entry.words[i]);
+                out.writeInt(entry.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Within {@link DataOutputStream#writeUTF(String)}'s 64K bytes whatever the characters.
+     */
+    private static boolean fits(final String s) {
+        return s == null || s.length() <= MAX_STRING;
+    }
+
+    private static String readNullable(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(final DataOutputStream out, final String s) throws IOException {
+        out.writeBoolean(s != null);
+        if(s != null) out.writeUTF(s);
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.mub.webCrawler;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch the {@link FrequencyStore} applied in part: the {@link #getUnstored() rest} is to be retried, the stored
+ * part must not be.
+ * @author michaelb
+ */
+public class PartialStoreException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /** Not serialized: the deltas are only of use to the accumulator that failed to store them. */
+    private final transient List<WcEntry> unstored;
+
+    public PartialStoreException(final String message, final List<WcEntry> unstored, final Throwable cause) {
+        super(message, cause);
+        this.unstored = Collections.unmodifiableList(unstored);
+    }
+
+    /**
+     * The deltas of the batch not stored, none if the exception was deserialized.
+     */
+    public List<WcEntry> getUnstored() {
+        return unstored == null ? Collections.<WcEntry>emptyList() : unstored;
+    }
+}
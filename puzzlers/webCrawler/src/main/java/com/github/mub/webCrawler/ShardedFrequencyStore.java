@@ -0,0 +1,154 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link FrequencyStore} spreading the sites over several stores, each with a connection of its own, written to in
+ * parallel by a small pool of writer threads.
+ * <p>
+ * A site always goes to the same shard, so the shards never write the same rows: there is no cross-site transaction
+ * and no lock contention between them. Each shard commits its part of a flush on its own; if some fail, the others
+ * stay committed and a {@link PartialStoreException} carries the failed parts back for a retry.
+ * </p>
+ * <p>
+ * Each shard records the checkpoint epochs in its own row, and skips a batch of an epoch it has already stored, so
+ * on {@code --resume} the last checkpoint is applied to the shards that missed it and to no other.
+ * </p>
+ * @author michaelb
+ */
+public class ShardedFrequencyStore implements FrequencyStore, Closeable {
+    private static final Logger L = getLogger(ShardedFrequencyStore.class);
+
+    private final List<? extends FrequencyStore> shards;
+    /** The epoch last stored by each shard; the flusher thread's. */
+    private final long[] epochs;
+    private final ExecutorService writers;
+
+    /**
+     * @param shards owned by this store from now on: closed with it if {@link Closeable}.
+     */
+    public ShardedFrequencyStore(final List<? extends FrequencyStore> shards) throws IOException {
+        if(shards.isEmpty()) throw new IllegalArgumentException("No shards");
+        this.shards = new ArrayList<>(shards);
+        epochs = new long[shards.size()];
+        for(int i = 0; i < epochs.length; i++) epochs[i] = shards.get(i).lastEpoch();
+        writers = shards.size() == 1 ? null : Executors.newFixedThreadPool(shards.size(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "wc-writer-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * The shard the site's counts go to.
+     */
+    public int shardOf(final String site) {
+        return (int) ((UrlNormalizer.mix(site.hashCode()) >>> 1) % shards.size());
+    }
+
+    @Override public void store(final Collection<WcEntry> deltas) throws IOException {
+        store(deltas, NO_EPOCH);
+    }
+
+    /**
+     * With an epoch, every shard records it, even the ones with nothing to store, so that they all can tell the
+     * epochs they have from the ones they missed.
+     */
+    @Override public void store(final Collection<WcEntry> deltas, final long epoch) throws IOException {
+        final List<List<WcEntry>> parts = new ArrayList<>(shards.size());
+        for(int i = 0; i < shards.size(); i++) parts.add(new ArrayList<WcEntry>());
+        for(final WcEntry e: deltas) parts.get(shardOf(e.getSource().getKey())).add(e);
+
+        final List<Integer> due = new ArrayList<>(shards.size());
+        for(int i = 0; i < shards.size(); i++) {
+            if(epoch == NO_EPOCH ? !parts.get(i).isEmpty() : epoch > epochs[i]) due.add(i);
+        }
+        if(writers == null) {
+            if(!due.isEmpty()) shards.get(0).store(parts.get(0), epoch);
+            if(epoch != NO_EPOCH) epochs[0] = epoch;
+            return;
+        }
+        final List<Future<Void>> writes = new ArrayList<>(due.size());
+        for(final int i: due) {
+            writes.add(writers.submit(new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    shards.get(i).store(parts.get(i), epoch);
+                    return null;
+                }
+            }));
+        }
+        final List<WcEntry> unstored = new ArrayList<>();
+        Throwable failure = null;
+        boolean interrupted = false;
+        for(int j = 0; j < due.size(); j++) {
+            final int i = due.get(j);
+            try {
+                writes.get(j).get();
+                if(epoch != NO_EPOCH) epochs[i] = epoch;
+            }
+            catch (InterruptedException x) {
+                // a shard may commit yet: neither safe to retry its part nor to leave it, wait for it all the same
+                interrupted = true;
+                j--;
+            }
+            catch (ExecutionException x) {
+                L.warn("Shard {} failed to store {} deltas", i, parts.get(i).size());
+                unstored.addAll(parts.get(i));
+                if(failure == null) failure = x.getCause();
+                else failure.addSuppressed(x.getCause());
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+        if(failure != null) {
+            throw new PartialStoreException(unstored.size() + " of " + deltas.size() + " deltas not stored", unstored,
+                failure);
+        }
+    }
+
+    /**
+     * The oldest of the shards' epochs: the batches of the epochs after it are missing from some of the shards.
+     */
+    @Override public long lastEpoch() throws IOException {
+        long result = Long.MAX_VALUE;
+        for(final long epoch: epochs) result = Math.min(result, epoch);
+        return result;
+    }
+
+    @Override public void close() throws IOException {
+        if(writers != null) writers.shutdownNow();
+        IOException failure = null;
+        for(final FrequencyStore shard: shards) {
+            if(!(shard instanceof Closeable)) continue;
+            try {
+                ((Closeable) shard).close();
+            }
+            catch (IOException x) {
+                if(failure == null) failure = x;
+                else failure.addSuppressed(x);
+            }
+        }
+        if(failure != null) throw failure;
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.mub.webCrawler;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The ignored words as a compact char trie, matched straight against a window of the tokenizer's text: a rejected
+ * token is never made into a {@code String}, and most of the tokens are told apart by their length or first char.
+ * <p>
+ * The nodes are laid out breadth first in parallel arrays, the children of a node next to each other and sorted by
+ * their char, the root's are indexed by the ASCII first chars; a bit mask of the stop words' lengths rejects the
+ * other lengths before the trie is entered. The match is in lower case, char by char as the {@link WordCounts} are
+ * counted.
+ * </p>
+ * Immutable, thread-safe.
+ * @author michaelb
+ */
+public final class StopWords {
+
+    public static final StopWords NONE = of(new ArrayList<String>(0));
+
+    /** Past this many children a node's are binary searched rather than scanned. */
+    private static final int SCAN_LIMIT = 8;
+    /** The root's children are looked up directly for these first chars. */
+    private static final int ASCII = 128;
+
+    /** The char leading to each node, the root's unused. */
+    private final char[] labels;
+    /** The first child of each node. */
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final boolean[] terminal;
+    /** The root's child by the ASCII char, -1 if none. */
+    private final int[] roots = new int[ASCII];
+    /** Bit {@code n} set if there is a stop word of length {@code n}, the bit 63 for all the longer ones. */
+    private final long lengths;
+    private final int size;
+
+    private StopWords(final char[] labels, final int[] firstChild, final int[] childCount, final boolean[] terminal,
+                      final long lengths, final int size) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.terminal = terminal;
+        this.lengths = lengths;
+        this.size = size;
+        for(int c = 0; c < ASCII; c++) roots[c] = search(0, (char) c);
+    }
+
+    /**
+     * @param words in any case, the empty ones are ignored.
+     */
+    public static StopWords of(final Collection<String> words) {
+        final TreeSet<String> sorted = new TreeSet<>();
+        for(final String word: words) {
+            if(word.isEmpty()) continue;
+            final char[] lower = new char[word.length()];
+            for(int i = 0; i < lower.length; i++) lower[i] = Character.toLowerCase(word.charAt(i));
+            sorted.add(new String(lower));
+        }
+        final List<String> list = new ArrayList<>(sorted);
+        long lengths = 0;
+        for(final String word: list) lengths |= 1L << Math.min(word.length(), 63);
+
+        // breadth first: a node is the range of the sorted words sharing its prefix
+        final int max = 1 + totalChars(list);
+        char[] labels = new char[max];
+        int[] firstChild = new int[max], childCount = new int[max];
+        boolean[] terminal = new boolean[max];
+        int[] from = new int[max], to = new int[max], depth = new int[max];
+        int nodes = 1;
+        from[0] = 0;
+        to[0] = list.size();
+        for(int node = 0; node < nodes; node++) {
+            int i = from[node];
+            final int d = depth[node];
+            if(i < to[node] && list.get(i).length() == d) {
+                terminal[node] = true; // sorted: the word equal to the prefix comes first
+                i++;
+            }
+            firstChild[node] = nodes;
+            while(i < to[node]) {
+                final char c = list.get(i).charAt(d);
+                int j = i + 1;
+                while(j < to[node] && list.get(j).charAt(d) == c) j++;
+                labels[nodes] = c;
+                from[nodes] = i;
+                to[nodes] = j;
+                depth[nodes] = d + 1;
+                nodes++;
+                childCount[node]++;
+                i = j;
+            }
+        }
+        labels = Arrays.copyOf(labels, nodes);
+        firstChild = Arrays.copyOf(firstChild, nodes);
+        childCount = Arrays.copyOf(childCount, nodes);
+        terminal = Arrays.copyOf(terminal, nodes);
+        return new StopWords(labels, firstChild, childCount, terminal, lengths, list.size());
+    }
+
+    private static int totalChars(final List<String> words) {
+        int total = 0;
+        for(final String word: words) total += word.length();
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * True if the word at {@code [start, end)} of the text is a stop word, in any case.
+     */
+    public boolean contains(final CharSequence text, final int start, final int end) {
+        if(end <= start || (lengths & 1L << Math.min(end - start, 63)) == 0) return false;
+        if(text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+            // the tokenizer's view of its char array: no virtual call per char
+            final CharBuffer view = (CharBuffer) text;
+            final int offset = view.arrayOffset() + view.position();
+            return contains(view.array(), offset + start, offset + end);
+        }
+        int node = root(lower(text.charAt(start)));
+        for(int i = start + 1; i < end && node >= 0; i++) node = search(node, lower(text.charAt(i)));
+        return node >= 0 && terminal[node];
+    }
+
+    /**
+     * True if the word at {@code [start, end)} of the chars is a stop word, in any case.
+     */
+    public boolean contains(final char[] chars, final int start, final int end) {
+        if(end <= start || (lengths & 1L << Math.min(end - start, 63)) == 0) return false;
+        int node = root(lower(chars[start]));
+        for(int i = start + 1; i < end && node >= 0; i++) node = search(node, lower(chars[i]));
+        return node >= 0 && terminal[node];
+    }
+
+    public boolean contains(final String word) {
+        return contains(word, 0, word.length());
+    }
+
+    private static char lower(final char c) {
+        if(c < ASCII) return c >= 'A' && c <= 'Z' ? (char) (c | 0x20) : c;
+        return Character.toLowerCase(c);
+    }
+
+    private int root(final char c) {
+        return c < ASCII ? roots[c] : search(0, c);
+    }
+
+    private int search(final int node, final char c) {
+        int lo = firstChild[node], hi = lo + childCount[node] - 1;
+        if(hi - lo < SCAN_LIMIT) {
+            for(int i = lo; i <= hi; i++) {
+                if(labels[i] == c) return i;
+                if(labels[i] > c) return -1;
+            }
+            return -1;
+        }
+        while(lo <= hi) {
+            final int mid = lo + hi >>> 1;
+            if(labels[mid] < c) lo = mid + 1;
+            else if(labels[mid] > c) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,411 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link PageProcessor} counting the words straight off the HTTP stream with the {@link HtmlTokenizer},
+ * no {@code String} of the page, no DOM. The bytes are decoded by a {@link PageDecoder} into the tokenizer's buffer,
+ * the words of a page are counted into a private {@link WordCounts} and registered in one go once the page ends.
+ * The buffers, the decoders and the counts are pooled with the workers: a page allocates little more than its
+ * links and the words it adds.
+ * <p>
+ * The pages come through a keep-alive {@link HttpFetcher}. With {@link PageValidators} the fetches are conditional:
+ * a page unchanged since it was counted is not counted again, its links are the ones remembered.
+ * </p>
+ * <p>
+ * In the incremental mode the counts follow the pages as they are now rather than add up over the crawls: a page
+ * served again is read whole and hashed first, and if the content is the same as before it is not parsed at all;
+ * a changed page registers only the difference between its new and its old word counts, a page gone (404, 410)
+ * takes its old counts back. The validators change after the words are registered, with the page's epoch lock
+ * held: a {@link Checkpointer} journals them with the counts.
+ * </p>
+ * <p>
+ * With a {@link CrawlArchive.Recorder} the responses are recorded as they are fetched, each page read whole first,
+ * for the {@link ArchivePageProcessor} to replay them offline.
+ * </p>
+ * @author michaelb
+ */
+public class StreamingPageProcessor implements PageProcessor {
+    private static final Logger L = getLogger(StreamingPageProcessor.class);
+
+    /**
+     * Per page word counts and absolute links.
+     */
+    private static final class PageSink implements HtmlTokenizer.Sink {
+        private final WordCounts counts;
+        private URL base;
+        private StopWords ignored;
+        private List<String> links;
+        private int words;
+
+        PageSink(final WordCounts counts) {
+            this.counts = counts;
+        }
+
+        /**
+         * Starts on a new page.
+         */
+        PageSink reset(final URL base, final StopWords ignored) {
+            this.base = base;
+            this.ignored = ignored;
+            this.links = new ArrayList<>();
+            this.words = 0;
+            return this;
+        }
+
+        @Override public void word(final CharSequence text, final int start, final int end) {
+            words++;
+            if(!ignored.contains(text, start, end)) counts.add(text, start, end);
+        }
+
+        @Override public void link(final String href) {
+            try {
+                links.add(new URL(base, href).toString());
+            }
+            catch (MalformedURLException x) {
+                // not a link we could follow
+            }
+        }
+    }
+
+    /**
+     * The reusable state of one page processing: the decoder and the tokenizer buffers, the local word counts.
+     */
+    private static final class Worker {
+        private final HtmlTokenizer tokenizer;
+        private final PageDecoder decoder = new PageDecoder();
+        private final WordCounts counts = new WordCounts();
+        private final PageSink sink = new PageSink(counts);
+        /** The page read whole, the incremental and the recording modes only. */
+        private byte[] body = new byte[BODY_BUFFER];
+        private ByteBuffer bodyView;
+
+        Worker(final WordSpec wordSpec) {
+            tokenizer = new HtmlTokenizer(wordSpec);
+        }
+
+        /**
+         * @return the length of the body read into the buffer.
+         */
+        int readBody(final InputStream in) throws IOException {
+            int length = 0;
+            for(int n; (n = in.read(body, length, body.length - length)) >= 0;) {
+                if((length += n) == body.length) body = Arrays.copyOf(body, body.length * 2);
+            }
+            return length;
+        }
+
+        /**
+         * The body read, as a buffer.
+         */
+        ByteBuffer body(final int length) {
+            if(bodyView == null || bodyView.array() != body) bodyView = ByteBuffer.wrap(body);
+            bodyView.clear();
+            bodyView.limit(length);
+            return bodyView;
+        }
+
+        /**
+         * Lets go of the buffer grown by an exceptionally large page.
+         */
+        void trim() {
+            if(body.length > MAX_KEPT_BODY) body = new byte[BODY_BUFFER];
+        }
+    }
+
+    private static final int BODY_BUFFER = 64 * 1024;
+    private static final int MAX_KEPT_BODY = 4 * 1024 * 1024;
+
+    private final WordSpec wordSpec;
+    private final HttpFetcher fetcher;
+    private final PageValidators validators;
+    private final boolean incremental;
+    /** Idle workers: a pool rather than a thread local, the crawler threads may be virtual. */
+    private final Queue<Worker> idle = new ConcurrentLinkedQueue<>();
+    private volatile CrawlMetrics metrics;
+    private volatile StopWords ignoredWords = StopWords.NONE;
+    private volatile CrawlArchive.Recorder recorder;
+
+    /**
+     * @param validators of the pages counted before, null to fetch them all unconditionally.
+     */
+    public StreamingPageProcessor(final WordSpec wordSpec, final HttpFetcher fetcher,
+                                  final PageValidators validators) {
+        this(wordSpec, fetcher, validators, false);
+    }
+
+    /**
+     * @param validators  of the pages counted before, null to fetch them all unconditionally.
+     * @param incremental true to count the changes of the pages since the validators were saved, requires them.
+     */
+    public StreamingPageProcessor(final WordSpec wordSpec, final HttpFetcher fetcher,
+                                  final PageValidators validators, final boolean incremental) {
+        if(incremental && validators == null) throw new IllegalArgumentException("Incremental needs the validators");
+        this.wordSpec = wordSpec;
+        this.fetcher = fetcher;
+        this.validators = validators;
+        this.incremental = incremental;
+    }
+
+    /**
+     * No fetcher: the pages are handed to {@link #process(ByteBuffer, Charset, URL, WordRegistrar)}.
+     */
+    protected StreamingPageProcessor(final WordSpec wordSpec) {
+        this(wordSpec, null, null);
+    }
+
+    public StreamingPageProcessor(final WordSpec wordSpec, final int timeoutMillis) {
+        this(wordSpec, new HttpFetcher(timeoutMillis), null);
+    }
+
+    public StreamingPageProcessor(final Pattern wordSpec, final int timeoutMillis) {
+        this(WordSpec.of(wordSpec), timeoutMillis);
+    }
+
+    /**
+     * Times the fetch, parse and register stages into the metrics, null for none.
+     */
+    public void setMetrics(final CrawlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * The words not to count from the next page on: dropped as the tokens come, before they become strings.
+     */
+    public void setIgnoredWords(final StopWords ignoredWords) {
+        this.ignoredWords = ignoredWords;
+    }
+
+    /**
+     * Records the responses from the next page on, null to stop. The recorder is not closed here.
+     */
+    public void setRecorder(final CrawlArchive.Recorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override public Collection<String> process(final URL url, final WordRegistrar words) throws IOException {
+        final String key = validators == null ? null : UrlNormalizer.normalize(url);
+        final PageValidators.Entry known = key == null ? null : validators.get(key);
+        final CrawlMetrics metrics = this.metrics;
+        final long start = metrics == null ? 0 : System.nanoTime();
+        try (HttpFetcher.Response response = fetcher.get(url, known)) {
+            if(metrics != null) metrics.recordFetch(System.nanoTime() - start);
+            final int status = response.getStatus();
+            final CrawlArchive.Recorder recorder = this.recorder;
+            if(status == 304 && known != null) {
+                if(metrics != null) metrics.pageNotModified();
+                return known.getLinks();
+            }
+            if(incremental && (status == 404 || status == 410) && known != null) {
+                final WordCounts gone = new WordCounts();
+                known.addWordsTo(gone, -1);
+                words.registerAll(gone);
+                validators.remove(key); // after the words: a checkpoint has both or neither
+            }
+            final String contentType = response.getContentType();
+            if(status / 100 != 2 || !isHtml(contentType)) {
+                if(recorder != null) record(recorder, url, status, contentType, new byte[0], 0);
+                if(status / 100 != 2) throw new IOException("HTTP " + status + " from " + url);
+                return new ArrayList<>(0);
+            }
+            if(incremental) {
+                return processChanges(response, charsetOf(contentType), key, known, words, recorder, url);
+            }
+            final Collection<String> links = recorder == null
+                ? process(response.getBody(), charsetOf(contentType), response.getUrl(), words)
+                : processRecorded(response, charsetOf(contentType), words, recorder, url);
+            if(key != null && (response.getETag() != null || response.getLastModified() != null)) {
+                validators.put(key, new PageValidators.Entry(response.getETag(), response.getLastModified(), links));
+            }
+            return links;
+        }
+    }
+
+    /**
+     * Tokenizes an already open page.
+     * @param charset the declared charset of the page, null to sniff it.
+     * @param base    the page URL the relative links are resolved against.
+     */
+    public Collection<String> process(final InputStream in, final Charset charset, final URL base,
+                                      final WordRegistrar words) throws IOException {
+        Worker worker = idle.poll();
+        if(worker == null) worker = new Worker(wordSpec);
+        try {
+            worker.decoder.open(in, charset);
+            return tokenize(worker, base, words);
+        }
+        finally {
+            worker.counts.clear();
+            idle.offer(worker);
+        }
+    }
+
+    /**
+     * Tokenizes a page read whole, from the position to the limit of the body.
+     * @param charset the declared charset of the page, null to sniff it.
+     * @param base    the page URL the relative links are resolved against.
+     */
+    public Collection<String> process(final ByteBuffer body, final Charset charset, final URL base,
+                                      final WordRegistrar words) throws IOException {
+        Worker worker = idle.poll();
+        if(worker == null) worker = new Worker(wordSpec);
+        try {
+            worker.decoder.open(body, charset);
+            return tokenize(worker, base, words);
+        }
+        finally {
+            worker.counts.clear();
+            idle.offer(worker);
+        }
+    }
+
+    /**
+     * Reads the page whole, records it then tokenizes it.
+     */
+    private Collection<String> processRecorded(final HttpFetcher.Response response, final Charset charset,
+                                               final WordRegistrar words, final CrawlArchive.Recorder recorder,
+                                               final URL url) throws IOException {
+        Worker worker = idle.poll();
+        if(worker == null) worker = new Worker(wordSpec);
+        try {
+            final int length = worker.readBody(response.getBody());
+            record(recorder, url, response.getStatus(), response.getContentType(), worker.body, length);
+            worker.decoder.open(worker.body(length), charset);
+            return tokenize(worker, response.getUrl(), words);
+        }
+        finally {
+            worker.counts.clear();
+            worker.trim();
+            idle.offer(worker);
+        }
+    }
+
+    /**
+     * Tokenizes the page the worker's decoder is open on and registers its words.
+     */
+    private Collection<String> tokenize(final Worker worker, final URL base, final WordRegistrar words)
+        throws IOException {
+        final PageSink sink = worker.sink.reset(base, ignoredWords);
+        final CrawlMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
+        worker.tokenizer.tokenize(worker.decoder, sink);
+        if(metrics != null) {
+            final long parsed = System.nanoTime();
+            metrics.recordParse(parsed - start, sink.words);
+            start = parsed;
+        }
+        words.registerAll(worker.counts);
+        if(metrics != null) metrics.recordRegister(System.nanoTime() - start);
+        return sink.links;
+    }
+
+    /**
+     * A response the archive failed to take is only missing from the replays: the crawl goes on.
+     */
+    private static void record(final CrawlArchive.Recorder recorder, final URL url, final int status,
+                               final String contentType, final byte[] body, final int length) {
+        try {
+            recorder.record(url.toString(), status, contentType, body, length);
+        }
+        catch (IOException x) {
+            L.warn("Failed to record {}: {}", url, x.getMessage());
+        }
+    }
+
+    /**
+     * Counts the difference the page made since it was known, nothing if its content is the same.
+     */
+    private Collection<String> processChanges(final HttpFetcher.Response response, final Charset charset,
+                                              final String key, final PageValidators.Entry known,
+                                              final WordRegistrar words, final CrawlArchive.Recorder recorder,
+                                              final URL url) throws IOException {
+        Worker worker = idle.poll();
+        if(worker == null) worker = new Worker(wordSpec);
+        final CrawlMetrics metrics = this.metrics;
+        try {
+            long start = metrics == null ? 0 : System.nanoTime();
+            final int length = worker.readBody(response.getBody());
+            if(recorder != null) {
+                record(recorder, url, response.getStatus(), response.getContentType(), worker.body, length);
+            }
+            final long hash = contentHash(worker.body, length);
+            if(known != null && known.hasContent() && known.getContentHash() == hash) {
+                if(metrics != null) metrics.pageNotModified();
+                validators.put(key, known.withValidators(response.getETag(), response.getLastModified()));
+                return known.getLinks();
+            }
+            final PageSink sink = worker.sink.reset(response.getUrl(), ignoredWords);
+            worker.decoder.open(worker.body(length), charset);
+            worker.tokenizer.tokenize(worker.decoder, sink);
+            if(metrics != null) {
+                final long parsed = System.nanoTime();
+                metrics.recordParse(parsed - start, sink.words);
+                start = parsed;
+            }
+            final PageValidators.Entry entry = PageValidators.Entry.withContent(response.getETag(),
+                response.getLastModified(), sink.links, hash, worker.counts);
+            if(known != null) known.addWordsTo(worker.counts, -1);
+            words.registerAll(worker.counts);
+            if(metrics != null) metrics.recordRegister(System.nanoTime() - start);
+            validators.put(key, entry);
+            return sink.links;
+        }
+        finally {
+            worker.counts.clear();
+            worker.trim();
+            idle.offer(worker);
+        }
+    }
+
+    /**
+     * 64 bits of the content: the CRC-32 and the Adler-32 of it side by side.
+     */
+    static long contentHash(final byte[] content, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, length);
+        final Adler32 adler = new Adler32();
+        adler.update(content, 0, length);
+        return crc.getValue() << 32 | adler.getValue();
+    }
+
+    static boolean isHtml(final String contentType) {
+        if(contentType == null) return true; // let the tokenizer have a go
+        final String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("html") || type.contains("xml");
+    }
+
+    /**
+     * The charset from the {@code Content-Type}, null if none or not supported: sniffed from the page then.
+     */
+    static Charset charsetOf(final String contentType) {
+        if(contentType != null) {
+            final int at = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if(at >= 0) {
+                String name = contentType.substring(at + "charset=".length()).trim();
+                final int end = name.indexOf(';');
+                if(end >= 0) name = name.substring(0, end).trim();
+                return PageDecoder.forName(name.replace("\"", ""));
+            }
+        }
+        return null;
+    }
+}
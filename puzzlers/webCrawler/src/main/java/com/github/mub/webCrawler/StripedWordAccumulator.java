@@ -0,0 +1,211 @@
+package com.github.mub.webCrawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact in-memory word frequency accumulator keyed by {@code [site, word]}, shared by all the crawler threads.
+ * <p>
+ * The sites and the words are interned into {@link WordDictionary}s, the counts are kept by the
+ * {@code (siteId, wordId)} pairs in lock-striped primitive tables, so the crawlers contend on one of the stripes
+ * rather than on a single map and the heap holds one {@code String} per distinct word, not one per counter.
+ * A dedicated flusher thread swaps the stripes out and hands the deltas to the {@link FrequencyStore} in one batch
+ * per "odometer" tick: every {@code flushEncounters} word encounters or every {@code flushMillis} milliseconds,
+ * whichever comes first. The ids are turned back to the strings only there, at the persistence boundary.
+ * The crawler threads never touch the persistence layer.
+ * </p>
+ * @author michaelb
+ */
+public class StripedWordAccumulator extends WordAccumulator {
+
+    private static final int STRIPE_CAPACITY = 256;
+
+    private static final class Stripe {
+        private PackedCounts counts = new PackedCounts(STRIPE_CAPACITY);
+        /** Swapped with the counts on flush, so that the steady state does not allocate. */
+        private PackedCounts spare = new PackedCounts(STRIPE_CAPACITY);
+        /** Encounters since this stripe last woke up the flusher. */
+        private int pending;
+    }
+
+    private final WordDictionary sites = new WordDictionary(JdbcFrequencyStore.SITE_LEN);
+    private final WordDictionary words = new WordDictionary(JdbcFrequencyStore.WORD_LEN);
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private volatile int stripeThreshold;
+    /** Counters a stripe may hold before the flusher counts as behind. */
+    private volatile int stripeBacklog = Integer.MAX_VALUE;
+
+    /**
+     * @param store           where the deltas go.
+     * @param stripeCount     lock stripes, rounded up to a power of two; a few times the crawler thread count
+     *                        is plenty.
+     * @param flushEncounters odometer: flush after about this many word encounters, zero or less to turn off.
+     * @param flushMillis     odometer: flush at least this often, zero or less to turn off.
+     */
+    public StripedWordAccumulator(final FrequencyStore store, final int stripeCount, final int flushEncounters,
+                                  final long flushMillis) {
+        super(store);
+        if(stripeCount < 1) throw new IllegalArgumentException("Invalid stripe count: " + stripeCount);
+        final int size = Integer.highestOneBit(stripeCount - 1 << 1 | 1);
+        this.stripes = new Stripe[size];
+        for(int i = 0; i < size; i++) stripes[i] = new Stripe();
+        this.stripeMask = size - 1;
+        setFlushCadence(flushEncounters, flushMillis);
+        start();
+    }
+
+    @Override public void setFlushCadence(final int flushEncounters, final long flushMillis) {
+        super.setFlushCadence(flushEncounters, flushMillis);
+        // each stripe sees roughly its share of the encounters, no shared counter on the hot path:
+        this.stripeThreshold = flushEncounters > 0 ? Math.max(1, flushEncounters / stripes.length) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * The exact counts take memory by the distinct {@code [site, word]}s: the stripes count as over their backlog past
+     * about {@code maxBacklog / stripes} counters each.
+     */
+    @Override public void setMaxBacklog(final int maxBacklog) {
+        this.stripeBacklog = maxBacklog > 0 ? Math.max(1, maxBacklog / stripes.length) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Thread-safe registration of {@code count} encounters of the {@code word} on the {@code src}.
+     */
+    @Override public void register(final WordSource src, final String word, final int count) {
+        register(sites.idOf(src.getKey()), word, count);
+    }
+
+    private void register(final int siteId, final String word, final int count) {
+        if(getIgnoredWords().contains(word)) return;
+        final int wordId = words.idOf(word);
+        if(siteId == WordDictionary.NONE || wordId == WordDictionary.NONE) return;
+        final long key = PackedCounts.pack(siteId, wordId), hash = PackedCounts.mix(key);
+        final Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        final boolean signal;
+        synchronized (stripe) {
+            stripe.counts.add(key, hash, count);
+            signal = (stripe.pending += count) >= stripeThreshold || overBacklog(stripe);
+            if(signal) stripe.pending = 0;
+        }
+        if(signal) signalFlush();
+    }
+
+    /**
+     * Registers all the words of a page, taking each stripe's lock once rather than once per word.
+     */
+    public void registerAll(final WordSource src, final WordCounts counts) {
+        registerAll(sites.idOf(src.getKey()), counts);
+    }
+
+    private void registerAll(final int siteId, final WordCounts counts) {
+        if(siteId == WordDictionary.NONE) return;
+        // counting sort of the page's words by stripe:
+        final int n = counts.size();
+        final long[] keys = new long[n], hashes = new long[n];
+        final int[] deltas = new int[n];
+        final int[] starts = new int[stripes.length + 1];
+        final StopWords ignored = getIgnoredWords();
+        int m = 0;
+        for(int slot = 0; slot < counts.capacity(); slot++) {
+            final String word = counts.wordAt(slot);
+            if(word == null || counts.countAt(slot) == 0 || ignored.contains(word)) continue;
+            final int wordId = words.idOf(word);
+            if(wordId == WordDictionary.NONE) continue;
+            keys[m] = PackedCounts.pack(siteId, wordId);
+            hashes[m] = PackedCounts.mix(keys[m]);
+            deltas[m] = counts.countAt(slot);
+            starts[((int) (hashes[m] >>> 32) & stripeMask) + 1]++;
+            m++;
+        }
+        for(int i = 0; i < stripes.length; i++) starts[i + 1] += starts[i];
+        final int[] order = new int[m];
+        final int[] fill = starts.clone();
+        for(int j = 0; j < m; j++) order[fill[(int) (hashes[j] >>> 32) & stripeMask]++] = j;
+
+        boolean signal = false;
+        for(int i = 0; i < stripes.length; i++) {
+            if(starts[i] == starts[i + 1]) continue;
+            final Stripe stripe = stripes[i];
+            synchronized (stripe) {
+                int encountered = 0;
+                for(int j = starts[i]; j < starts[i + 1]; j++) {
+                    final int k = order[j];
+                    stripe.counts.add(keys[k], hashes[k], deltas[k]);
+                    encountered += Math.abs(deltas[k]);
+                }
+                if((stripe.pending += encountered) >= stripeThreshold || overBacklog(stripe)) {
+                    stripe.pending = 0;
+                    signal = true;
+                }
+            }
+        }
+        if(signal) signalFlush();
+    }
+
+    private boolean overBacklog(final Stripe stripe) {
+        if(stripe.counts.size() <= stripeBacklog) return false;
+        markBehind();
+        return true;
+    }
+
+    @Override public WordRegistrar forSource(final WordSource src) {
+        final int siteId = sites.idOf(src.getKey());
+        return new WordRegistrar() {
+            @Override public void register(final String word, final int count) {
+                StripedWordAccumulator.this.register(siteId, word, count);
+            }
+
+            @Override public void registerAll(final WordCounts counts) {
+                StripedWordAccumulator.this.registerAll(siteId, counts);
+            }
+        };
+    }
+
+    /**
+     * The interned words, the ids of which the counters are kept by.
+     */
+    public WordDictionary getWords() {
+        return words;
+    }
+
+    /**
+     * Swaps all the stripes with their spares, the tables themselves: the content is turned into the entries for
+     * the store after, the swapped tables left as the spares cleared.
+     */
+    @Override Swapped swap() {
+        final PackedCounts[] swapped = new PackedCounts[stripes.length];
+        for(int i = 0; i < stripes.length; i++) {
+            final Stripe stripe = stripes[i];
+            synchronized (stripe) {
+                if(stripe.counts.size() == 0) continue;
+                swapped[i] = stripe.counts;
+                stripe.counts = stripe.spare;
+                stripe.spare = swapped[i];
+                stripe.pending = 0;
+            }
+        }
+        return new Swapped() {
+            @Override public List<WcEntry> toEntries() {
+                final List<WcEntry> deltas = new ArrayList<>();
+                WordSource[] sources = new WordSource[sites.size()];
+                for(final PackedCounts counts: swapped) {
+                    if(counts == null) continue;
+                    for(int slot = 0; slot < counts.capacity(); slot++) {
+                        final long key = counts.keyAt(slot);
+                        if(key == 0) continue;
+                        final int siteId = PackedCounts.siteOf(key);
+                        if(siteId >= sources.length) sources = Arrays.copyOf(sources, sites.size()); // added since
+                        WordSource src = sources[siteId];
+                        if(src == null) sources[siteId] = src = new WordSource(sites.wordOf(siteId));
+                        deltas.add(new WcEntry(src, words.wordOf(PackedCounts.wordOf(key)), counts.countAt(slot)));
+                    }
+                    counts.clear();
+                }
+                caughtUp();
+                return deltas;
+            }
+        };
+    }
+}
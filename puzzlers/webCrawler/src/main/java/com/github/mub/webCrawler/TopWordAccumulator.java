@@ -0,0 +1,331 @@
+package com.github.mub.webCrawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate word frequency accumulator for the crawls too large for the exact counts: it keeps the top
+ * {@code k} words of each site only, in a memory bounded by {@code k} per site plus a fixed size sketch.
+ * <p>
+ * All the encounters go to a global {@link CountMinSketch} keyed by the {@code [site, word]} hashes, no strings
+ * kept. Each site has a Space-Saving summary of {@code k} counters: a word already in it is counted exactly; a new
+ * one takes the place of the summary's least frequent word only if its sketch estimate is above that word's count.
+ * The admitted word starts at its estimate, so that the frequent words rise in the summary fast, but only the
+ * encounters counted since its admission go to the store: the stored counts are lower bounds of the true ones and
+ * exact for the words never evicted. The encounters of the evicted words not flushed yet are dropped, see
+ * {@link #getDropped()}.
+ * </p>
+ * <p>
+ * Only the words of the summaries are flushed, the delta of each since the previous flush. Negative deltas, of the
+ * incremental re-crawls, are applied to the words in the summary only.
+ * </p>
+ * @author michaelb
+ */
+public class TopWordAccumulator extends WordAccumulator {
+
+    private static final int INITIAL_SLOTS = 16;
+
+    /**
+     * The words of a summary and their deltas at a drain, by the slot.
+     */
+    private static final class Unflushed {
+        final WordSource source;
+        final String[] words;
+        final long[] deltas;
+
+        Unflushed(final WordSource source, final String[] words, final long[] deltas) {
+            this.source = source;
+            this.words = words;
+            this.deltas = deltas;
+        }
+    }
+
+    /**
+     * Space-Saving summary of a site: the counters in a min-heap by the count, the growing arrays up to the
+     * {@code k} slots. Guarded by itself.
+     */
+    private static final class Summary {
+        private final WordSource source;
+        private final long seed;
+        private final Map<String, Integer> slots = new HashMap<>();
+        private String[] words = new String[0];
+        private long[] counts = new long[0];
+        /** The part of the count already handed to the store, or counted before the admission. */
+        private long[] flushed = new long[0];
+        /** The slots by the count, least first. */
+        private int[] heap = new int[0];
+        /** The index of each slot in the heap. */
+        private int[] positions = new int[0];
+        private int size;
+
+        Summary(final WordSource source) {
+            this.source = source;
+            this.seed = UrlNormalizer.fingerprint(source.getKey());
+        }
+
+        private void grow(final int k) {
+            final int capacity = Math.min(k, Math.max(INITIAL_SLOTS, words.length * 2));
+            words = Arrays.copyOf(words, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            flushed = Arrays.copyOf(flushed, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+
+        private void siftUp(int i) {
+            final int slot = heap[i];
+            while(i > 0) {
+                final int parent = i - 1 >>> 1;
+                if(counts[heap[parent]] <= counts[slot]) break;
+                heap[i] = heap[parent];
+                positions[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = slot;
+            positions[slot] = i;
+        }
+
+        private void siftDown(int i) {
+            final int slot = heap[i];
+            for(int child; (child = 2 * i + 1) < size; i = child) {
+                if(child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+                if(counts[slot] <= counts[heap[child]]) break;
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+            }
+            heap[i] = slot;
+            positions[slot] = i;
+        }
+
+        /**
+         * @return the encounters dropped with an evicted word.
+         */
+        long add(final String word, final int delta, final int estimate, final int k) {
+            final Integer known = slots.get(word);
+            if(known != null) {
+                final int slot = known;
+                counts[slot] += delta;
+                if(delta > 0) siftDown(positions[slot]);
+                else siftUp(positions[slot]);
+                return 0;
+            }
+            if(delta <= 0) return 0;
+            if(size < k) {
+                if(size == words.length) grow(k);
+                final int slot = size++;
+                words[slot] = word;
+                counts[slot] = delta; // never evicted from a summary not full yet: the exact count
+                flushed[slot] = 0;
+                slots.put(word, slot);
+                heap[slot] = slot;
+                siftUp(slot);
+                return 0;
+            }
+            final int slot = heap[0];
+            if(estimate <= counts[slot]) return 0;
+            final long dropped = counts[slot] - flushed[slot];
+            slots.remove(words[slot]);
+            words[slot] = word;
+            counts[slot] = estimate;
+            flushed[slot] = estimate - delta;
+            slots.put(word, slot);
+            siftDown(0);
+            return Math.max(0, dropped);
+        }
+
+        /**
+         * Takes the deltas since the last flush as they are, to be made into the entries off the summary's lock.
+         */
+        Unflushed takeUnflushed() {
+            final long[] deltas = new long[size];
+            for(int slot = 0; slot < size; slot++) {
+                deltas[slot] = counts[slot] - flushed[slot];
+                flushed[slot] = counts[slot];
+            }
+            return new Unflushed(source, Arrays.copyOf(words, size), deltas);
+        }
+
+        /**
+         * Takes back a delta the store failed to apply, if the word is still in the summary.
+         */
+        long retry(final String word, final int delta) {
+            final Integer slot = slots.get(word);
+            if(slot == null) return delta;
+            flushed[slot] -= delta;
+            return 0;
+        }
+    }
+
+    private final int k;
+    private final CountMinSketch sketch;
+    private final ConcurrentMap<String, Summary> summaries = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile int flushEncounters;
+
+    /**
+     * @param store           where the deltas go.
+     * @param k               the words kept per site.
+     * @param epsilon         the sketch error bound, as a fraction of all the encounters.
+     * @param confidence      the probability that the sketch error is within the bound.
+     * @param flushEncounters odometer: flush after about this many word encounters, zero or less to turn off.
+     * @param flushMillis     odometer: flush at least this often, zero or less to turn off.
+     */
+    public TopWordAccumulator(final FrequencyStore store, final int k, final double epsilon,
+                              final double confidence, final int flushEncounters, final long flushMillis) {
+        super(store);
+        if(k < 1) throw new IllegalArgumentException("Invalid top word count: " + k);
+        this.k = k;
+        this.sketch = new CountMinSketch(epsilon, confidence);
+        setFlushCadence(flushEncounters, flushMillis);
+        start();
+    }
+
+    @Override public void setFlushCadence(final int flushEncounters, final long flushMillis) {
+        super.setFlushCadence(flushEncounters, flushMillis);
+        this.flushEncounters = flushEncounters > 0 ? flushEncounters : Integer.MAX_VALUE;
+    }
+
+    public CountMinSketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * The encounters of the words evicted from the summaries before they were flushed, missing from the store.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private Summary summaryOf(final WordSource src) {
+        final String site = src.getKey();
+        if(site.length() > JdbcFrequencyStore.SITE_LEN) return null;
+        Summary summary = summaries.get(site);
+        if(summary == null) {
+            final Summary created = new Summary(src);
+            summary = summaries.putIfAbsent(site, created);
+            if(summary == null) summary = created;
+        }
+        return summary;
+    }
+
+    private boolean countable(final String word) {
+        return word.length() <= JdbcFrequencyStore.WORD_LEN && !getIgnoredWords().contains(word);
+    }
+
+    private int estimate(final Summary summary, final String word, final int count) {
+        final long hash = UrlNormalizer.mix(summary.seed ^ UrlNormalizer.fingerprint(word));
+        return count > 0 ? sketch.add(hash, count) : sketch.estimate(hash);
+    }
+
+    @Override public void register(final WordSource src, final String word, final int count) {
+        register(summaryOf(src), word, count);
+    }
+
+    private void register(final Summary summary, final String word, final int count) {
+        if(summary == null || count == 0 || !countable(word)) return;
+        final int estimate = estimate(summary, word, count);
+        final long lost;
+        synchronized (summary) {
+            lost = summary.add(word, count, estimate, k);
+        }
+        if(lost > 0) dropped.addAndGet(lost);
+        encountered(Math.abs(count));
+    }
+
+    /**
+     * Registers all the words of a page, taking the site's lock once rather than once per word.
+     */
+    private void registerAll(final Summary summary, final WordCounts counts) {
+        if(summary == null) return;
+        // the sketch is lock free, out of the site's lock:
+        final int n = counts.size();
+        final String[] words = new String[n];
+        final int[] deltas = new int[n], estimates = new int[n];
+        final StopWords ignored = getIgnoredWords();
+        int m = 0, encountered = 0;
+        for(int slot = 0; slot < counts.capacity(); slot++) {
+            final String word = counts.wordAt(slot);
+            if(word == null || counts.countAt(slot) == 0) continue;
+            if(word.length() > JdbcFrequencyStore.WORD_LEN || ignored.contains(word)) continue;
+            words[m] = word;
+            deltas[m] = counts.countAt(slot);
+            estimates[m] = estimate(summary, word, deltas[m]);
+            encountered += Math.abs(deltas[m]);
+            m++;
+        }
+        long lost = 0;
+        synchronized (summary) {
+            for(int j = 0; j < m; j++) lost += summary.add(words[j], deltas[j], estimates[j], k);
+        }
+        if(lost > 0) dropped.addAndGet(lost);
+        encountered(encountered);
+    }
+
+    private void encountered(final int count) {
+        final int threshold = flushEncounters;
+        final int now = pending.addAndGet(count);
+        if(now >= threshold && pending.compareAndSet(now, 0)) signalFlush();
+    }
+
+    @Override public WordRegistrar forSource(final WordSource src) {
+        final Summary summary = summaryOf(src);
+        return new WordRegistrar() {
+            @Override public void register(final String word, final int count) {
+                TopWordAccumulator.this.register(summary, word, count);
+            }
+
+            @Override public void registerAll(final WordCounts counts) {
+                TopWordAccumulator.this.registerAll(summary, counts);
+            }
+        };
+    }
+
+    /**
+     * The deltas of the summaries' words since the last drain, copied out of each summary in a few array copies.
+     */
+    @Override Swapped swap() {
+        final List<Unflushed> swapped = new ArrayList<>(summaries.size());
+        pending.set(0);
+        for(final Summary summary: summaries.values()) {
+            synchronized (summary) {
+                swapped.add(summary.takeUnflushed());
+            }
+        }
+        return new Swapped() {
+            @Override public List<WcEntry> toEntries() {
+                final List<WcEntry> deltas = new ArrayList<>();
+                for(final Unflushed u: swapped) {
+                    for(int i = 0; i < u.words.length; i++) {
+                        if(u.deltas[i] != 0) deltas.add(new WcEntry(u.source, u.words[i], (int) u.deltas[i]));
+                    }
+                }
+                caughtUp();
+                return deltas;
+            }
+        };
+    }
+
+    /**
+     * The failed deltas were counted in the sketch already: they are only taken back from the flushed part of the
+     * words still in the summaries.
+     */
+    @Override void retry(final List<WcEntry> unstored) {
+        long lost = 0;
+        for(final WcEntry e: unstored) {
+            final Summary summary = summaries.get(e.getSource().getKey());
+            if(summary == null) continue;
+            synchronized (summary) {
+                lost += summary.retry(e.getWord(), e.getCount());
+            }
+        }
+        if(lost > 0) dropped.addAndGet(lost);
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.mub.webCrawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The ignored URL RegExes compiled together, a URL is ignored if any of them is found in it.
+ * <p>
+ * The patterns that are just a literal with anchors and {@code .*}/{@code .+} around it, such as
+ * {@code ^https:\/\/.+$} or {@code .*\.facebook\.com.*}, never reach the regex engine: the prefixes and the suffixes
+ * go to character tries walked once per URL, the exact ones to a hash set, the "contains" ones to
+ * {@code String.indexOf}. The rest are compiled into a single alternation matched once per URL,
+ * rather than once per pattern.
+ * </p>
+ * Immutable and thread-safe.
+ * @author michaelb
+ */
+public class UrlFilter {
+
+    /**
+     * Array backed character trie, a node is terminal if {@code minRest >= 0}.
+     */
+    private static final class Trie {
+        private char[] keys = new char[0];
+        private Trie[] kids = new Trie[0];
+        /** Minimal number of the chars that must follow the key, -1 if the key does not end here. */
+        private int minRest = -1;
+
+        void add(final String key, final boolean reversed, final int rest) {
+            Trie node = this;
+            for(int i = 0; i < key.length(); i++) {
+                final char c = key.charAt(reversed ? key.length() - 1 - i : i);
+                int at = Arrays.binarySearch(node.keys, c);
+                if(at < 0) {
+                    at = -at - 1;
+                    node.keys = insert(node.keys, at, c);
+                    node.kids = insert(node.kids, at, new Trie());
+                }
+                node = node.kids[at];
+            }
+            if(node.minRest < 0 || rest < node.minRest) node.minRest = rest;
+        }
+
+        /**
+         * True if some key is a prefix (or a suffix if reversed) of the text with enough chars left over.
+         */
+        boolean matches(final String text, final boolean reversed) {
+            Trie node = this;
+            final int len = text.length();
+            for(int i = 0; ; i++) {
+                if(node.minRest >= 0 && len - i >= node.minRest) return true;
+                if(i == len) return false;
+                final int at = Arrays.binarySearch(node.keys, text.charAt(reversed ? len - 1 - i : i));
+                if(at < 0) return false;
+                node = node.kids[at];
+            }
+        }
+
+        private static char[] insert(final char[] a, final int at, final char c) {
+            final char[] result = new char[a.length + 1];
+            System.arraycopy(a, 0, result, 0, at);
+            result[at] = c;
+            System.arraycopy(a, at, result, at + 1, a.length - at);
+            return result;
+        }
+
+        private static Trie[] insert(final Trie[] a, final int at, final Trie t) {
+            final Trie[] result = new Trie[a.length + 1];
+            System.arraycopy(a, 0, result, 0, at);
+            result[at] = t;
+            System.arraycopy(a, at, result, at + 1, a.length - at);
+            return result;
+        }
+    }
+
+    /**
+     * The pattern taken apart as {@code [^][.*|.+]LITERAL[.*|.+][$]}.
+     */
+    private static final class LiteralShape {
+        String literal;
+        boolean startAnchored, endAnchored;
+        int minBefore, minAfter;
+
+        static LiteralShape parse(String regex) {
+            final LiteralShape result = new LiteralShape();
+            if(regex.startsWith("^")) {
+                result.startAnchored = true;
+                regex = regex.substring(1);
+            }
+            if(regex.endsWith("$") && !isEscaped(regex, regex.length() - 1)) {
+                result.endAnchored = true;
+                regex = regex.substring(0, regex.length() - 1);
+            }
+            if(regex.startsWith(".*") || regex.startsWith(".+")) {
+                result.startAnchored = false;
+                result.minBefore = regex.charAt(1) == '+' ? 1 : 0;
+                regex = regex.substring(2);
+            }
+            if(regex.length() >= 2 && (regex.endsWith(".*") || regex.endsWith(".+"))
+                && !isEscaped(regex, regex.length() - 2)) {
+                result.endAnchored = false;
+                result.minAfter = regex.charAt(regex.length() - 1) == '+' ? 1 : 0;
+                regex = regex.substring(0, regex.length() - 2);
+            }
+            final StringBuilder literal = new StringBuilder(regex.length());
+            for(int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if(c == '\\') {
+                    if(++i == regex.length()) return null;
+                    c = regex.charAt(i);
+                    if(Character.isLetterOrDigit(c)) return null; // \d, \w, \Q and friends
+                }
+                else if(".[]{}()*+?^$|".indexOf(c) >= 0) return null;
+                literal.append(c);
+            }
+            if(literal.length() == 0) return null;
+            result.literal = literal.toString();
+            return result;
+        }
+
+        private static boolean isEscaped(final String s, final int at) {
+            int backslashes = 0;
+            for(int i = at - 1; i >= 0 && s.charAt(i) == '\\'; i--) backslashes++;
+            return (backslashes & 1) == 1;
+        }
+    }
+
+    private final Trie prefixes = new Trie();
+    private final Trie suffixes = new Trie();
+    private final Set<String> exact = new HashSet<>();
+    private final String[] contained;
+    private final int[] containedBefore;
+    private final int[] containedAfter;
+    private final Pattern combined;
+    private final int size;
+    private int regexCount;
+
+    public UrlFilter(final Collection<String> regexes) {
+        final List<String> contains = new ArrayList<>();
+        final List<int[]> containsMins = new ArrayList<>();
+        final StringBuilder alternation = new StringBuilder();
+        for(final String regex: regexes) {
+            Pattern.compile(regex); // fail early on the invalid ones, whatever the path
+            final LiteralShape shape = LiteralShape.parse(regex);
+            if(shape == null) {
+                if(alternation.length() > 0) alternation.append('|');
+                alternation.append("(?:").append(regex).append(')');
+                regexCount++;
+            }
+            else if(shape.startAnchored && shape.endAnchored) exact.add(shape.literal);
+            else if(shape.startAnchored) prefixes.add(shape.literal, false, shape.minAfter);
+            else if(shape.endAnchored) suffixes.add(shape.literal, true, shape.minBefore);
+            else {
+                contains.add(shape.literal);
+                containsMins.add(new int[]{shape.minBefore, shape.minAfter});
+            }
+        }
+        contained = contains.toArray(new String[contains.size()]);
+        containedBefore = new int[contained.length];
+        containedAfter = new int[contained.length];
+        for(int i = 0; i < contained.length; i++) {
+            containedBefore[i] = containsMins.get(i)[0];
+            containedAfter[i] = containsMins.get(i)[1];
+        }
+        combined = alternation.length() == 0 ? null : Pattern.compile(alternation.toString());
+        size = regexes.size();
+    }
+
+    public boolean isIgnored(final String url) {
+        if(size == 0) return false;
+        if(prefixes.matches(url, false) || suffixes.matches(url, true) || exact.contains(url)) return true;
+        for(int i = 0; i < contained.length; i++) {
+            final int at = url.indexOf(contained[i], containedBefore[i]);
+            if(at >= 0 && at + contained[i].length() + containedAfter[i] <= url.length()) return true;
+        }
+        return combined != null && combined.matcher(url).find();
+    }
+
+    /**
+     * How many of the patterns need the regex engine.
+     */
+    public int regexCount() {
+        return regexCount;
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.mub.webCrawler;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * URL to key conversions: the {@code site} is {@code host:port} with the port always present,
+ * the visit key is {@code host:port/dir/path} with the query and the fragment dropped.
+ * @author michaelb
+ */
+public final class UrlNormalizer {
+
+    private UrlNormalizer() {}
+
+    /**
+     * Parses the user input, assuming {@code http} if the protocol is missing.
+     */
+    public static URL parseInput(final String input) throws MalformedURLException {
+        return new URL(input.contains("://") ? input : "http://" + input);
+    }
+
+    /**
+     * The URL if it is the one the crawler supports, null otherwise.
+     */
+    public static URL toCrawlable(final String link) {
+        try {
+            final URL url = new URL(link);
+            return "http".equalsIgnoreCase(url.getProtocol()) && !url.getHost().isEmpty() ? url : null;
+        }
+        catch (MalformedURLException x) {
+            return null;
+        }
+    }
+
+    public static int portOf(final URL url) {
+        return url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+    }
+
+    /**
+     * {@code host:port}, lower case.
+     */
+    public static String siteOf(final URL url) {
+        return url.getHost().toLowerCase(Locale.ROOT) + ':' + portOf(url);
+    }
+
+    /**
+     * {@code host:port/dir/path}, the host in lower case, the path as is, "/" for the empty one.
+     */
+    public static String normalize(final URL url) {
+        final String path = url.getPath();
+        return siteOf(url) + (path.isEmpty() ? "/" : path);
+    }
+
+    /**
+     * 64 bit fingerprint of the normalized URL: FNV-1a over the chars, then the MurmurHash3 finalizer
+     * to spread the bits. Never zero, zero marks an empty slot in {@link ConcurrentLongSet}.
+     */
+    public static long fingerprint(final CharSequence normalized) {
+        long h = 0xcbf29ce484222325L;
+        for(int i = 0; i < normalized.length(); i++) {
+            h ^= normalized.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h = mix(h);
+        return h == 0 ? 1 : h;
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.mub.webCrawler;
+
+import java.net.URL;
+
+/**
+ * The set of the {@code host:port/dir/path} combinations already scanned, shared by all the crawler threads.
+ * <p>
+ * Holds 64 bit fingerprints of the normalized URLs rather than the {@code String}s, in a primitive open addressing
+ * table of about 11 bytes per URL up to the expected number, 11 to 21 past it as it doubles. No Bloom filter in
+ * front: the crawler only ever adds, and an add has to probe the table whatever a filter would say.
+ * A fingerprint collision would skip a page, at 10M URLs the odds of any are about one in 370,000.
+ * </p>
+ * @author michaelb
+ */
+public class VisitedUrls {
+
+    private final ConcurrentLongSet exact;
+    private final FingerprintLog log;
+
+    public VisitedUrls(final long expected) {
+        this(expected, null);
+    }
+
+    /**
+     * @param log where the added fingerprints are appended to, its current content is loaded first; may be null.
+     */
+    public VisitedUrls(final long expected, final FingerprintLog log) {
+        final long logged = log == null ? 0 : log.size();
+        exact = new ConcurrentLongSet(Math.max(expected, logged));
+        for(long i = 0; i < logged; i++) exact.add(log.get(i));
+        this.log = log;
+    }
+
+    public boolean contains(final URL url) {
+        return contains(UrlNormalizer.fingerprint(UrlNormalizer.normalize(url)));
+    }
+
+    public boolean contains(final long fingerprint) {
+        return exact.contains(fingerprint);
+    }
+
+    /**
+     * @return true if the URL was not visited before, i.e. the caller is the one to visit it.
+     */
+    public boolean add(final URL url) {
+        return add(UrlNormalizer.fingerprint(UrlNormalizer.normalize(url)));
+    }
+
+    public boolean add(final long fingerprint) {
+        if(!exact.add(fingerprint)) return false;
+        if(log != null) log.append(fingerprint);
+        return true;
+    }
+
+    public long size() {
+        return exact.size();
+    }
+
+    /**
+     * Heap used by the set, in bytes.
+     */
+    public long footprint() {
+        return exact.footprint();
+    }
+}
@@ -1,8 +1,8 @@
 package com.github.mub.webCrawler;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
+ * Frequency delta of one word from one {@link WordSource}, the unit handed to the {@link FrequencyStore} on flush.
+ * Made at the persistence boundary only, the accumulator keeps its counters by the interned ids.
  * @author michaelb
  */
 public class WcEntry {
@@ -11,11 +11,27 @@ public class WcEntry {
 
     private final String word;
 
-    private final AtomicInteger counter = new AtomicInteger(0);
+    private final int count;
 
-    public WcEntry(final WordSource src, final String word) {
+    public WcEntry(final WordSource src, final String word, final int count) {
         this.src = src;
         this.word = word;
+        this.count = count;
+    }
+
+    public WordSource getSource() {
+        return src;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public int getCount() {
+        return count;
     }
-}
 
+    @Override public String toString() {
+        return src.getKey() + ':' + word + '=' + count;
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.mub.webCrawler;
+
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * In-memory word frequency accumulator keyed by {@code [site, word]}, shared by all the crawler threads, and its
+ * flusher: a dedicated thread hands the deltas to the {@link FrequencyStore} in one batch per "odometer" tick,
+ * every {@code flushMillis} milliseconds or when the counting engine signals enough encounters, whichever comes
+ * first. The crawler threads never touch the persistence layer.
+ * <p>
+ * The engines differ in what they keep between the flushes: all the counts, exactly, in the
+ * {@link StripedWordAccumulator}, or the heavy hitters of each site in a bounded space in the
+ * {@link TopWordAccumulator}.
+ * </p>
+ * @author michaelb
+ */
+public abstract class WordAccumulator implements Closeable {
+    private static final Logger L = getLogger(WordAccumulator.class);
+
+    private volatile long flushMillis;
+    private volatile StopWords ignoredWords = StopWords.NONE;
+    /** The counters are over their backlog, cleared by the next drain. */
+    private volatile boolean behind;
+    private final Object backlogLock = new Object();
+    private final FrequencyStore store;
+    private final BlockingQueue<Boolean> flushSignal = new ArrayBlockingQueue<>(1);
+    private final Thread flusher;
+    private volatile boolean running = true;
+    private volatile Checkpointer checkpointer;
+    private volatile CrawlMetrics metrics;
+
+    /**
+     * The flusher is started by {@link #start()} once the engine is constructed.
+     * @param store where the deltas go.
+     */
+    protected WordAccumulator(final FrequencyStore store) {
+        this.store = store;
+        this.flusher = new Thread(new Runnable() {
+            @Override public void run() {
+                flushLoop();
+            }
+        }, "wc-flusher");
+        flusher.setDaemon(true);
+    }
+
+    protected final void start() {
+        flusher.start();
+    }
+
+    /**
+     * Changes the odometer of a running accumulator, the new period applies from the next tick on.
+     * @param flushEncounters flush after about this many word encounters, zero or less to turn off.
+     * @param flushMillis     flush at least this often, zero or less to turn off.
+     */
+    public void setFlushCadence(final int flushEncounters, final long flushMillis) {
+        this.flushMillis = flushMillis > 0 ? flushMillis : Long.MAX_VALUE;
+    }
+
+    /**
+     * Bounds the counters accumulated between the flushes, for the engines the memory of which is not bounded
+     * otherwise: past about {@code maxBacklog} of them the flusher counts as behind and
+     * {@link #awaitBacklog(long, TimeUnit)} holds the producers off till it drains the counters.
+     * @param maxBacklog zero or less for no bound.
+     */
+    public void setMaxBacklog(final int maxBacklog) {
+        // bounded by the engine
+    }
+
+    /**
+     * The words not to count from now on, lower case as the pages' words are.
+     */
+    public void setIgnoredWords(final Set<String> ignoredWords) {
+        setIgnoredWords(StopWords.of(ignoredWords));
+    }
+
+    public void setIgnoredWords(final StopWords ignoredWords) {
+        this.ignoredWords = ignoredWords;
+    }
+
+    protected final StopWords getIgnoredWords() {
+        return ignoredWords;
+    }
+
+    /**
+     * Turns every flush into a checkpoint epoch, see {@link Checkpointer}.
+     */
+    public void setCheckpointer(final Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * Times the flushes and the producers held off by the backlog into the metrics, null for none.
+     */
+    public void setMetrics(final CrawlMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Thread-safe registration of {@code count} encounters of the {@code word} on the {@code src}.
+     */
+    public abstract void register(final WordSource src, final String word, final int count);
+
+    /**
+     * The {@link WordRegistrar} view of this accumulator bound to the given source.
+     */
+    public abstract WordRegistrar forSource(final WordSource src);
+
+    /**
+     * The counts swapped out of the counters, not turned into the entries yet.
+     */
+    interface Swapped {
+        /**
+         * The entries for the store, made once. Implementations call {@link #caughtUp()} once made.
+         */
+        List<WcEntry> toEntries();
+    }
+
+    /**
+     * Swaps out the counts accumulated since the last drain, as little work as it takes: a checkpoint does it with
+     * the crawlers held off. The swapped counts are to be turned into the entries before the next swap.
+     */
+    abstract Swapped swap();
+
+    /**
+     * Swaps out the counts accumulated since the last drain and turns them into the entries for the store.
+     */
+    List<WcEntry> drain() {
+        return swap().toEntries();
+    }
+
+    /**
+     * Takes back the drained deltas the store failed to apply, for the next flush.
+     */
+    void retry(final List<WcEntry> unstored) {
+        for(final WcEntry e: unstored) register(e.getSource(), e.getWord(), e.getCount());
+    }
+
+    /**
+     * Wakes the flusher up ahead of its period.
+     */
+    protected final void signalFlush() {
+        flushSignal.offer(Boolean.TRUE); // a full queue means the flusher is already due
+    }
+
+    /**
+     * The counters are over their backlog: the producers are held off till the next drain.
+     */
+    protected final void markBehind() {
+        if(!behind) {
+            behind = true;
+            L.debug("Flusher behind, holding the crawlers off");
+        }
+    }
+
+    /**
+     * Releases the producers held off, if any.
+     */
+    protected final void caughtUp() {
+        if(behind) {
+            synchronized (backlogLock) {
+                behind = false;
+                backlogLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits while the flusher is behind, up to the given time.
+     * @return true if not behind anymore.
+     */
+    public boolean awaitBacklog(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if(!behind) return true;
+        final long start = System.nanoTime();
+        final long deadline = start + unit.toNanos(timeout);
+        try {
+            synchronized (backlogLock) {
+                long left;
+                while(behind && running && (left = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(backlogLock, left);
+                }
+            }
+        }
+        finally {
+            final CrawlMetrics metrics = this.metrics;
+            if(metrics != null) metrics.recordBackpressure(System.nanoTime() - start);
+        }
+        return !behind;
+    }
+
+    /**
+     * Drains the counters and hands their content to the store; failed batches are merged back for a retry.
+     * Normally called by the flusher thread only.
+     * @return the number of the entries flushed.
+     */
+    public synchronized int flush() {
+        final Checkpointer cp = checkpointer;
+        final long start = System.nanoTime();
+        List<WcEntry> deltas = null;
+        try {
+            long epoch = FrequencyStore.NO_EPOCH;
+            if(cp == null) {
+                deltas = drain();
+                if(deltas.isEmpty()) return 0;
+            }
+            else {
+                final Checkpoint checkpoint = cp.snapshot(this);
+                deltas = checkpoint.getDeltas();
+                epoch = checkpoint.getEpoch();
+                cp.write(checkpoint);
+            }
+            store.store(deltas, epoch);
+            final CrawlMetrics metrics = this.metrics;
+            if(metrics != null) metrics.recordFlush(System.nanoTime() - start, deltas.size());
+            L.debug("Flushed {} entries", deltas.size());
+            return deltas.size();
+        }
+        catch (Exception x) {
+            L.error("Flush of " + (deltas == null ? 0 : deltas.size()) + " entries failed, will retry", x);
+            // of a partial failure only the part not stored is retried:
+            final List<WcEntry> retry = x instanceof PartialStoreException ? ((PartialStoreException) x).getUnstored()
+                : deltas;
+            if(retry != null) retry(retry);
+            return 0;
+        }
+    }
+
+    private void flushLoop() {
+        while(running) {
+            try {
+                flushSignal.poll(flushMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException x) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if(running) flush();
+        }
+    }
+
+    /**
+     * Stops the flusher thread and flushes whatever is left, once: closed again it does nothing.
+     */
+    @Override public void close() {
+        synchronized (backlogLock) {
+            if(!running) return;
+            running = false;
+            backlogLock.notifyAll();
+        }
+        flushSignal.offer(Boolean.TRUE);
+        try {
+            flusher.join();
+        }
+        catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.mub.webCrawler;
+
+import java.util.Arrays;
+
+/**
+ * Word to count table private to one page or one worker: open addressing over parallel arrays,
+ * no boxing, no entry objects, not thread-safe.
+ * <p>
+ * The words are counted in lower case straight from a window of the text: the {@code String} of a word is made
+ * once, when the word is first seen, the repeated ones cost a hash and a compare.
+ * Reusable with {@link #clear()}.
+ * </p>
+ * @author michaelb
+ */
+public class WordCounts {
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] counts;
+    private int size;
+
+    public WordCounts() {
+        this(256);
+    }
+
+    public WordCounts(final int expected) {
+        final int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expected) * 2 - 1) << 1);
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * Counts the word at {@code [start, end)} of the text, in lower case.
+     */
+    public void add(final CharSequence text, final int start, final int end) {
+        add(text, start, end, 1);
+    }
+
+    public void add(final CharSequence text, final int start, final int end, final int count) {
+        int h = 0;
+        for(int i = start; i < end; i++) h = 31 * h + Character.toLowerCase(text.charAt(i));
+        final int mask = keys.length - 1;
+        for(int slot = spread(h) & mask; ; slot = slot + 1 & mask) {
+            final String key = keys[slot];
+            if(key == null) {
+                final char[] word = new char[end - start];
+                for(int i = start; i < end; i++) word[i - start] = Character.toLowerCase(text.charAt(i));
+                insert(slot, new String(word), h, count);
+                return;
+            }
+            if(hashes[slot] == h && matches(key, text, start, end)) {
+                counts[slot] += count;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts the word as is, it is expected to be in lower case already.
+     */
+    public void add(final String word, final int count) {
+        final int h = word.hashCode();
+        final int mask = keys.length - 1;
+        for(int slot = spread(h) & mask; ; slot = slot + 1 & mask) {
+            final String key = keys[slot];
+            if(key == null) {
+                insert(slot, word, h, count);
+                return;
+            }
+            if(hashes[slot] == h && key.equals(word)) {
+                counts[slot] += count;
+                return;
+            }
+        }
+    }
+
+    /**
+     * The count of the word, zero if none.
+     */
+    public int get(final String word) {
+        int h = 0;
+        for(int i = 0; i < word.length(); i++) h = 31 * h + Character.toLowerCase(word.charAt(i));
+        final int mask = keys.length - 1;
+        for(int slot = spread(h) & mask; keys[slot] != null; slot = slot + 1 & mask) {
+            if(hashes[slot] == h && matches(keys[slot], word, 0, word.length())) return counts[slot];
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The number of the slots to iterate over with {@link #wordAt(int)} and {@link #countAt(int)}.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * The word in the slot, null if the slot is empty.
+     */
+    public String wordAt(final int slot) {
+        return keys[slot];
+    }
+
+    public int countAt(final int slot) {
+        return counts[slot];
+    }
+
+    public void clear() {
+        if(size == 0) return;
+        Arrays.fill(keys, null);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    private void insert(final int slot, final String word, final int h, final int count) {
+        keys[slot] = word;
+        hashes[slot] = h;
+        counts[slot] = count;
+        if(++size * 4 >= keys.length * 3) grow();
+    }
+
+    private void grow() {
+        final String[] oldKeys = keys;
+        final int[] oldHashes = hashes, oldCounts = counts;
+        keys = new String[oldKeys.length << 1];
+        hashes = new int[keys.length];
+        counts = new int[keys.length];
+        final int mask = keys.length - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == null) continue;
+            int slot = spread(oldHashes[i]) & mask;
+            while(keys[slot] != null) slot = slot + 1 & mask;
+            keys[slot] = oldKeys[i];
+            hashes[slot] = oldHashes[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    private static boolean matches(final String key, final CharSequence text, final int start, final int end) {
+        if(key.length() != end - start) return false;
+        for(int i = start; i < end; i++) {
+            if(key.charAt(i - start) != Character.toLowerCase(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static int spread(final int h) {
+        return h ^ h >>> 16;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.mub.webCrawler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent interning dictionary: each distinct word gets a stable {@code int} id, dense from zero,
+ * and the one canonical {@code String} kept for it.
+ * <p>
+ * Lookups of the known words are lock-free, new words are added under the dictionary's lock.
+ * The id to word direction is an array read.
+ * </p>
+ * @author michaelb
+ */
+public class WordDictionary {
+
+    /** Returned for the words that are too long to keep. */
+    public static final int NONE = -1;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final int maxLength;
+    private volatile String[] words = new String[1024];
+    private volatile int size;
+
+    /**
+     * @param maxLength the words longer than that are not accepted.
+     */
+    public WordDictionary(final int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * The id of the word, a new one if the word has not been seen before; {@link #NONE} if the word is too long.
+     */
+    public int idOf(final String word) {
+        final Integer id = ids.get(word);
+        if(id != null) return id;
+        if(word.length() > maxLength) return NONE;
+        synchronized (this) {
+            final Integer again = ids.get(word);
+            if(again != null) return again;
+            final int result = size;
+            String[] array = words;
+            if(result == array.length) {
+                final String[] grown = new String[array.length << 1];
+                System.arraycopy(array, 0, grown, 0, array.length);
+                words = array = grown;
+            }
+            array[result] = word;
+            size = result + 1;
+            ids.put(word, result); // publishes the array slot written above
+            return result;
+        }
+    }
+
+    /**
+     * The id of the word, {@link #NONE} if it has not been seen.
+     */
+    public int find(final String word) {
+        final Integer id = ids.get(word);
+        return id == null ? NONE : id;
+    }
+
+    public String wordOf(final int id) {
+        return words[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
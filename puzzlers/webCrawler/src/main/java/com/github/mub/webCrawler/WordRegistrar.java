@@ -5,6 +5,21 @@ package com.github.mub.webCrawler;
  */
 public interface WordRegistrar {
 
-    public void register(final String word, final String count);
+    public void register(final String word, final int count);
+
+    public default void register(final String word, final String count) {
+        register(word, Integer.parseInt(count));
+    }
+
+    /**
+     * Registers all the words counted on a page, in one go: the implementations should make it cheaper than
+     * calling {@link #register(String, int)} per word. The counts may be negative, the zero ones are skipped.
+     */
+    public default void registerAll(final WordCounts counts) {
+        for(int slot = 0; slot < counts.capacity(); slot++) {
+            final String word = counts.wordAt(slot);
+            if(word != null && counts.countAt(slot) != 0) register(word, counts.countAt(slot));
+        }
+    }
 
 }
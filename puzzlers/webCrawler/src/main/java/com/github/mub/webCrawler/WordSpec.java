@@ -0,0 +1,177 @@
+package com.github.mub.webCrawler;
+
+import java.nio.CharBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled "word specification".
+ * <p>
+ * The common shapes, a character class with a length quantifier such as {@code \w+}, {@code \w{1,}} or
+ * {@code [a-zA-Z]{2,48}}, are served by a hand written scanner over the chars, which finds exactly the same words
+ * as {@code java.util.regex} would. Anything else goes to the regex engine.
+ * </p>
+ * Immutable; the {@link Scanner}s it makes are not thread-safe.
+ * @author michaelb
+ */
+public abstract class WordSpec {
+
+    public interface Scanner {
+        /**
+         * Reports the words found in {@code [0, end)} of the {@code chars} to the sink,
+         * as the windows of the {@code view} wrapping the same chars.
+         */
+        public void scan(final char[] chars, final CharBuffer view, final int end, final HtmlTokenizer.Sink sink);
+    }
+
+    private final String regex;
+
+    private WordSpec(final String regex) {
+        this.regex = regex;
+    }
+
+    public abstract Scanner newScanner();
+
+    /**
+     * True if served by the hand written scanner.
+     */
+    public abstract boolean isFast();
+
+    @Override public String toString() {
+        return regex;
+    }
+
+    public static WordSpec compile(final String regex) {
+        final WordSpec fast = CharClassSpec.parse(regex);
+        return fast != null ? fast : new RegexSpec(Pattern.compile(regex));
+    }
+
+    public static WordSpec of(final Pattern pattern) {
+        final WordSpec fast = pattern.flags() == 0 ? CharClassSpec.parse(pattern.pattern()) : null;
+        return fast != null ? fast : new RegexSpec(pattern);
+    }
+
+    private static final class RegexSpec extends WordSpec {
+        private final Pattern pattern;
+
+        RegexSpec(final Pattern pattern) {
+            super(pattern.pattern());
+            this.pattern = pattern;
+        }
+
+        @Override public boolean isFast() {
+            return false;
+        }
+
+        @Override public Scanner newScanner() {
+            final Matcher matcher = pattern.matcher("");
+            return new Scanner() {
+                @Override public void scan(final char[] chars, final CharBuffer view, final int end,
+                                           final HtmlTokenizer.Sink sink) {
+                    view.clear();
+                    view.limit(end);
+                    matcher.reset(view);
+                    while(matcher.find()) {
+                        if(matcher.end() > matcher.start()) sink.word(view, matcher.start(), matcher.end());
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * {@code CLASS+}, {@code CLASS{m,}}, {@code CLASS{m,n}} or {@code CLASS{m}} where the class is one of
+     * {@code \w}, {@code \d}, {@code [a-zA-Z]}, {@code [A-Za-z]}, {@code [a-z]}, {@code [A-Z]}, {@code [a-zA-Z0-9]}
+     * or {@code \p{L}}.
+     */
+    private static final class CharClassSpec extends WordSpec implements Scanner {
+        private static final String[][] ASCII_CLASSES = {
+            {"\\w", "a-zA-Z0-9_"}, {"\\d", "0-9"}, {"[a-zA-Z]", "a-zA-Z"}, {"[A-Za-z]", "a-zA-Z"},
+            {"[a-z]", "a-z"}, {"[A-Z]", "A-Z"}, {"[a-zA-Z0-9]", "a-zA-Z0-9"}, {"[A-Za-z0-9]", "a-zA-Z0-9"}
+        };
+        private static final String LETTER = "\\p{L}";
+        private static final Pattern QUANTIFIER = Pattern.compile("\\+|\\{(\\d+)(,(\\d*))?}");
+
+        /** ASCII membership, null for {@code \p{L}}. */
+        private final boolean[] ascii;
+        private final int min;
+        private final int max;
+
+        private CharClassSpec(final String regex, final boolean[] ascii, final int min, final int max) {
+            super(regex);
+            this.ascii = ascii;
+            this.min = min;
+            this.max = max;
+        }
+
+        static CharClassSpec parse(final String regex) {
+            boolean[] ascii = null;
+            String rest = null;
+            for(final String[] cls: ASCII_CLASSES) {
+                if(regex.startsWith(cls[0])) {
+                    ascii = ranges(cls[1]);
+                    rest = regex.substring(cls[0].length());
+                    break;
+                }
+            }
+            if(rest == null) {
+                if(!regex.startsWith(LETTER)) return null;
+                rest = regex.substring(LETTER.length());
+            }
+            final Matcher q = QUANTIFIER.matcher(rest);
+            if(!q.matches()) return null;
+            if(q.group(1) == null) return new CharClassSpec(regex, ascii, 1, Integer.MAX_VALUE);
+            final int min = Integer.parseInt(q.group(1));
+            final int max = q.group(2) == null ? min
+                : q.group(3).isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(q.group(3));
+            return min < 1 || max < min ? null : new CharClassSpec(regex, ascii, min, max);
+        }
+
+        private static boolean[] ranges(final String spec) {
+            final boolean[] result = new boolean[128];
+            for(int i = 0; i < spec.length(); i++) {
+                if(i + 2 < spec.length() && spec.charAt(i + 1) == '-') {
+                    for(char c = spec.charAt(i); c <= spec.charAt(i + 2); c++) result[c] = true;
+                    i += 2;
+                }
+                else result[spec.charAt(i)] = true;
+            }
+            return result;
+        }
+
+        @Override public boolean isFast() {
+            return true;
+        }
+
+        @Override public Scanner newScanner() {
+            return this; // stateless
+        }
+
+        private boolean isWordChar(final char c) {
+            return ascii == null ? Character.isLetter(c) : c < 128 && ascii[c];
+        }
+
+        /**
+         * Runs of the class chars, cut into words of {@code max} chars as the greedy regex would,
+         * with the tail shorter than {@code min} dropped.
+         */
+        @Override public void scan(final char[] chars, final CharBuffer view, final int end,
+                                   final HtmlTokenizer.Sink sink) {
+            view.clear();
+            view.limit(end);
+            int i = 0;
+            while(i < end) {
+                while(i < end && !isWordChar(chars[i])) i++;
+                int start = i;
+                while(i < end && isWordChar(chars[i])) {
+                    i++;
+                    if(i - start == max) {
+                        sink.word(view, start, i);
+                        start = i;
+                    }
+                }
+                if(i - start >= min) sink.word(view, start, i);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.ArchivePageProcessor;
+import com.github.mub.webCrawler.CrawlArchive;
+import com.github.mub.webCrawler.WordCounts;
+import com.github.mub.webCrawler.WordRegistrar;
+import com.github.mub.webCrawler.WordSpec;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline throughput of the parse and count pipeline, replayed from a crawl archive, run from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=test.github.mub.webCrawler.BenchArchiveReplay [-Dexec.args="<archive> <threads>"]}.
+ * With no archive given a synthetic one is recorded first. Every record is replayed a few rounds over by the threads,
+ * the words are counted into a registrar of the thread's, no store: the numbers are the ones of the pipeline alone.
+ */
+public class BenchArchiveReplay {
+
+    private static final int PAGES = 2000;
+    private static final int PAGE_BYTES = 30 * 1024;
+    private static final int ROUNDS = 5;
+
+    private static File synthetic() throws Exception {
+        final File file = File.createTempFile("replay", ".wcra");
+        file.deleteOnExit();
+        final SyntheticHtml html = new SyntheticHtml(50000, 42);
+        try (CrawlArchive.Recorder recorder = new CrawlArchive.Recorder(file)) {
+            for(int i = 0; i < PAGES; i++) {
+                final byte[] page = html.pageBytes(PAGE_BYTES);
+                recorder.record("http://bench.example/p/" + i, 200, "text/html; charset=UTF-8", page, page.length);
+            }
+        }
+        return file;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final File file = args.length > 0 ? new File(args[0]) : synthetic();
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        final CrawlArchive archive = CrawlArchive.open(file);
+        final List<URL> urls = new ArrayList<>(archive.size());
+        long bytes = 0;
+        for(int i = 0; i < archive.size(); i++) {
+            urls.add(new URL(archive.get(i).getUrl()));
+            bytes += archive.get(i).getBody().remaining();
+        }
+        final ArchivePageProcessor processor = new ArchivePageProcessor(archive, WordSpec.compile("\\w{1,}"));
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for(int round = 0; round <= ROUNDS; round++) { // the first one warms up
+                final AtomicInteger next = new AtomicInteger();
+                final AtomicLong words = new AtomicLong(), failed = new AtomicLong();
+                final long start = System.nanoTime();
+                final List<Future<?>> done = new ArrayList<>();
+                for(int t = 0; t < threads; t++) {
+                    done.add(pool.submit(new Runnable() {
+                        @Override public void run() {
+                            final long[] counted = new long[1];
+                            final WordRegistrar registrar = new WordRegistrar() {
+                                @Override public void register(final String word, final int count) {
+                                    counted[0] += count;
+                                }
+
+                                @Override public void registerAll(final WordCounts counts) {
+                                    counted[0] += counts.size();
+                                }
+                            };
+                            for(int i; (i = next.getAndIncrement()) < urls.size();) {
+                                try {
+                                    processor.process(urls.get(i), registrar);
+                                }
+                                catch (Exception x) {
+                                    failed.incrementAndGet();
+                                }
+                            }
+                            words.addAndGet(counted[0]);
+                        }
+                    }));
+                }
+                for(final Future<?> f: done) f.get();
+                final double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s %d pages, %d threads: %.0f pages/s, %.1f MB/s, %d distinct words/page, "
+                    + "%d failed%n", round == 0 ? "warm-up" : "round " + round, urls.size(), threads,
+                    urls.size() / seconds, bytes / seconds / (1 << 20), words.get() / Math.max(1, urls.size()),
+                    failed.get());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.JdbcFrequencyStore;
+import com.github.mub.webCrawler.WcEntry;
+import com.github.mub.webCrawler.WordSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows/sec of the batched upserts, run from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=test.github.mub.webCrawler.BenchJdbcFrequencyStore}.
+ * Each size is flushed twice: the first pass inserts, the second one updates.
+ */
+public class BenchJdbcFrequencyStore {
+
+    private static final int BATCH = 10000;
+
+    public static void main(final String[] args) throws Exception {
+        final String url = args.length > 0 ? args[0] : "jdbc:h2:mem:bench";
+        final WordSource src = new WordSource("bench.local:80");
+        for(final int size: new int[]{10000, 100000, 1000000}) {
+            final List<WcEntry> entries = new ArrayList<>(size);
+            for(int i = 0; i < size; i++) entries.add(new WcEntry(src, "w" + Integer.toString(i, 36) + size, 1));
+            try (JdbcFrequencyStore store = new JdbcFrequencyStore(url)) {
+                for(final String pass: new String[]{"insert", "update"}) {
+                    final long start = System.nanoTime();
+                    for(int from = 0; from < size; from += BATCH) {
+                        store.store(entries.subList(from, Math.min(size, from + BATCH)));
+                    }
+                    final double secs = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("%,9d distinct words, %s: %,12.0f rows/sec%n", size, pass, size / secs);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.HtmlTokenizer;
+import com.github.mub.webCrawler.UrlFilter;
+import com.github.mub.webCrawler.WordSpec;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Per URL cost of the ignored URL check, pattern by pattern against the compiled {@link UrlFilter},
+ * and per token cost of the word specification, {@code java.util.regex} against the fast scanner.
+ */
+public class BenchMatchers {
+
+    private static int tokens;
+
+    private static final HtmlTokenizer.Sink COUNTER = new HtmlTokenizer.Sink() {
+        @Override public void word(final CharSequence text, final int start, final int end) {
+            tokens++;
+        }
+
+        @Override public void link(final String href) {}
+    };
+
+    public static void main(final String[] args) {
+        final Random random = new Random(3);
+        final List<String> regexes = new ArrayList<>();
+        for(int i = 0; i < 50; i++) {
+            switch(i % 5) {
+                case 0: regexes.add("^http://site" + i + "\\.com/.*"); break;
+                case 1: regexes.add(".*\\.domain" + i + "\\.org.*"); break;
+                case 2: regexes.add("\\.ext" + i + "$"); break;
+                case 3: regexes.add("^https:\\/\\/.+$"); break;
+                default: regexes.add("[?&]param" + i + "=\\d+"); break;
+            }
+        }
+        final String[] urls = new String[10000];
+        for(int i = 0; i < urls.length; i++) {
+            urls[i] = "http://www.site" + random.nextInt(100) + ".com/dir/" + random.nextInt(1000) + "/page.html"
+                + (random.nextBoolean() ? "?param" + random.nextInt(100) + "=1" : "");
+        }
+        final List<Pattern> patterns = new ArrayList<>();
+        for(final String regex: regexes) patterns.add(Pattern.compile(regex));
+        final UrlFilter filter = new UrlFilter(regexes);
+
+        for(int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int hits = 0;
+            for(int rep = 0; rep < 10; rep++) {
+                for(final String url: urls) {
+                    for(final Pattern p: patterns) {
+                        if(p.matcher(url).find()) {
+                            hits++;
+                            break;
+                        }
+                    }
+                }
+            }
+            final double naive = (System.nanoTime() - start) / 10.0 / urls.length;
+            start = System.nanoTime();
+            for(int rep = 0; rep < 10; rep++) for(final String url: urls) if(filter.isIgnored(url)) hits--;
+            final double compiled = (System.nanoTime() - start) / 10.0 / urls.length;
+            System.out.printf("%d ignored URL patterns: %,8.0f ns/URL one by one, %,6.0f ns/URL compiled (%d)%n",
+                regexes.size(), naive, compiled, hits);
+        }
+
+        final char[] text = new SyntheticHtml(20000, 5).page(1 << 20).replaceAll("<[^>]*>", " ").toCharArray();
+        final CharBuffer view = CharBuffer.wrap(text);
+        final WordSpec regex = WordSpec.of(Pattern.compile("\\w{1,}", Pattern.UNIX_LINES)); // flags: no fast path
+        final WordSpec fast = WordSpec.compile("\\w{1,}");
+        for(int round = 0; round < 5; round++) {
+            for(final WordSpec spec: new WordSpec[]{regex, fast}) {
+                final WordSpec.Scanner scanner = spec.newScanner();
+                tokens = 0;
+                final long start = System.nanoTime();
+                for(int rep = 0; rep < 10; rep++) scanner.scan(text, view, text.length, COUNTER);
+                System.out.printf("%-5s word spec: %6.1f ns/token%n", spec.isFast() ? "fast" : "regex",
+                    (System.nanoTime() - start) / (double) tokens);
+            }
+        }
+    }
+}
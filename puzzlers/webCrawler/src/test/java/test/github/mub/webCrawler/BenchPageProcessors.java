@@ -0,0 +1,65 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.JsoupPageProcessor;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.WordRegistrar;
+import org.jsoup.Jsoup;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * The streaming tokenizer against the JSoup DOM path on the same synthetic pages, offline:
+ * MB/sec and bytes allocated per page byte, as reported by the HotSpot thread allocation counter.
+ */
+public class BenchPageProcessors {
+
+    private static final WordRegistrar NULL_REGISTRAR = new WordRegistrar() {
+        @Override public void register(final String word, final int count) {}
+    };
+
+    private interface Run {
+        void page(byte[] page) throws Exception;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Pattern wordSpec = Pattern.compile("\\w{1,}");
+        final URL base = new URL("http://bench.local/");
+        final JsoupPageProcessor jsoup = new JsoupPageProcessor(wordSpec, 0);
+        final StreamingPageProcessor streaming = new StreamingPageProcessor(wordSpec, 0);
+        final SyntheticHtml html = new SyntheticHtml(20000, 42);
+
+        for(final int size: new int[]{10000, 100000, 1000000}) {
+            final byte[] page = html.pageBytes(size);
+            measure("jsoup", page, new Run() {
+                @Override public void page(final byte[] page) throws Exception {
+                    jsoup.process(Jsoup.parse(new ByteArrayInputStream(page), "UTF-8", base.toString()),
+                        NULL_REGISTRAR);
+                }
+            });
+            measure("streaming", page, new Run() {
+                @Override public void page(final byte[] page) throws Exception {
+                    streaming.process(new ByteArrayInputStream(page), StandardCharsets.UTF_8, base, NULL_REGISTRAR);
+                }
+            });
+        }
+    }
+
+    private static void measure(final String name, final byte[] page, final Run run) throws Exception {
+        final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long tid = Thread.currentThread().getId();
+        final int reps = Math.max(20, 50000000 / page.length);
+        for(int i = 0; i < reps; i++) run.page(page); // warm up
+        final long allocated = threads.getThreadAllocatedBytes(tid);
+        final long start = System.nanoTime();
+        for(int i = 0; i < reps; i++) run.page(page);
+        final double secs = (System.nanoTime() - start) / 1e9;
+        final double perByte = (threads.getThreadAllocatedBytes(tid) - allocated) / (double) reps / page.length;
+        System.out.printf("%-10s %,9d byte pages: %8.1f MB/sec, %6.2f bytes allocated per page byte%n",
+            name, page.length, reps * (double) page.length / secs / 1e6, perByte);
+    }
+}
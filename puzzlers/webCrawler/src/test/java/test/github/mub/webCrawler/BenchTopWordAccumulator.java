@@ -0,0 +1,136 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.TopWordAccumulator;
+import com.github.mub.webCrawler.WordAccumulator;
+import com.github.mub.webCrawler.WordCounts;
+import com.github.mub.webCrawler.WordSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Accuracy and memory of the top words engine against the exact one, run from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=test.github.mub.webCrawler.BenchTopWordAccumulator}.
+ * Both count the same roughly Zipfian pages of a number of sites, without flushing till the end, so the heap holds
+ * all they accumulated; the exact engine's counts are the truth. Run with a heap of 2G or so.
+ * The heap of the top words engine is the one of its summaries, the sketch is allocated upfront.
+ */
+public class BenchTopWordAccumulator {
+
+    private static final int SITES = 2000;
+    private static final int PAGES = 40000;
+    private static final int WORDS_PER_PAGE = 500;
+    private static final int VOCABULARY = 200000;
+    private static final int TOP = 10;
+
+    /**
+     * The counts of a store by the {@code site|word}, per site, per word.
+     */
+    private static Map<String, Map<String, Integer>> bySite(final MapStore store) {
+        final Map<String, Map<String, Integer>> sites = new HashMap<>();
+        for(final Map.Entry<String, Integer> e: store.frequencies.entrySet()) {
+            final int bar = e.getKey().indexOf('|');
+            final String site = e.getKey().substring(0, bar);
+            Map<String, Integer> words = sites.get(site);
+            if(words == null) sites.put(site, words = new HashMap<>());
+            words.put(e.getKey().substring(bar + 1), e.getValue());
+        }
+        return sites;
+    }
+
+    /**
+     * The page, of the given site: a site has a few words of its own on top of the common ones.
+     */
+    private static WordCounts page(final Random random, final int site) {
+        final WordCounts counts = new WordCounts();
+        for(int i = 0; i < WORDS_PER_PAGE; i++) {
+            final int rank = (int) Math.pow(VOCABULARY, random.nextDouble()) - 1;
+            counts.add(i % 10 == 0 ? "s" + site + "_" + rank % 50 : "w" + rank, 1);
+        }
+        return counts;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Counts the same pages into every engine, prints its speed and heap; the pages are generated on the go, outside
+     * of the timing, not to hold them all.
+     */
+    private static void run(final String name, final WordAccumulator acc, final WordSource[] sites) {
+        final Random random = new Random(42);
+        final long before = usedHeap();
+        long nanos = 0;
+        for(int page = 0; page < PAGES; page++) {
+            final WordCounts counts = page(random, page % sites.length);
+            final long start = System.nanoTime();
+            acc.forSource(sites[page % sites.length]).registerAll(counts);
+            nanos += System.nanoTime() - start;
+        }
+        final long heap = usedHeap() - before;
+        acc.close();
+        System.out.printf("%-22s %,10.0f pages/sec %,8d KB heap%n", name, PAGES / (nanos / 1e9), heap / 1024);
+    }
+
+    private static List<String> top(final Map<String, Integer> words, final int n) {
+        final List<Map.Entry<String, Integer>> ranked = new ArrayList<>(words.entrySet());
+        Collections.sort(ranked, new Comparator<Map.Entry<String, Integer>>() {
+            @Override public int compare(final Map.Entry<String, Integer> a, final Map.Entry<String, Integer> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+        final List<String> result = new ArrayList<>(n);
+        for(final Map.Entry<String, Integer> e: ranked.subList(0, Math.min(n, ranked.size()))) result.add(e.getKey());
+        return result;
+    }
+
+    /**
+     * The recall of the true top words per site and the relative error of their counts, to the exact counts.
+     */
+    private static void compare(final MapStore exact, final MapStore approximate, final TopWordAccumulator acc) {
+        int found = 0, expected = 0;
+        double error = 0;
+        final Map<String, Map<String, Integer>> approximated = bySite(approximate);
+        for(final Map.Entry<String, Map<String, Integer>> site: bySite(exact).entrySet()) {
+            final Map<String, Integer> counted = approximated.get(site.getKey());
+            final List<String> truth = top(site.getValue(), TOP);
+            final Set<String> got = new HashSet<>(counted == null ? Collections.<String>emptyList()
+                : top(counted, TOP));
+            for(final String word: truth) {
+                expected++;
+                if(got.contains(word)) found++;
+                final Integer count = counted == null ? null : counted.get(word);
+                error += 1 - (count == null ? 0 : count) / (double) site.getValue().get(word);
+            }
+        }
+        System.out.printf("%22s top-%d recall %.3f, mean count error %.4f, %,d encounters dropped, %,d KB sketch%n",
+            "", TOP, found / (double) expected, error / expected, acc.getDropped(), acc.getSketch().footprint() / 1024);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final WordSource[] sites = new WordSource[SITES];
+        for(int i = 0; i < SITES; i++) sites[i] = new WordSource("site" + i + ".com:80");
+
+        final MapStore exact = new MapStore(true);
+        run("exact", new StripedWordAccumulator(exact, 64, 0, 0), sites);
+        for(final int k: new int[]{20, 100}) {
+            for(final double epsilon: new double[]{0.0001, 0.00001}) {
+                final MapStore approximate = new MapStore(true);
+                final TopWordAccumulator acc = new TopWordAccumulator(approximate, k, epsilon, 0.99, 0, 0);
+                run("top " + k + ", error " + epsilon, acc, sites);
+                compare(exact, approximate, acc);
+            }
+        }
+    }
+}
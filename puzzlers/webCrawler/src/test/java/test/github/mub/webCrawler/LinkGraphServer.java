@@ -0,0 +1,87 @@
+package test.github.mub.webCrawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server with a synthetic link graph: a binary tree of {@code size} pages, {@code /p/N} links to
+ * {@code /p/2N} and {@code /p/2N+1}, back to the root and to an https page. Each page has the words
+ * {@code "page"} and {@code "common"} once and the word {@code "tree"} twice.
+ */
+public class LinkGraphServer implements Closeable {
+
+    private final HttpServer server;
+    private final int size;
+    private final long delayMillis;
+    final AtomicInteger hits = new AtomicInteger();
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+
+    public LinkGraphServer(final int size, final long delayMillis) throws IOException {
+        this.size = size;
+        this.delayMillis = delayMillis;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/p/", new HttpHandler() {
+            @Override public void handle(final HttpExchange ex) throws IOException {
+                serve(ex);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public String url(final int page) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/p/" + page;
+    }
+
+    public String site() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void serve(final HttpExchange ex) throws IOException {
+        hits.incrementAndGet();
+        final int now = active.incrementAndGet();
+        int max;
+        while(now > (max = maxActive.get()) && !maxActive.compareAndSet(max, now));
+        try {
+            if(delayMillis > 0) Thread.sleep(delayMillis);
+            final int n = Integer.parseInt(ex.getRequestURI().getPath().substring(3));
+            final byte[] body = page(n).getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            ex.sendResponseHeaders(n <= size ? 200 : 404, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            active.decrementAndGet();
+        }
+    }
+
+    String page(final int n) {
+        final StringBuilder sb = new StringBuilder("<html><head><title>page ").append(n)
+            .append("</title></head><body><p>Tree common <b>tree</b></p>");
+        for(final int child: new int[]{2 * n, 2 * n + 1}) {
+            if(child <= size) sb.append(" <a href=\"/p/").append(child).append("?q=").append(n).append("\">")
+                .append(child).append("</a>");
+        }
+        return sb.append(" <a href=\"/p/1\">1</a> <a href=\"https://127.0.0.1/p/1\">secure</a></body></html>")
+            .toString();
+    }
+
+    @Override public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,48 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.FrequencyStore;
+import com.github.mub.webCrawler.WcEntry;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The store of the tests: the deltas summed in a map, by the word or by the {@code site|word}.
+ */
+public class MapStore implements FrequencyStore {
+    final Map<String, Integer> frequencies = new ConcurrentHashMap<>();
+    private final boolean bySite;
+
+    /**
+     * The counts by the word, the sites' summed.
+     */
+    public MapStore() {
+        this(false);
+    }
+
+    /**
+     * @param bySite true for the counts by the {@code site|word}, see {@link #key(String, String)}.
+     */
+    public MapStore(final boolean bySite) {
+        this.bySite = bySite;
+    }
+
+    static String key(final String site, final String word) {
+        return site + '|' + word;
+    }
+
+    @Override public synchronized void store(final Collection<WcEntry> deltas) throws IOException {
+        for(final WcEntry e: deltas) {
+            final String key = bySite ? key(e.getSource().getKey(), e.getWord()) : e.getWord();
+            final Integer old = frequencies.get(key);
+            frequencies.put(key, old == null ? e.getCount() : old + e.getCount());
+        }
+    }
+
+    int get(final String key) {
+        final Integer count = frequencies.get(key);
+        return count == null ? 0 : count;
+    }
+}
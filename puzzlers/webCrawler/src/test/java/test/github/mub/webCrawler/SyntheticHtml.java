@@ -0,0 +1,59 @@
+package test.github.mub.webCrawler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic HTML pages for the benchmarks: paragraphs of words drawn from a Zipf-like vocabulary,
+ * inline markup, links, a script and a style block.
+ */
+public class SyntheticHtml {
+
+    private final String[] vocabulary;
+    private final Random random;
+
+    public SyntheticHtml(final int vocabularySize, final long seed) {
+        random = new Random(seed);
+        vocabulary = new String[vocabularySize];
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < vocabularySize; i++) {
+            sb.setLength(0);
+            final int len = 2 + random.nextInt(9);
+            for(int j = 0; j < len; j++) sb.append((char) ('a' + random.nextInt(26)));
+            vocabulary[i] = sb.toString();
+        }
+    }
+
+    /**
+     * A word, the low ranks far more often than the high ones.
+     */
+    public String word() {
+        final double u = random.nextDouble();
+        return vocabulary[(int) (vocabulary.length * u * u * u)];
+    }
+
+    /**
+     * A page of about {@code approxBytes} bytes.
+     */
+    public String page(final int approxBytes) {
+        final StringBuilder sb = new StringBuilder(approxBytes + 256).append("<!DOCTYPE html><html><head><title>")
+            .append(word()).append(' ').append(word())
+            .append("</title><style>body { margin: 0 }</style><script>var x = '<p>';</script></head><body>");
+        int link = 0;
+        while(sb.length() < approxBytes) {
+            sb.append("<p class=\"text\">");
+            for(int i = 0; i < 40; i++) {
+                if(i % 13 == 5) sb.append("<b>").append(word()).append("</b> ");
+                else if(i % 17 == 3) sb.append("<a href=\"/dir/").append(link++).append(".html?x=1&amp;y=2\">")
+                    .append(word()).append("</a> ");
+                else sb.append(word()).append(i % 9 == 8 ? ", " : " ");
+            }
+            sb.append("&nbsp;</p>\n");
+        }
+        return sb.append("</body></html>").toString();
+    }
+
+    public byte[] pageBytes(final int approxBytes) {
+        return page(approxBytes).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,208 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.Checkpoint;
+import com.github.mub.webCrawler.Checkpointer;
+import com.github.mub.webCrawler.Crawler;
+import com.github.mub.webCrawler.FingerprintLog;
+import com.github.mub.webCrawler.FrequencyStore;
+import com.github.mub.webCrawler.Frontier;
+import com.github.mub.webCrawler.JdbcFrequencyStore;
+import com.github.mub.webCrawler.PageValidators;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.UrlFilter;
+import com.github.mub.webCrawler.UrlNormalizer;
+import com.github.mub.webCrawler.VisitedUrls;
+import com.github.mub.webCrawler.WcEntry;
+import com.github.mub.webCrawler.WordSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestCheckpoint {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test public void checkpointRoundTrip() throws Exception {
+        final File file = new File(tmp.getRoot(), "cp.bin");
+        assertNull(Checkpoint.read(file));
+        final WordSource site = new WordSource("example.com:80");
+        new Checkpoint(7, 42, Arrays.asList(new Checkpoint.Page("http://example.com/a", 1),
+            new Checkpoint.Page("http://example.com/b", 2)), Arrays.asList(new WcEntry(site, "alpha", 3),
+            new WcEntry(site, "béta", 5))).write(file);
+
+        final Checkpoint cp = Checkpoint.read(file);
+        assertEquals(7, cp.getEpoch());
+        assertEquals(42, cp.getVisitedCount());
+        assertEquals(2, cp.getFrontier().size());
+        assertEquals("http://example.com/b", cp.getFrontier().get(1).getUrl());
+        assertEquals(2, cp.getFrontier().get(1).getDepth());
+        assertEquals("béta", cp.getDeltas().get(1).getWord());
+        assertEquals(5, cp.getDeltas().get(1).getCount());
+        assertEquals("example.com:80", cp.getDeltas().get(1).getSource().getSource());
+    }
+
+    @Test public void visitedLogSurvivesReopen() throws Exception {
+        final File file = new File(tmp.getRoot(), "visited.log");
+        final URL a = new URL("http://example.com/a"), b = new URL("http://example.com/b");
+        try (FingerprintLog log = new FingerprintLog(file, 0)) {
+            final VisitedUrls visited = new VisitedUrls(16, log);
+            assertTrue(visited.add(a));
+            assertFalse(visited.add(a));
+            assertTrue(visited.add(b));
+            assertEquals(2, log.size());
+            log.force();
+        }
+        try (FingerprintLog log = new FingerprintLog(file, 1)) { // the last checkpoint saw just one
+            final VisitedUrls visited = new VisitedUrls(16, log);
+            assertTrue(visited.contains(a));
+            assertFalse(visited.contains(b));
+            assertEquals(UrlNormalizer.fingerprint(UrlNormalizer.normalize(a)), log.get(0));
+        }
+    }
+
+    @Test public void validatorsResumeAtTheCheckpointedEpoch() throws Exception {
+        final File dir = tmp.newFolder("cp"), file = new File(tmp.getRoot(), "validators.bin");
+        final File checkpoint = new File(dir, Checkpointer.CHECKPOINT_FILE), first = tmp.newFile("epoch1.bin");
+        final PageValidators.Entry a = new PageValidators.Entry("a", null, Collections.<String>emptyList()),
+            b = new PageValidators.Entry("b", null, Collections.<String>emptyList());
+        try (JdbcFrequencyStore store = new JdbcFrequencyStore("jdbc:h2:mem:validators")) {
+            final FrequencyStore crashing = new FrequencyStore() { // down after the epoch 1
+                @Override public void store(final Collection<WcEntry> deltas) throws IOException {
+                    throw new IOException("Down");
+                }
+
+                @Override public void store(final Collection<WcEntry> deltas, final long epoch) throws IOException {
+                    if(epoch > 1) throw new IOException("Down");
+                    store.store(deltas, epoch);
+                }
+            };
+            try (Checkpointer cp = new Checkpointer(dir, false)) {
+                final PageValidators validators = new PageValidators();
+                cp.setValidators(validators, file);
+                cp.recover(store);
+                try (StripedWordAccumulator words = new StripedWordAccumulator(crashing, 1, 0, 0)) {
+                    words.setCheckpointer(cp);
+                    validators.put("host:80/a", a);
+                    validators.put("host:80/gone", b);
+                    words.flush();
+                    Files.copy(checkpoint.toPath(), first.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    validators.put("host:80/b", b);
+                    validators.remove("host:80/gone");
+                } // the close's flush journals the epoch 2, the crash comes before its checkpoint is written:
+            }
+            Files.copy(first.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            assertFalse(file.exists());
+
+            try (Checkpointer cp = new Checkpointer(dir, true)) {
+                final PageValidators validators = new PageValidators();
+                validators.load(file);
+                cp.setValidators(validators, file);
+                cp.recover(store);
+                assertEquals(1, store.lastEpoch());
+                assertFalse(new File(dir, Checkpointer.VALIDATORS_JOURNAL).exists());
+            }
+            final PageValidators saved = new PageValidators();
+            saved.load(file);
+            assertEquals("a", saved.get("host:80/a").getETag());
+            assertEquals("b", saved.get("host:80/gone").getETag());
+            assertNull(saved.get("host:80/b"));
+        }
+    }
+
+    @Test public void resumeCrawlsTheFrontierAndAppliesDeltasOnce() throws Exception {
+        final File dir = tmp.getRoot();
+        try (LinkGraphServer server = new LinkGraphServer(1000, 0);
+             JdbcFrequencyStore store = new JdbcFrequencyStore("jdbc:h2:mem:" + getClass().getSimpleName())) {
+            final WordSource site = new WordSource(server.site());
+            // the state after the start page: its words counted in epoch 1, both its links pending
+            try (Checkpointer cp = new Checkpointer(dir, false)) {
+                final VisitedUrls visited = new VisitedUrls(16, cp.getVisitedLog());
+                for(int page = 1; page <= 3; page++) visited.add(new URL(server.url(page)));
+                cp.getVisitedLog().force();
+            }
+            new Checkpoint(1, 3, Arrays.asList(new Checkpoint.Page(server.url(2), 1),
+                new Checkpoint.Page(server.url(3), 1)), Collections.singletonList(new WcEntry(site, "tree", 2)))
+                .write(new File(dir, Checkpointer.CHECKPOINT_FILE));
+
+            try (Checkpointer cp = new Checkpointer(dir, true)) {
+                cp.recover(store);
+                cp.recover(store);
+                assertEquals(1, store.lastEpoch());
+                assertEquals(2, store.frequency(server.site(), "tree"));
+
+                final int pages;
+                try (StripedWordAccumulator words = new StripedWordAccumulator(store, 8, 1000, 10);
+                     Crawler crawler = new Crawler(new StreamingPageProcessor(Pattern.compile("\\w{1,}"), 5000),
+                         words, new VisitedUrls(1000, cp.getVisitedLog()),
+                         new UrlFilter(Collections.<String>emptyList()), 3, 8, 4)) {
+                    words.setCheckpointer(cp);
+                    cp.attach(crawler);
+                    pages = crawler.resume(cp.getResumed().getFrontier());
+                }
+                assertEquals(14, pages);
+                assertEquals(14, server.hits.get());
+            }
+            assertEquals(30, store.frequency(server.site(), "tree"));
+
+            final Checkpoint last = Checkpoint.read(new File(dir, Checkpointer.CHECKPOINT_FILE));
+            assertEquals(15, last.getVisitedCount());
+            assertTrue(last.getFrontier().isEmpty());
+            assertEquals(last.getEpoch(), store.lastEpoch());
+        }
+    }
+
+    @Test(timeout = 30000) public void stoppedCrawlCheckpointsItsSpilledPages() throws Exception {
+        final File dir = tmp.getRoot();
+        final ExecutorService background = Executors.newSingleThreadExecutor();
+        try (LinkGraphServer server = new LinkGraphServer(1000, 50);
+             JdbcFrequencyStore store = new JdbcFrequencyStore("jdbc:h2:mem:spilled");
+             Checkpointer cp = new Checkpointer(dir, false)) {
+            cp.recover(store);
+            try (StripedWordAccumulator words = new StripedWordAccumulator(store, 8, 1000, 10);
+                 Crawler crawler = new Crawler(new StreamingPageProcessor(Pattern.compile("\\w{1,}"), 5000),
+                     words, new VisitedUrls(1000, cp.getVisitedLog()), new UrlFilter(Collections.<String>emptyList()),
+                     new Frontier(1, 1, dir), 5, 1)) {
+                words.setCheckpointer(cp);
+                cp.attach(crawler);
+                final URL start = new URL(server.url(1));
+                final Future<Integer> crawled = background.submit(new Callable<Integer>() {
+                    @Override public Integer call() throws Exception {
+                        return crawler.crawl(start);
+                    }
+                });
+                while(server.hits.get() < 4) Thread.sleep(10);
+                crawled.cancel(true); // stopped with all but one of its pending pages spilled
+            }
+            // the close's checkpoint is taken before the spills go:
+            final Checkpoint last = Checkpoint.read(new File(dir, Checkpointer.CHECKPOINT_FILE));
+            assertTrue("frontier of " + last.getFrontier().size(), last.getFrontier().size() > 2);
+            assertEquals(last.getEpoch(), store.lastEpoch());
+        }
+        finally {
+            background.shutdownNow();
+        }
+        for(int depth = 0; depth <= 5; depth++) assertFalse(new File(dir, "frontier-" + depth + ".spill").exists());
+    }
+}
@@ -0,0 +1,115 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.Config;
+import com.github.mub.webCrawler.ConfigSnapshot;
+import com.github.mub.webCrawler.ConfigWatcher;
+import com.github.mub.webCrawler.JdbcFrequencyStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ */
+public class TestConfig {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File write(final String name, final String yaml) throws IOException {
+        final File file = new File(tmp.getRoot(), name);
+        Files.write(file.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test public void loadsTheReadmeSettings() throws Exception {
+        final Config config = Config.load(new StringReader("maxDepth: 3\n"
+            + "wordSpec: \\w{2,}\n"
+            + "ignoredUrls: ['^https:\\/\\/.+$']\n"
+            + "ignoredWords: [The, off, out]\n"
+            + "flushEncounters: 500\n"
+            + "maxPerHost: 2\n"
+            + "batchSize: 100\n"));
+        assertEquals(3, config.getMaxDepth());
+        assertEquals("\\w{2,}", config.getWordSpec());
+        assertEquals(Arrays.asList("^https:\\/\\/.+$"), config.getIgnoredUrls());
+        assertEquals(500, config.getFlushEncounters());
+        assertEquals(64, config.getMaxInFlight()); // not mentioned, the default stays
+        assertEquals(JdbcFrequencyStore.DEFAULT_URL, config.getDbUrl());
+
+        final ConfigSnapshot snapshot = new ConfigSnapshot(config);
+        assertTrue(snapshot.getIgnoredWords().contains("the"));
+        assertTrue(snapshot.getUrlFilter().isIgnored("https://example.com/"));
+        assertFalse(snapshot.getUrlFilter().isIgnored("http://example.com/"));
+        assertEquals(100, snapshot.getBatchSize());
+        try {
+            snapshot.getIgnoredWords().add("in");
+            fail("The snapshot must be immutable");
+        }
+        catch (UnsupportedOperationException x) {
+            // expected
+        }
+        config.getIgnoredUrls().clear();
+        assertEquals(1, snapshot.getIgnoredUrls().size());
+    }
+
+    @Test public void rejectsInvalidSettings() throws Exception {
+        for(final String yaml: new String[] {"maxDepth: -1", "ignoredUrls: ['(unclosed']", "noSuchKey: 1",
+            "maxPerHost: many"}) {
+            try {
+                new ConfigSnapshot(Config.load(new StringReader(yaml)));
+                fail("Accepted " + yaml);
+            }
+            catch (IOException | IllegalArgumentException x) {
+                // expected
+            }
+        }
+        assertNotNull(new ConfigSnapshot(Config.load(new StringReader(""))));
+    }
+
+    @Test public void brokenEditKeepsTheLastGoodSnapshot() throws Exception {
+        final File file = write("wc.yaml", "maxDepth: 1\n");
+        try (ConfigWatcher watcher = new ConfigWatcher(file)) {
+            final ConfigSnapshot first = watcher.get();
+            write("wc.yaml", "maxDepth: [\n");
+            assertFalse(watcher.reload());
+            assertSame(first, watcher.get());
+            write("wc.yaml", "maxDepth: 4\n");
+            assertTrue(watcher.reload());
+            assertEquals(4, watcher.get().getMaxDepth());
+        }
+    }
+
+    @Test public void watchesTheFile() throws Exception {
+        final File file = write("wc.yaml", "flushMillis: 5000\n");
+        final BlockingQueue<ConfigSnapshot> changes = new ArrayBlockingQueue<>(16);
+        try (ConfigWatcher watcher = new ConfigWatcher(file)) {
+            watcher.addListener(new ConfigWatcher.Listener() {
+                @Override public void configChanged(final ConfigSnapshot previous, final ConfigSnapshot current) {
+                    changes.offer(current);
+                }
+            });
+            watcher.start();
+            write("wc.yaml", "flushMillis: 250\n");
+            final ConfigSnapshot changed = changes.poll(20, TimeUnit.SECONDS);
+            assertNotNull("No reload seen", changed);
+            assertEquals(250, changed.getFlushMillis());
+            assertSame(changed, watcher.get());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.ArchivePageProcessor;
+import com.github.mub.webCrawler.CrawlArchive;
+import com.github.mub.webCrawler.Crawler;
+import com.github.mub.webCrawler.PageProcessor;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.UrlFilter;
+import com.github.mub.webCrawler.VisitedUrls;
+import com.github.mub.webCrawler.WordSpec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ */
+public class TestCrawlArchive {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static String text(final ByteBuffer body) {
+        final byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int crawl(final PageProcessor processor, final MapStore store, final String start)
+        throws Exception {
+        try (StripedWordAccumulator words = new StripedWordAccumulator(store, 8, 1000, 10);
+             Crawler crawler = new Crawler(processor, words, new VisitedUrls(1000),
+                 new UrlFilter(Collections.<String>emptyList()), 4, 8, 4)) {
+            return crawler.crawl(new URL(start));
+        }
+    }
+
+    @Test public void unfinishedRecordIsCutOff() throws Exception {
+        final File file = tmp.newFile("pages.wcra");
+        final byte[] a = "<p>first page</p>".getBytes(StandardCharsets.UTF_8);
+        try (CrawlArchive.Recorder recorder = new CrawlArchive.Recorder(file)) {
+            recorder.record("http://example.com/a", 200, "text/html; charset=UTF-8", a, a.length);
+            recorder.record("http://example.com/b", 404, null, new byte[0], 0);
+        }
+        final long complete = file.length();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(complete);
+            raw.writeInt(1000); // a record the crash cut short
+            raw.write(new byte[10]);
+        }
+        CrawlArchive archive = CrawlArchive.open(file);
+        assertEquals(2, archive.size());
+        final CrawlArchive.Page page = archive.get(new URL("http://EXAMPLE.com/a#top"));
+        assertEquals(200, page.getStatus());
+        assertEquals("text/html; charset=UTF-8", page.getContentType());
+        assertEquals("<p>first page</p>", text(page.getBody()));
+        assertEquals("<p>first page</p>", text(page.getBody())); // a view per call
+        assertEquals(404, archive.get(1).getStatus());
+        assertNull(archive.get(1).getContentType());
+        assertNull(archive.get(new URL("http://example.com/c")));
+
+        final byte[] again = "<p>second visit</p>".getBytes(StandardCharsets.UTF_8);
+        try (CrawlArchive.Recorder recorder = new CrawlArchive.Recorder(file)) {
+            recorder.record("http://example.com/a", 200, "text/html", again, again.length);
+            assertEquals(1, recorder.getRecords());
+        }
+        assertEquals(complete + 4 + 2 + 2 + 20 + 2 + 9 + 4 + again.length, file.length());
+        archive = CrawlArchive.open(file);
+        assertEquals(3, archive.size());
+        assertEquals("<p>second visit</p>", text(archive.get(new URL("http://example.com/a")).getBody()));
+    }
+
+    @Test public void replayCountsAsTheLiveCrawl() throws Exception {
+        final File file = tmp.newFile("crawl.wcra");
+        final MapStore live = new MapStore(), replayed = new MapStore();
+        final String start;
+        final int pages;
+        try (LinkGraphServer server = new LinkGraphServer(100, 0);
+             CrawlArchive.Recorder recorder = new CrawlArchive.Recorder(file)) {
+            start = server.url(1);
+            final StreamingPageProcessor processor = new StreamingPageProcessor(Pattern.compile("\\w{1,}"), 5000);
+            processor.setRecorder(recorder);
+            pages = crawl(processor, live, start);
+            assertEquals(31, pages);
+            assertEquals(31, recorder.getRecords());
+        }
+        // the server is gone: the replay is offline
+        final CrawlArchive archive = CrawlArchive.open(file);
+        assertEquals(pages, crawl(new ArchivePageProcessor(archive, WordSpec.compile("\\w{1,}")), replayed, start));
+        assertTrue(live.frequencies.size() > 0);
+        assertEquals(live.frequencies, replayed.frequencies);
+
+        try {
+            crawl(new ArchivePageProcessor(archive, WordSpec.compile("\\w{1,}")), new MapStore(),
+                start.replace("/p/1", "/p/1000"));
+            fail("A page not in the archive should fail the crawl");
+        }
+        catch (IOException x) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.CrawlMetrics;
+import com.github.mub.webCrawler.Crawler;
+import com.github.mub.webCrawler.FrequencyStore;
+import com.github.mub.webCrawler.LatencyHistogram;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.UrlFilter;
+import com.github.mub.webCrawler.VisitedUrls;
+import com.github.mub.webCrawler.WcEntry;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestCrawlMetrics {
+
+    @Test public void percentilesWithinABucket() {
+        final LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.percentile(0.5));
+        for(long v = 1; v <= 1000000; v++) h.record(v * 1000); // 1 us to 1 s
+        assertEquals(1000000000L, h.getMax());
+        for(final double fraction: new double[] {0.01, 0.5, 0.9, 0.99, 0.999}) {
+            final double expected = fraction * 1e9;
+            final long actual = h.percentile(fraction);
+            assertTrue(fraction + ": " + actual, actual >= expected && actual <= expected * 1.125);
+        }
+        h.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, h.getMax());
+        assertEquals(Long.MAX_VALUE, h.percentile(1.0));
+    }
+
+    @Test public void intervalPercentiles() {
+        final CrawlMetrics metrics = new CrawlMetrics();
+        for(int i = 0; i < 100; i++) metrics.recordFetch(50000000); // 50 ms
+        metrics.report();
+        assertTrue(metrics.getFetchP50Micros() >= 50000 && metrics.getFetchP50Micros() < 57000);
+        for(int i = 0; i < 100; i++) metrics.recordFetch(1000000); // 1 ms
+        metrics.report();
+        assertTrue("the earlier interval is out", metrics.getFetchP99Micros() < 1200);
+        metrics.report();
+        assertEquals(0, metrics.getFetchP99Micros());
+    }
+
+    @Test public void crawlIsMeasuredAndOnJmx() throws Exception {
+        final CrawlMetrics metrics = new CrawlMetrics();
+        final FrequencyStore store = new FrequencyStore() {
+            @Override public void store(final Collection<WcEntry> deltas) {
+                // counted elsewhere
+            }
+        };
+        try (LinkGraphServer server = new LinkGraphServer(100, 0)) {
+            final StreamingPageProcessor processor = new StreamingPageProcessor(Pattern.compile("\\w+"), 5000);
+            processor.setMetrics(metrics);
+            try (StripedWordAccumulator words = new StripedWordAccumulator(store, 4, 1000, 10);
+                 Crawler crawler = new Crawler(processor, words, new VisitedUrls(100),
+                     new UrlFilter(Collections.<String>emptyList()), 4, 8, 4)) {
+                words.setMetrics(metrics);
+                crawler.setMetrics(metrics);
+                metrics.registerMBean();
+                assertEquals(31, crawler.crawl(new URL(server.url(1))));
+            }
+        }
+        try {
+            assertEquals(31, metrics.getPages());
+            assertEquals(0, metrics.getPagesFailed());
+            assertTrue(metrics.getTokens() > 31);
+            assertTrue(metrics.getFlushes() > 0);
+            assertTrue(metrics.getFlushedEntries() > 0);
+            assertEquals(0, metrics.getFrontierSize());
+            metrics.report();
+            assertTrue(metrics.getPagesPerSecond() > 0);
+            assertTrue(metrics.getFetchP50Micros() > 0);
+            assertTrue(metrics.getParseP99Micros() >= metrics.getParseP50Micros());
+
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(CrawlMetrics.OBJECT_NAME);
+            assertEquals(31L, server.getAttribute(name, "Pages"));
+            assertEquals(metrics.getTokens(), server.getAttribute(name, "Tokens"));
+        }
+        finally {
+            metrics.close();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(CrawlMetrics.OBJECT_NAME)));
+    }
+}
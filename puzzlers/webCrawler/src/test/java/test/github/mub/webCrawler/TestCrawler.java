@@ -0,0 +1,148 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.Crawler;
+import com.github.mub.webCrawler.JsoupPageProcessor;
+import com.github.mub.webCrawler.PageProcessor;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.UrlFilter;
+import com.github.mub.webCrawler.VisitedUrls;
+import com.github.mub.webCrawler.WcEntry;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ */
+public class TestCrawler {
+
+    private static final UrlFilter NO_FILTER = new UrlFilter(Collections.<String>emptyList());
+
+    private static int crawl(final LinkGraphServer server, final MapStore store, final int depth,
+                             final int maxInFlight, final int maxPerHost) throws Exception {
+        return crawl(server, new JsoupPageProcessor(Pattern.compile("\\w{1,}"), 5000), NO_FILTER, store, depth,
+            maxInFlight, maxPerHost);
+    }
+
+    private static int crawl(final LinkGraphServer server, final PageProcessor processor, final UrlFilter ignored,
+                             final MapStore store, final int depth, final int maxInFlight, final int maxPerHost)
+        throws Exception {
+        try (StripedWordAccumulator words = new StripedWordAccumulator(store, 8, 1000, 10);
+             Crawler crawler = new Crawler(processor, words, new VisitedUrls(1000), ignored, depth, maxInFlight,
+                 maxPerHost)) {
+            return crawler.crawl(new URL(server.url(1)));
+        }
+    }
+
+    @Test public void depthLimitAndVisitedSet() throws Exception {
+        final MapStore store = new MapStore();
+        try (LinkGraphServer server = new LinkGraphServer(1000, 0)) {
+            final int pages = crawl(server, store, 3, 16, 4);
+            assertEquals(15, pages); // 1 + 2 + 4 + 8
+            assertEquals(15, server.hits.get());
+        }
+        assertEquals(Integer.valueOf(30), store.frequencies.get("tree"));
+        assertEquals(Integer.valueOf(15), store.frequencies.get("common"));
+    }
+
+    @Test public void streamingCountsMatchJsoup() throws Exception {
+        final MapStore jsoup = new MapStore(), streaming = new MapStore();
+        try (LinkGraphServer server = new LinkGraphServer(100, 0)) {
+            crawl(server, jsoup, 5, 8, 4);
+        }
+        try (LinkGraphServer server = new LinkGraphServer(100, 0)) {
+            assertEquals(63, crawl(server, new StreamingPageProcessor(Pattern.compile("\\w{1,}"), 5000), NO_FILTER,
+                streaming, 5, 8, 4));
+        }
+        assertEquals(jsoup.frequencies, streaming.frequencies);
+    }
+
+    @Test public void ignoredUrlsAreSkipped() throws Exception {
+        final UrlFilter ignored = new UrlFilter(Arrays.asList("^https:\\/\\/.+$", ".*/p/3\\?.*"));
+        try (LinkGraphServer server = new LinkGraphServer(1000, 0)) {
+            assertEquals(8, crawl(server, new JsoupPageProcessor(Pattern.compile("\\w+"), 5000), ignored,
+                new MapStore(), 3, 16, 4)); // the subtree of the page 3 is out
+        }
+    }
+
+    @Test public void perHostLimitHolds() throws Exception {
+        final MapStore store = new MapStore();
+        try (LinkGraphServer server = new LinkGraphServer(127, 20)) {
+            assertEquals(127, crawl(server, store, 10, 64, 3));
+            assertTrue("max concurrent " + server.maxActive, server.maxActive.get() <= 3);
+        }
+    }
+
+    @Test public void noNewPagesWhileTheFlusherIsBehind() throws Exception {
+        final CountDownLatch flushing = new CountDownLatch(1), release = new CountDownLatch(1);
+        final MapStore store = new MapStore() {
+            @Override public void store(final Collection<WcEntry> deltas) throws IOException {
+                flushing.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException x) {
+                    Thread.currentThread().interrupt();
+                }
+                super.store(deltas);
+            }
+        };
+        final ExecutorService background = Executors.newSingleThreadExecutor();
+        try (LinkGraphServer server = new LinkGraphServer(1000, 0);
+             StripedWordAccumulator words = new StripedWordAccumulator(store, 1, 0, 0);
+             Crawler crawler = new Crawler(new StreamingPageProcessor(Pattern.compile("\\w+"), 5000), words,
+                 new VisitedUrls(1000), NO_FILTER, 5, 2, 2)) {
+            words.setMaxBacklog(1); // behind from the first page on
+            final URL start = new URL(server.url(1));
+            final Future<Integer> crawled = background.submit(new Callable<Integer>() {
+                @Override public Integer call() throws Exception {
+                    return crawler.crawl(start);
+                }
+            });
+            try {
+                assertTrue(flushing.await(10, TimeUnit.SECONDS));
+                Thread.sleep(300); // the pages under way finish
+                final int started = server.hits.get();
+                Thread.sleep(300);
+                assertEquals(started, server.hits.get());
+                assertTrue("started " + started, started < 63);
+            }
+            finally {
+                release.countDown(); // before the accumulator's close waits for the flush
+            }
+            assertEquals(63, crawled.get(30, TimeUnit.SECONDS).intValue());
+        }
+        finally {
+            background.shutdownNow();
+        }
+    }
+
+    @Test public void startPageFailureIsReported() throws Exception {
+        try (LinkGraphServer server = new LinkGraphServer(1, 0)) {
+            try (StripedWordAccumulator words = new StripedWordAccumulator(new MapStore(), 1, 0, 0);
+                 Crawler crawler = new Crawler(new JsoupPageProcessor(Pattern.compile("\\w+"), 5000),
+                     words, new VisitedUrls(10), NO_FILTER, 1, 1, 1)) {
+                crawler.crawl(new URL(server.url(2)));
+                fail("404 start page should fail the crawl");
+            }
+            catch (IOException x) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.Checkpoint;
+import com.github.mub.webCrawler.Crawler;
+import com.github.mub.webCrawler.FrequencyStore;
+import com.github.mub.webCrawler.Frontier;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.UrlFilter;
+import com.github.mub.webCrawler.VisitedUrls;
+import com.github.mub.webCrawler.WcEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ */
+public class TestFrontier {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static Frontier.Entry entry(final String host, final int page, final int depth) throws Exception {
+        return new Frontier.Entry(new URL("http://" + host + "/p/" + page), depth);
+    }
+
+    @Test public void shallowestFirstWithinThePerHostLimit() throws Exception {
+        try (Frontier frontier = new Frontier(100, 1, tmp.getRoot())) {
+            frontier.add(entry("a", 1, 2));
+            frontier.add(entry("a", 2, 1));
+            frontier.add(entry("b", 3, 3));
+            frontier.add(entry("b", 4, 0));
+
+            final Frontier.Entry first = frontier.tryTake(), second = frontier.tryTake();
+            assertEquals(0, first.getDepth());
+            assertEquals("b:80", first.getSite());
+            assertEquals(1, second.getDepth());
+            assertNull(frontier.tryTake()); // both hosts are at their limit of one
+            frontier.done(second);
+            assertEquals("/p/1", frontier.tryTake().getUrl().getPath());
+            frontier.done(first);
+            assertEquals("/p/3", frontier.tryTake().getUrl().getPath());
+            assertEquals(0, frontier.size());
+        }
+    }
+
+    @Test public void spillsPastTheCapacityAndReadsBackInOrder() throws Exception {
+        try (Frontier frontier = new Frontier(10, 1000, tmp.getRoot())) {
+            for(int i = 0; i < 100; i++) frontier.add(entry("a", i, 1));
+            assertEquals(100, frontier.size());
+            assertEquals(10, frontier.inMemory());
+            final List<Checkpoint.Page> all = frontier.pages();
+            assertEquals(100, all.size());
+            assertEquals(new HashSet<>(all).size(), all.size());
+
+            for(int i = 0; i < 100; i++) {
+                final Frontier.Entry e = frontier.tryTake();
+                assertEquals("/p/" + i, e.getUrl().getPath());
+                assertTrue(frontier.inMemory() <= 10);
+            }
+            assertNull(frontier.tryTake());
+            assertEquals(0, frontier.size());
+        }
+    }
+
+    @Test public void snapshotListsThePagesAsTakenThoughTakenSince() throws Exception {
+        try (Frontier frontier = new Frontier(10, 1000, tmp.getRoot())) {
+            for(int i = 0; i < 30; i++) frontier.add(entry("a", i, 1));
+            final Frontier.Snapshot snapshot = frontier.snapshot();
+            for(int i = 0; i < 30; i++) frontier.tryTake(); // reads the spill file up, which restarts it otherwise
+            frontier.add(entry("a", 30, 1));
+            final List<Checkpoint.Page> pages = snapshot.pages();
+            assertEquals(30, pages.size());
+            assertEquals(30, new HashSet<>(pages).size());
+            assertEquals("/p/30", frontier.tryTake().getUrl().getPath());
+            assertEquals(0, frontier.size());
+        }
+        assertEquals(0, tmp.getRoot().list().length);
+    }
+
+    @Test public void tinyFrontierCrawlsTheSame() throws Exception {
+        final int[] total = new int[1];
+        final FrequencyStore store = new FrequencyStore() {
+            @Override public synchronized void store(final Collection<WcEntry> deltas) {
+                for(final WcEntry e: deltas) {
+                    if("tree".equals(e.getWord())) total[0] += e.getCount();
+                }
+            }
+        };
+        try (LinkGraphServer server = new LinkGraphServer(1000, 0)) {
+            try (StripedWordAccumulator acc = new StripedWordAccumulator(store, 8, 1000, 10);
+                 Crawler crawler = new Crawler(new StreamingPageProcessor(Pattern.compile("\\w{1,}"), 5000), acc,
+                     new VisitedUrls(1000), new UrlFilter(Collections.<String>emptyList()),
+                     new Frontier(3, 2, tmp.getRoot()), 5, 4)) {
+                assertEquals(63, crawler.crawl(new URL(server.url(1))));
+            }
+            assertEquals(63, server.hits.get());
+        }
+        assertEquals(126, total[0]);
+        assertEquals(0, tmp.getRoot().list().length); // no spill files left behind
+    }
+
+    @Test(timeout = 30000) public void spillFailureStopsTheCrawl() throws Exception {
+        final FrequencyStore store = new FrequencyStore() {
+            @Override public void store(final Collection<WcEntry> deltas) {
+                // not counted
+            }
+        };
+        try (LinkGraphServer server = new LinkGraphServer(1000, 0)) {
+            try (StripedWordAccumulator acc = new StripedWordAccumulator(store, 8, 1000, 10);
+                 Crawler crawler = new Crawler(new StreamingPageProcessor(Pattern.compile("\\w{1,}"), 5000), acc,
+                     new VisitedUrls(1000), new UrlFilter(Collections.<String>emptyList()),
+                     new Frontier(1, 1, tmp.newFile("not-a-directory")), 5, 4)) {
+                crawler.crawl(new URL(server.url(1)));
+                fail("The crawl should fail with the frontier, not hang");
+            }
+            catch (IOException x) {
+                assertTrue(x.getMessage(), x.getMessage().startsWith("Could not create"));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.HtmlTokenizer;
+import org.jsoup.Jsoup;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ */
+public class TestHtmlTokenizer {
+
+    private static class ListSink implements HtmlTokenizer.Sink {
+        final List<String> words = new ArrayList<>();
+        final List<String> links = new ArrayList<>();
+
+        @Override public void word(final CharSequence text, final int start, final int end) {
+            words.add(text.subSequence(start, end).toString());
+        }
+
+        @Override public void link(final String href) {
+            links.add(href);
+        }
+    }
+
+    private static ListSink tokenize(final String html, final int bufferSize) throws Exception {
+        final ListSink sink = new ListSink();
+        new HtmlTokenizer(Pattern.compile("\\w{1,}"), bufferSize).tokenize(new StringReader(html), sink);
+        return sink;
+    }
+
+    @Test public void textAndLinks() throws Exception {
+        final ListSink sink = tokenize("<!DOCTYPE html><html><head><title>The title</title>"
+            + "<style>p { color: red }</style><script>var x = '</b>';</script></head>"
+            + "<body><!-- hidden <a href='/no'>no</a> --><p class=\"a>b\">One&amp;two&nbsp;three&#52;2</p>"
+            + "<A HREF = \"/dir/path?a=1&amp;b=2\">link</A> <a name=x href=rel.html>rel</a><br><a>none</a></body>", 16);
+        assertEquals(Arrays.asList("The", "title", "One", "two", "three42", "link", "rel", "none"), sink.words);
+        assertEquals(Arrays.asList("/dir/path?a=1&b=2", "rel.html"), sink.links);
+    }
+
+    @Test public void wordsSpanningBufferRefills() throws Exception {
+        final StringBuilder html = new StringBuilder("<p>");
+        for(int i = 0; i < 100; i++) html.append("word").append(i).append(' ');
+        final ListSink sink = tokenize(html.append("</p>").toString(), 8);
+        assertEquals(100, sink.words.size());
+        for(int i = 0; i < 100; i++) assertEquals("word" + i, sink.words.get(i));
+    }
+
+    @Test public void onlyBlockTagsSeparateWords() throws Exception {
+        final String html = "<html><body><p>tr<b>ee</b> <i>x</i>y<!-- c -->z</p><div>a</div>"
+            + "<div>b<br>c<img src=i>d</div><table><tr><td>one</td><td>two</td></tr></table>"
+            + "<ul><li>l1<li>l2</ul><h1>h</h1><p>s</p>"
+            + "</body></html>";
+        final List<String> jsoup = new ArrayList<>();
+        final Matcher m = Pattern.compile("\\w{1,}").matcher(Jsoup.parse(html).text());
+        while(m.find()) jsoup.add(m.group());
+        assertEquals(Arrays.asList("tree", "xyz", "a", "b", "cd", "one", "two", "l1", "l2", "h", "s"), jsoup);
+        assertEquals(jsoup, tokenize(html, 8).words);
+        assertEquals(Arrays.asList("h", "s"), tokenize("<h1>h</h1>s", 8).words); // JSoup 1.8 has "hs"
+    }
+
+    @Test public void unterminatedEntityIsLiteral() throws Exception {
+        assertEquals(Arrays.asList("AT", "T", "x"), tokenize("AT&T x", 64).words);
+    }
+}
@@ -0,0 +1,212 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.HttpFetcher;
+import com.github.mub.webCrawler.PageValidators;
+import com.github.mub.webCrawler.StreamingPageProcessor;
+import com.github.mub.webCrawler.WordCounts;
+import com.github.mub.webCrawler.WordRegistrar;
+import com.github.mub.webCrawler.WordSpec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ */
+public class TestHttpFetcher {
+
+    private static final String PAGE = "<html><body>hello stub <a href=\"/next\">next</a></body></html>";
+    private static final String ETAG = "\"v1\"";
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger notModified = new AtomicInteger();
+    /** The content of {@code /mutable}, a 404 if null. */
+    private volatile String mutable;
+
+    @Before public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override public void handle(final HttpExchange ex) throws IOException {
+                serve(ex);
+            }
+        });
+        server.start();
+    }
+
+    @After public void stop() {
+        server.stop(0);
+    }
+
+    private URL url(final String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private void serve(final HttpExchange ex) throws IOException {
+        final String path = ex.getRequestURI().getPath();
+        if(path.equals("/moved")) {
+            ex.getResponseHeaders().set("Location", "/plain");
+            ex.sendResponseHeaders(302, -1);
+            ex.close();
+            return;
+        }
+        if(path.equals("/etag") && ETAG.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            ex.sendResponseHeaders(304, -1);
+            ex.close();
+            return;
+        }
+        if(path.equals("/mutable") && mutable == null) {
+            ex.sendResponseHeaders(404, -1);
+            ex.close();
+            return;
+        }
+        byte[] body = (path.equals("/mutable") ? mutable : PAGE).getBytes(StandardCharsets.UTF_8);
+        if(path.equals("/gzip") || path.equals("/deflate")) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = path.equals("/gzip") ? new GZIPOutputStream(bytes)
+                : new DeflaterOutputStream(bytes)) {
+                out.write(body);
+            }
+            body = bytes.toByteArray();
+            ex.getResponseHeaders().set("Content-Encoding", path.substring(1));
+        }
+        if(path.equals("/etag")) ex.getResponseHeaders().set("ETag", ETAG);
+        ex.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        ex.sendResponseHeaders(200, path.equals("/chunked") ? 0 : body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buf = new byte[100];
+        int n;
+        while((n = in.read(buf)) >= 0) result.write(buf, 0, n);
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test public void keepsTheConnectionAliveAndDecodes() throws Exception {
+        try (HttpFetcher fetcher = new HttpFetcher(5000, 4, HttpFetcher.DEFAULT_KEEP_ALIVE_MILLIS)) {
+            for(final String path: Arrays.asList("/plain", "/chunked", "/gzip", "/deflate", "/plain")) {
+                try (HttpFetcher.Response response = fetcher.get(url(path))) {
+                    assertEquals(path, 200, response.getStatus());
+                    assertEquals(path, PAGE, read(response.getBody()));
+                }
+            }
+            assertEquals(1, fetcher.getOpened());
+            assertEquals(4, fetcher.getReused());
+        }
+    }
+
+    @Test public void followsRedirects() throws Exception {
+        try (HttpFetcher fetcher = new HttpFetcher(5000);
+             HttpFetcher.Response response = fetcher.get(url("/moved"))) {
+            assertEquals(200, response.getStatus());
+            assertEquals("/plain", response.getUrl().getPath());
+            assertEquals(PAGE, read(response.getBody()));
+        }
+    }
+
+    @Test public void unchangedPageIsNotCountedAgain() throws Exception {
+        final WordCounts counted = new WordCounts();
+        final WordRegistrar words = new WordRegistrar() {
+            @Override public void register(final String word, final int count) {
+                counted.add(word, count);
+            }
+        };
+        final File file = new File(tmp.getRoot(), "validators");
+        try (HttpFetcher fetcher = new HttpFetcher(5000)) {
+            final PageValidators validators = new PageValidators();
+            final StreamingPageProcessor processor = new StreamingPageProcessor(WordSpec.compile("\\w+"), fetcher,
+                validators);
+            final Collection<String> links = processor.process(url("/etag"), words);
+            assertEquals(Arrays.asList(url("/next").toString()), links);
+            assertEquals(1, counted.get("hello"));
+            validators.save(file);
+
+            final PageValidators reloaded = new PageValidators();
+            reloaded.load(file);
+            assertEquals(ETAG, reloaded.get("127.0.0.1:" + server.getAddress().getPort() + "/etag").getETag());
+            final Collection<String> again = new StreamingPageProcessor(WordSpec.compile("\\w+"), fetcher, reloaded)
+                .process(url("/etag"), words);
+            assertEquals(links, again);
+            assertEquals(1, notModified.get());
+            assertEquals(1, counted.get("hello"));
+            assertTrue(fetcher.getReused() > 0);
+        }
+    }
+
+    @Test public void incrementalRecrawlCountsTheDifference() throws Exception {
+        final WordCounts counted = new WordCounts();
+        final WordRegistrar words = new WordRegistrar() {
+            @Override public void register(final String word, final int count) {
+                counted.add(word, count);
+            }
+        };
+        final File file = new File(tmp.getRoot(), "validators");
+        try (HttpFetcher fetcher = new HttpFetcher(5000)) {
+            mutable = "<p>alpha beta beta</p>";
+            final PageValidators validators = new PageValidators();
+            new StreamingPageProcessor(WordSpec.compile("\\w+"), fetcher, validators, true).process(url("/mutable"),
+                words);
+            assertEquals(1, counted.get("alpha"));
+            assertEquals(2, counted.get("beta"));
+            validators.save(file);
+
+            final PageValidators reloaded = new PageValidators();
+            reloaded.load(file);
+            final StreamingPageProcessor processor = new StreamingPageProcessor(WordSpec.compile("\\w+"), fetcher,
+                reloaded, true);
+            final int[] registered = new int[1];
+            processor.process(url("/mutable"), new WordRegistrar() {
+                @Override public void register(final String word, final int count) {
+                    registered[0]++;
+                }
+            });
+            assertEquals("unchanged", 0, registered[0]);
+
+            mutable = "<p>beta gamma</p>";
+            processor.process(url("/mutable"), words);
+            assertEquals(0, counted.get("alpha"));
+            assertEquals(1, counted.get("beta"));
+            assertEquals(1, counted.get("gamma"));
+
+            mutable = null;
+            try {
+                processor.process(url("/mutable"), words);
+                fail("404 expected");
+            }
+            catch (IOException x) {
+                // gone
+            }
+            assertEquals(0, counted.get("beta"));
+            assertEquals(0, counted.get("gamma"));
+            assertEquals(null, reloaded.get("127.0.0.1:" + server.getAddress().getPort() + "/mutable"));
+        }
+    }
+}
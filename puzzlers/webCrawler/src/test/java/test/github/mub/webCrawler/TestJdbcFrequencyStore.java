@@ -0,0 +1,47 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.JdbcFrequencyStore;
+import com.github.mub.webCrawler.WcEntry;
+import com.github.mub.webCrawler.WordSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ */
+public class TestJdbcFrequencyStore {
+
+    private JdbcFrequencyStore store;
+
+    @Before public void init() throws Exception {
+        store = new JdbcFrequencyStore("jdbc:h2:mem:" + getClass().getSimpleName());
+    }
+
+    @After public void destroy() throws Exception {
+        store.close();
+    }
+
+    @Test public void batchesAddUp() throws Exception {
+        final WordSource a = new WordSource("a.com:80"), b = new WordSource("b.com:80");
+        store.store(Arrays.asList(new WcEntry(a, "one", 1), new WcEntry(a, "two", 2), new WcEntry(b, "one", 5)));
+        store.store(Arrays.asList(new WcEntry(a, "one", 10), new WcEntry(b, "three", 3)));
+
+        assertEquals(11, store.frequency("a.com:80", "one"));
+        assertEquals(2, store.frequency("a.com:80", "two"));
+        assertEquals(5, store.frequency("b.com:80", "one"));
+        assertEquals(3, store.frequency("b.com:80", "three"));
+        assertEquals(0, store.frequency("b.com:80", "two"));
+    }
+
+    @Test public void tooLongWordIsDropped() throws Exception {
+        final WordSource a = new WordSource("a.com:80");
+        final StringBuilder longWord = new StringBuilder();
+        for(int i = 0; i <= JdbcFrequencyStore.WORD_LEN; i++) longWord.append('x');
+        store.store(Arrays.asList(new WcEntry(a, longWord.toString(), 1), new WcEntry(a, "ok", 1)));
+        assertEquals(1, store.frequency("a.com:80", "ok"));
+    }
+}
@@ -0,0 +1,86 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.HtmlTokenizer;
+import com.github.mub.webCrawler.UrlFilter;
+import com.github.mub.webCrawler.WordSpec;
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestMatchers {
+
+    private static final List<String> IGNORED = Arrays.asList(
+        "^https:\\/\\/.+$", "^http://ads\\.", ".*\\.facebook\\.com.*", "\\.pdf$", ".+\\.jpg$", "^http://a\\.b/$",
+        "login", "[?&]session=", "^http://x(y|z)\\.org/.*", "tracker.+"
+    );
+
+    private static final String[] URL_PARTS = {
+        "http://", "https://", "ads.", "www.", "facebook.com", "a.b", "/", "login", "?session=1", "xy.org",
+        "x.pdf", ".jpg", "tracker", "q"
+    };
+
+    private static boolean naive(final List<Pattern> patterns, final String url) {
+        for(final Pattern p: patterns) if(p.matcher(url).find()) return true;
+        return false;
+    }
+
+    @Test public void filterAgreesWithPatternByPattern() {
+        final UrlFilter filter = new UrlFilter(IGNORED);
+        assertEquals(2, filter.regexCount());
+        final List<Pattern> patterns = new ArrayList<>();
+        for(final String regex: IGNORED) patterns.add(Pattern.compile(regex));
+
+        final Random random = new Random(7);
+        final StringBuilder url = new StringBuilder();
+        for(int i = 0; i < 20000; i++) {
+            url.setLength(0);
+            final int parts = 1 + random.nextInt(5);
+            for(int j = 0; j < parts; j++) url.append(URL_PARTS[random.nextInt(URL_PARTS.length)]);
+            assertEquals(url.toString(), naive(patterns, url.toString()), filter.isIgnored(url.toString()));
+        }
+        assertTrue(filter.isIgnored("http://a.b/"));
+        assertFalse(filter.isIgnored("http://a.b/c"));
+        assertFalse(filter.isIgnored("https://"));
+        assertFalse(new UrlFilter(new ArrayList<String>()).isIgnored("https://x"));
+    }
+
+    private static List<String> scan(final WordSpec spec, final String text) {
+        final List<String> result = new ArrayList<>();
+        spec.newScanner().scan(text.toCharArray(), CharBuffer.wrap(text.toCharArray()), text.length(),
+            new HtmlTokenizer.Sink() {
+                @Override public void word(final CharSequence t, final int start, final int end) {
+                    result.add(t.subSequence(start, end).toString());
+                }
+
+                @Override public void link(final String href) {}
+            });
+        return result;
+    }
+
+    @Test public void fastWordSpecsAgreeWithRegex() {
+        final String text = "The  quick_brown fox, 42 jumps!! over ÉtÉ the lazy-dog's backbonebackbonebackbone x";
+        for(final String regex: new String[]{"\\w+", "\\w{1,}", "\\w{3,}", "\\w{2,5}", "\\w{4}", "[a-zA-Z]+",
+            "[A-Za-z]{2,}", "[a-z]+", "\\d+", "\\p{L}+", "[a-zA-Z0-9]{1,48}"}) {
+            final WordSpec spec = WordSpec.compile(regex);
+            assertTrue(regex, spec.isFast());
+            final List<String> expected = new ArrayList<>();
+            final Matcher m = Pattern.compile(regex).matcher(text);
+            while(m.find()) expected.add(m.group());
+            assertEquals(regex, expected, scan(spec, text));
+        }
+        assertFalse(WordSpec.compile("\\w+'\\w+").isFast());
+        assertEquals(Arrays.asList("lazy-dog's"), scan(WordSpec.compile("\\w+-\\w+'\\w+"), text));
+    }
+}
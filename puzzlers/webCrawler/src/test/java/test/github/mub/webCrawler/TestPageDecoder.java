@@ -0,0 +1,138 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.HtmlTokenizer;
+import com.github.mub.webCrawler.PageDecoder;
+import com.github.mub.webCrawler.WordSpec;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestPageDecoder {
+
+    private static class ListSink implements HtmlTokenizer.Sink {
+        final List<String> words = new ArrayList<>();
+
+        @Override public void word(final CharSequence text, final int start, final int end) {
+            words.add(text.subSequence(start, end).toString());
+        }
+
+        @Override public void link(final String href) {
+            // not followed
+        }
+    }
+
+    /** Any letters, not the ASCII only of {@code \w}. */
+    private static final WordSpec LETTERS = WordSpec.compile("[\\p{L}\\p{N}]+");
+
+    private static List<String> words(final PageDecoder decoder, final HtmlTokenizer tokenizer) throws IOException {
+        final ListSink sink = new ListSink();
+        tokenizer.tokenize(decoder, sink);
+        return sink.words;
+    }
+
+    @Test public void charsetIsSniffedOnce() throws Exception {
+        final PageDecoder decoder = new PageDecoder();
+        final HtmlTokenizer tokenizer = new HtmlTokenizer(LETTERS);
+        final Charset latin = Charset.forName("windows-1252");
+        final String html = "<html><head><meta charset=\"windows-1252\"></head><body>caf\u00e9 cr\u00e8me</body>";
+
+        assertEquals(latin, decoder.open(new ByteArrayInputStream(html.getBytes(latin)), null));
+        assertEquals(Arrays.asList("caf\u00e9", "cr\u00e8me"), words(decoder, tokenizer));
+
+        final String declared = "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=ISO-8859-1\">"
+            + "na\u00efve";
+        assertEquals(StandardCharsets.UTF_8, decoder.open(ByteBuffer.wrap(declared.getBytes(StandardCharsets.UTF_8)),
+            StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("na\u00efve"), words(decoder, tokenizer));
+
+        final byte[] text = "<p>\u0436\u0443\u043a</p>".getBytes(StandardCharsets.UTF_16LE);
+        final byte[] bom = new byte[text.length + 2];
+        bom[0] = (byte) 0xFF;
+        bom[1] = (byte) 0xFE;
+        System.arraycopy(text, 0, bom, 2, text.length);
+        assertEquals(StandardCharsets.UTF_16LE, decoder.open(new ByteArrayInputStream(bom), StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("\u0436\u0443\u043a"), words(decoder, tokenizer));
+
+        assertEquals(StandardCharsets.UTF_8, decoder.open(new ByteArrayInputStream(new byte[0]), null));
+        assertEquals(0, words(decoder, tokenizer).size());
+    }
+
+    @Test public void multiByteCharsSplitAcrossReads() throws Exception {
+        final StringBuilder html = new StringBuilder("<html><body>");
+        final List<String> expected = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            final String word = "\u043c\u0438\u0440" + i + "\u00fc";
+            expected.add(word);
+            html.append(word).append(i % 10 == 0 ? "<br>" : " ");
+        }
+        final InputStream trickle = new FilterInputStream(
+            new ByteArrayInputStream(html.toString().getBytes(StandardCharsets.UTF_8))) {
+            @Override public int read(final byte[] b, final int off, final int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        final PageDecoder decoder = new PageDecoder(PageDecoder.DEFAULT_BUFFER / 16);
+        decoder.open(trickle, null);
+        assertEquals(expected, words(decoder, new HtmlTokenizer(LETTERS, 16)));
+    }
+
+    @Test public void steadyStateAllocatesNothingPerPage() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        // no links: their hrefs are Strings by the Sink's contract
+        final SyntheticHtml words = new SyntheticHtml(2000, 42);
+        final StringBuilder html = new StringBuilder("<html><body>");
+        while(html.length() < 100000) {
+            html.append("<p>");
+            for(int i = 0; i < 20; i++) html.append(words.word()).append(' ');
+            html.append("</p>\n");
+        }
+        final ByteArrayInputStream page = new ByteArrayInputStream(html.toString().getBytes(StandardCharsets.UTF_8));
+        final PageDecoder decoder = new PageDecoder();
+        final HtmlTokenizer tokenizer = new HtmlTokenizer(WordSpec.compile("\\w{1,}"));
+        final int[] found = new int[1];
+        final HtmlTokenizer.Sink sink = new HtmlTokenizer.Sink() {
+            @Override public void word(final CharSequence text, final int start, final int end) {
+                found[0]++;
+            }
+
+            @Override public void link(final String href) {
+                // none
+            }
+        };
+        for(int i = 0; i < 200; i++) {
+            page.reset();
+            decoder.open(page, StandardCharsets.UTF_8);
+            tokenizer.tokenize(decoder, sink);
+        }
+        final long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        final int pages = 100;
+        for(int i = 0; i < pages; i++) {
+            page.reset();
+            decoder.open(page, StandardCharsets.UTF_8);
+            tokenizer.tokenize(decoder, sink);
+        }
+        final long perPage = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / pages;
+        assertTrue(found[0] > 0);
+        assertTrue(perPage + " bytes per page", perPage < 512);
+    }
+}
@@ -0,0 +1,124 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.FrequencyStore;
+import com.github.mub.webCrawler.JdbcFrequencyStore;
+import com.github.mub.webCrawler.ShardedFrequencyStore;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.WcEntry;
+import com.github.mub.webCrawler.WordSource;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestShardedFrequencyStore {
+
+    /**
+     * Keeps the counts and the epoch; fails the batches while told to.
+     */
+    private static class MapShard implements FrequencyStore {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        long epoch = NO_EPOCH;
+        volatile boolean failing;
+
+        @Override public synchronized void store(final Collection<WcEntry> deltas) throws IOException {
+            store(deltas, NO_EPOCH);
+        }
+
+        @Override public synchronized void store(final Collection<WcEntry> deltas, final long epoch)
+            throws IOException {
+            if(failing) throw new IOException("down");
+            for(final WcEntry e: deltas) {
+                final String key = e.getSource().getKey() + "/" + e.getWord();
+                final Integer old = frequencies.get(key);
+                frequencies.put(key, old == null ? e.getCount() : old + e.getCount());
+            }
+            if(epoch != NO_EPOCH) this.epoch = epoch;
+        }
+
+        @Override public synchronized long lastEpoch() {
+            return epoch;
+        }
+    }
+
+    private static List<WcEntry> sites(final int count, final String word, final int n) {
+        final List<WcEntry> result = new ArrayList<>();
+        for(int i = 0; i < count; i++) result.add(new WcEntry(new WordSource("site" + i + ".com:80"), word, n));
+        return result;
+    }
+
+    @Test public void jdbcShardsAddUpAndKeepTheirEpochs() throws Exception {
+        final String url = "jdbc:h2:mem:" + getClass().getSimpleName();
+        final List<JdbcFrequencyStore> shards = new ArrayList<>();
+        for(int i = 0; i < 4; i++) shards.add(new JdbcFrequencyStore(url, i));
+        try (ShardedFrequencyStore store = new ShardedFrequencyStore(shards)) {
+            assertEquals(FrequencyStore.NO_EPOCH, store.lastEpoch());
+            store.store(sites(50, "one", 1), 1);
+            store.store(sites(50, "one", 2), 2);
+            store.store(sites(10, "two", 5));
+            store.store(sites(50, "one", 100), 2); // stored already, by all the shards
+            assertEquals(2, store.lastEpoch());
+            for(int i = 0; i < 50; i++) {
+                assertEquals(3, shards.get(0).frequency("site" + i + ".com:80", "one"));
+                assertEquals(i < 10 ? 5 : 0, shards.get(3).frequency("site" + i + ".com:80", "two"));
+            }
+            for(final JdbcFrequencyStore shard: shards) assertEquals(2, shard.lastEpoch());
+        }
+    }
+
+    @Test public void onlyTheFailedShardIsRetried() throws Exception {
+        final List<MapShard> shards = Arrays.asList(new MapShard(), new MapShard(), new MapShard());
+        final ShardedFrequencyStore store = new ShardedFrequencyStore(shards);
+        final MapShard down = shards.get(store.shardOf("site0.com:80"));
+        try (StripedWordAccumulator words = new StripedWordAccumulator(store, 4, 0, 0)) {
+            down.failing = true;
+            for(final WcEntry e: sites(30, "w", 1)) words.register(e.getSource(), e.getWord(), e.getCount());
+            assertEquals(0, words.flush());
+            for(final MapShard shard: shards) {
+                if(shard != down) assertTrue(!shard.frequencies.isEmpty());
+            }
+            assertTrue(down.frequencies.isEmpty());
+            down.failing = false;
+            assertTrue(words.flush() > 0);
+        }
+        for(int i = 0; i < 30; i++) {
+            final String site = "site" + i + ".com:80";
+            assertEquals(Integer.valueOf(1), shards.get(store.shardOf(site)).frequencies.get(site + "/w"));
+        }
+    }
+
+    @Test public void resumedEpochGoesToTheShardsThatMissedIt() throws Exception {
+        final List<MapShard> shards = Arrays.asList(new MapShard(), new MapShard());
+        final List<WcEntry> deltas = sites(20, "w", 1);
+        final ShardedFrequencyStore store = new ShardedFrequencyStore(shards);
+        final MapShard down = shards.get(store.shardOf("site0.com:80"));
+        down.failing = true;
+        try {
+            store.store(deltas, 7);
+        }
+        catch (IOException x) {
+            // the other shard has it
+        }
+        assertEquals(FrequencyStore.NO_EPOCH, store.lastEpoch());
+
+        down.failing = false; // restarted, the checkpoint of the epoch 7 applied again
+        final ShardedFrequencyStore resumed = new ShardedFrequencyStore(shards);
+        assertEquals(FrequencyStore.NO_EPOCH, resumed.lastEpoch());
+        resumed.store(deltas, 7);
+        assertEquals(7, resumed.lastEpoch());
+        for(final WcEntry e: deltas) {
+            final String key = e.getSource().getKey() + "/w";
+            assertEquals(Integer.valueOf(1), shards.get(store.shardOf(e.getSource().getKey())).frequencies.get(key));
+        }
+    }
+}
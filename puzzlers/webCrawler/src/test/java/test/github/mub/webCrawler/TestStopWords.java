@@ -0,0 +1,56 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.StopWords;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestStopWords {
+
+    @Test public void matchesAsTheSetDoes() throws Exception {
+        final Set<String> set = new HashSet<>();
+        final SyntheticHtml words = new SyntheticHtml(5000, 7);
+        for(int i = 0; i < 300; i++) set.add(words.word());
+        set.addAll(Arrays.asList("a", "an", "and", "the", "then", "there", "off", "of", "out", "o"));
+        final StopWords stopWords = StopWords.of(set);
+        assertEquals(set.size(), stopWords.size());
+        for(int i = 0; i < 20000; i++) {
+            final String word = words.word();
+            assertEquals(word, set.contains(word), stopWords.contains(word));
+        }
+        for(final String word: set) {
+            assertTrue(word, stopWords.contains(word));
+            assertTrue(word, stopWords.contains(word.toUpperCase(Locale.ROOT)));
+            assertEquals(word, set.contains(word + "x"), stopWords.contains(word + "x"));
+            final String tail = word.substring(1);
+            if(!tail.isEmpty() && !set.contains(tail)) assertFalse(tail, stopWords.contains(tail));
+        }
+        assertFalse(stopWords.contains(""));
+        assertFalse(stopWords.contains("th"));
+        assertFalse(stopWords.contains("thereof"));
+    }
+
+    @Test public void windowOfTheText() throws Exception {
+        final StopWords stopWords = StopWords.of(Arrays.asList("The", "off", "out", ""));
+        final String text = "Out of the OFFice, off-the-shelf";
+        assertTrue(stopWords.contains(text, 0, 3));
+        assertFalse(stopWords.contains(text, 4, 6));
+        assertTrue(stopWords.contains(text, 7, 10));
+        assertFalse(stopWords.contains(text, 11, 17));
+        assertTrue(stopWords.contains(text, 11, 14));
+        assertTrue(stopWords.contains(text, 19, 22));
+        assertEquals(3, stopWords.size());
+        assertTrue(StopWords.of(Collections.<String>emptyList()).isEmpty());
+        assertFalse(StopWords.NONE.contains("the"));
+    }
+}
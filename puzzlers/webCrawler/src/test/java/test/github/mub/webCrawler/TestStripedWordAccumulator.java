@@ -0,0 +1,139 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.FrequencyStore;
+import com.github.mub.webCrawler.StripedWordAccumulator;
+import com.github.mub.webCrawler.WcEntry;
+import com.github.mub.webCrawler.WordCounts;
+import com.github.mub.webCrawler.WordRegistrar;
+import com.github.mub.webCrawler.WordSource;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestStripedWordAccumulator {
+
+    /**
+     * Counts the batches too.
+     */
+    private static class BatchStore extends MapStore {
+        final AtomicInteger batches = new AtomicInteger();
+        final CountDownLatch firstBatch = new CountDownLatch(1);
+
+        BatchStore() {
+            super(true);
+        }
+
+        @Override public void store(final Collection<WcEntry> deltas) throws IOException {
+            super.store(deltas);
+            batches.incrementAndGet();
+            firstBatch.countDown();
+        }
+    }
+
+    @Test public void concurrentCountsAreExact() throws Exception {
+        final BatchStore store = new BatchStore();
+        final StripedWordAccumulator acc = new StripedWordAccumulator(store, 16, 1000, 5);
+        final WordSource[] sites = { new WordSource("a.com:80"), new WordSource("b.com:8080") };
+        final int threads = 8, rounds = 10000;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for(int t = 0; t < threads; t++) {
+            pool.submit(new Runnable() {
+                @Override public void run() {
+                    for(int i = 0; i < rounds; i++) acc.register(sites[i & 1], "w" + i % 7, 1);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        acc.close();
+
+        int total = 0;
+        for(final int f: store.frequencies.values()) total += f;
+        assertEquals(threads * rounds, total);
+        assertEquals(14, store.frequencies.size());
+    }
+
+    @Test public void odometerFlushesByEncounters() throws Exception {
+        final BatchStore store = new BatchStore();
+        final StripedWordAccumulator acc = new StripedWordAccumulator(store, 1, 10, 0);
+        final WordRegistrar reg = acc.forSource(new WordSource("c.org:80"));
+        for(int i = 0; i < 10; i++) reg.register("word", "1");
+        assertTrue(store.firstBatch.await(5, TimeUnit.SECONDS));
+        acc.close();
+        assertEquals(Integer.valueOf(10), store.frequencies.get("c.org:80|word"));
+    }
+
+    @Test public void bulkRegistrationMatchesOneByOne() throws Exception {
+        final BatchStore bulk = new BatchStore(), single = new BatchStore();
+        final WordSource src = new WordSource("d.net:80");
+        final WordCounts page = new WordCounts(4);
+        for(int i = 0; i < 1000; i++) page.add("w" + i % 300, 1 + i % 3);
+        try (StripedWordAccumulator acc = new StripedWordAccumulator(bulk, 8, 0, 0)) {
+            acc.forSource(src).registerAll(page);
+            acc.forSource(src).registerAll(page);
+        }
+        try (StripedWordAccumulator acc = new StripedWordAccumulator(single, 8, 0, 0)) {
+            for(int i = 0; i < 2000; i++) acc.register(src, "w" + i % 1000 % 300, 1 + i % 1000 % 3);
+        }
+        assertEquals(300, bulk.frequencies.size());
+        assertEquals(single.frequencies, bulk.frequencies);
+    }
+
+    @Test public void ignoredWordsAreNotCounted() throws Exception {
+        final BatchStore store = new BatchStore();
+        final WordCounts page = new WordCounts(4);
+        page.add("the", 3);
+        page.add("tree", 2);
+        try (StripedWordAccumulator acc = new StripedWordAccumulator(store, 4, 0, 0)) {
+            acc.setIgnoredWords(Collections.singleton("the"));
+            acc.forSource(new WordSource("e.io:80")).registerAll(page);
+            acc.register(new WordSource("e.io:80"), "the", 1);
+        }
+        assertEquals(Integer.valueOf(2), store.frequencies.get("e.io:80|tree"));
+        assertFalse(store.frequencies.containsKey("e.io:80|the"));
+    }
+
+    @Test public void slowFlushHoldsTheProducersOff() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1), release = new CountDownLatch(1);
+        final FrequencyStore slow = new FrequencyStore() {
+            @Override public void store(final Collection<WcEntry> deltas) {
+                entered.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException x) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final StripedWordAccumulator acc = new StripedWordAccumulator(slow, 1, 0, 0);
+        try {
+            acc.setMaxBacklog(10);
+            final WordRegistrar reg = acc.forSource(new WordSource("f.io:80"));
+            assertTrue(acc.awaitBacklog(0, TimeUnit.MILLISECONDS));
+            for(int i = 0; i <= 10; i++) reg.register("w" + i, 1);
+            assertTrue(entered.await(5, TimeUnit.SECONDS)); // drained, the flusher stuck in the store
+            for(int i = 0; i <= 10; i++) reg.register("v" + i, 1); // nowhere to go meanwhile
+            assertFalse(acc.awaitBacklog(100, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(acc.awaitBacklog(5, TimeUnit.SECONDS));
+        }
+        finally {
+            release.countDown();
+            acc.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.TopWordAccumulator;
+import com.github.mub.webCrawler.WcEntry;
+import com.github.mub.webCrawler.WordCounts;
+import com.github.mub.webCrawler.WordRegistrar;
+import com.github.mub.webCrawler.WordSource;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestTopWordAccumulator {
+
+    private static class FailingStore extends MapStore {
+        volatile boolean failing;
+
+        FailingStore() {
+            super(true);
+        }
+
+        @Override public void store(final Collection<WcEntry> deltas) throws IOException {
+            if(failing) throw new IOException("down");
+            super.store(deltas);
+        }
+    }
+
+    /**
+     * Roughly Zipfian: the rank r comes about 1/r as often as the first one.
+     */
+    private static int zipf(final Random random, final int vocabulary) {
+        return (int) Math.pow(vocabulary, random.nextDouble()) - 1;
+    }
+
+    @Test public void summaryNotFullIsExact() throws Exception {
+        final FailingStore store = new FailingStore();
+        final WordCounts page = new WordCounts();
+        for(int i = 0; i < 50; i++) page.add("w" + i, i + 1);
+        try (TopWordAccumulator acc = new TopWordAccumulator(store, 64, 0.01, 0.9, 0, 0)) {
+            final WordRegistrar reg = acc.forSource(new WordSource("a.com:80"));
+            reg.registerAll(page);
+            reg.registerAll(page);
+            acc.flush();
+            reg.register("w0", 5);
+        }
+        for(int i = 0; i < 50; i++) assertEquals(2 * (i + 1) + (i == 0 ? 5 : 0), store.get("a.com:80|w" + i));
+    }
+
+    @Test public void heavyHittersAreNearExactLowerBounds() throws Exception {
+        final FailingStore store = new FailingStore();
+        final Map<String, Integer> truth = new HashMap<>();
+        final WordSource[] sites = { new WordSource("a.com:80"), new WordSource("b.com:80"),
+            new WordSource("c.com:80") };
+        final int k = 50;
+        final Random random = new Random(42);
+        try (TopWordAccumulator acc = new TopWordAccumulator(store, k, 0.0005, 0.99, 0, 0)) {
+            for(int page = 0; page < 3000; page++) {
+                final WordSource site = sites[page % sites.length];
+                final WordCounts counts = new WordCounts();
+                for(int i = 0; i < 100; i++) counts.add("w" + zipf(random, 20000), 1);
+                for(int slot = 0; slot < counts.capacity(); slot++) {
+                    if(counts.wordAt(slot) == null) continue;
+                    final String key = site.getKey() + '|' + counts.wordAt(slot);
+                    final Integer old = truth.get(key);
+                    truth.put(key, (old == null ? 0 : old) + counts.countAt(slot));
+                }
+                acc.forSource(site).registerAll(counts);
+                if(page % 500 == 499) acc.flush();
+            }
+        }
+        for(final Map.Entry<String, Integer> e: store.frequencies.entrySet()) {
+            assertTrue(e.getKey(), e.getValue() <= truth.get(e.getKey()));
+        }
+        final List<Map.Entry<String, Integer>> ranked = new ArrayList<>(truth.entrySet());
+        Collections.sort(ranked, new Comparator<Map.Entry<String, Integer>>() {
+            @Override public int compare(final Map.Entry<String, Integer> a, final Map.Entry<String, Integer> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+        for(final Map.Entry<String, Integer> e: ranked.subList(0, 3 * 10)) {
+            assertTrue(e.getKey(), store.get(e.getKey()) >= 0.9 * e.getValue());
+        }
+    }
+
+    @Test public void failedFlushIsRetriedOnce() throws Exception {
+        final FailingStore store = new FailingStore();
+        try (TopWordAccumulator acc = new TopWordAccumulator(store, 8, 0.01, 0.9, 0, 0)) {
+            final WordRegistrar reg = acc.forSource(new WordSource("a.com:80"));
+            reg.register("one", 3);
+            store.failing = true;
+            assertEquals(0, acc.flush());
+            store.failing = false;
+            reg.register("one", 1);
+            assertEquals(1, acc.flush());
+        }
+        assertEquals(4, store.get("a.com:80|one"));
+    }
+}
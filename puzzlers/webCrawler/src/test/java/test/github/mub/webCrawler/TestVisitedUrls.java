@@ -0,0 +1,76 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.ConcurrentLongSet;
+import com.github.mub.webCrawler.UrlNormalizer;
+import com.github.mub.webCrawler.VisitedUrls;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class TestVisitedUrls {
+
+    @Test public void normalization() throws Exception {
+        assertEquals("www.yahoo.com:80/", UrlNormalizer.normalize(UrlNormalizer.parseInput("www.yahoo.com")));
+        assertEquals("host:8080/dir/path", UrlNormalizer.normalize(new URL("http://HOST:8080/dir/path?param=value#x")));
+        assertEquals("host:80", UrlNormalizer.siteOf(new URL("http://host/")));
+        assertNull(UrlNormalizer.toCrawlable("https://host/"));
+        assertNull(UrlNormalizer.toCrawlable("mailto:me@host"));
+    }
+
+    @Test public void sameKeyVisitedOnce() throws Exception {
+        final VisitedUrls visited = new VisitedUrls(100);
+        assertTrue(visited.add(new URL("http://host/dir/path?a=1")));
+        assertFalse(visited.add(new URL("http://HOST:80/dir/path?b=2")));
+        assertTrue(visited.contains(new URL("http://host/dir/path")));
+        assertFalse(visited.contains(new URL("http://host/dir/other")));
+        assertTrue(visited.add(new URL("http://host:81/dir/path")));
+        assertEquals(2, visited.size());
+    }
+
+    @Test public void concurrentAddsGrowAndStayExact() throws Exception {
+        final ConcurrentLongSet set = new ConcurrentLongSet(16);
+        final int threads = 8, perThread = 50000;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<Integer>> wins = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            wins.add(pool.submit(new Callable<Integer>() {
+                @Override public Integer call() {
+                    int won = 0;
+                    for(int i = 1; i <= perThread; i++) if(set.add(UrlNormalizer.fingerprint("u" + i))) won++;
+                    return won;
+                }
+            }));
+        }
+        int total = 0;
+        for(final Future<Integer> f: wins) total += f.get();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(perThread, total);
+        assertEquals(perThread, set.size());
+        for(int i = 1; i <= perThread; i++) assertTrue(set.contains(UrlNormalizer.fingerprint("u" + i)));
+    }
+
+    @Test public void expectedCountFitsWithoutGrowing() {
+        final int expected = 1000000;
+        final VisitedUrls visited = new VisitedUrls(expected);
+        final long footprint = visited.footprint();
+        assertTrue(footprint + " bytes", footprint < 12L * expected);
+        for(int i = 1; i <= expected; i++) visited.add(UrlNormalizer.fingerprint("u" + i));
+        assertEquals(expected, visited.size());
+        assertEquals(footprint, visited.footprint());
+    }
+}
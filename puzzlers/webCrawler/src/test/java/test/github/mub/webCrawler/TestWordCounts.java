@@ -0,0 +1,54 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.WordCounts;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ */
+public class TestWordCounts {
+
+    @Test public void countsWindowsInLowerCase() {
+        final WordCounts counts = new WordCounts(2);
+        final String text = "The cat saw THE other Cat and the dog";
+        final Map<String, Integer> expected = new HashMap<>();
+        int start = 0;
+        for(final String word: text.split(" ")) {
+            counts.add(text, start, start + word.length());
+            start += word.length() + 1;
+            final Integer old = expected.get(word.toLowerCase());
+            expected.put(word.toLowerCase(), old == null ? 1 : old + 1);
+        }
+        final Map<String, Integer> actual = new HashMap<>();
+        for(int slot = 0; slot < counts.capacity(); slot++) {
+            if(counts.wordAt(slot) != null) actual.put(counts.wordAt(slot), counts.countAt(slot));
+        }
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), counts.size());
+        assertEquals(3, counts.get("the"));
+        assertEquals(2, counts.get("CAT"));
+        assertEquals(0, counts.get("bird"));
+    }
+
+    @Test public void repeatedWordIsNotReallocated() {
+        final WordCounts counts = new WordCounts();
+        counts.add("xx word xx", 3, 7);
+        String first = null;
+        for(int slot = 0; slot < counts.capacity(); slot++) if(counts.wordAt(slot) != null) first = counts.wordAt(slot);
+        counts.add("WORD", 0, 4, 5);
+        for(int slot = 0; slot < counts.capacity(); slot++) {
+            if(counts.wordAt(slot) != null) {
+                assertSame(first, counts.wordAt(slot));
+                assertEquals(6, counts.countAt(slot));
+            }
+        }
+        counts.clear();
+        assertEquals(0, counts.size());
+        assertEquals(0, counts.get("word"));
+    }
+}
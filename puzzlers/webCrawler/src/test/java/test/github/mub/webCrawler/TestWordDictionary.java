@@ -0,0 +1,52 @@
+package test.github.mub.webCrawler;
+
+import com.github.mub.webCrawler.WordDictionary;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ */
+public class TestWordDictionary {
+
+    @Test public void concurrentInterningAgreesOnIds() throws Exception {
+        final WordDictionary dict = new WordDictionary(48);
+        final int words = 20000, threads = 8;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<int[]>> results = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            final int offset = t * 997;
+            results.add(pool.submit(new Callable<int[]>() {
+                @Override public int[] call() {
+                    final int[] ids = new int[words];
+                    for(int i = 0; i < words; i++) {
+                        final int w = (i + offset) % words;
+                        ids[w] = dict.idOf("w" + w);
+                    }
+                    return ids;
+                }
+            }));
+        }
+        final int[] first = results.get(0).get();
+        for(final Future<int[]> f: results) assertArrayEquals(first, f.get());
+        pool.shutdown();
+        assertEquals(words, dict.size());
+        for(int w = 0; w < words; w++) assertEquals("w" + w, dict.wordOf(first[w]));
+    }
+
+    @Test public void tooLongIsRejected() {
+        final WordDictionary dict = new WordDictionary(3);
+        assertEquals(WordDictionary.NONE, dict.idOf("four"));
+        assertEquals(0, dict.idOf("one"));
+        assertEquals(0, dict.find("one"));
+        assertEquals(WordDictionary.NONE, dict.find("two"));
+    }
+}